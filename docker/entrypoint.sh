@@ -29,4 +29,25 @@ fi
 if [ -z "$SCS_USER_PASSWORD" ] && [ ! -z "$SCS_USER_PASSWORD_FILE" ] && [ -e $SCS_USER_PASSWORD_FILE ]; then
   export SCS_USER_PASSWORD="$(cat $SCS_USER_PASSWORD_FILE)"
 fi
-java -Djava.security.egd=file:/dev/./urandom -jar /opt/app.jar
+MAIN_CLASS="org.bremersee.scs.Application"
+if [ "$SCS_STATIC_ONLY" = "true" ]; then
+  MAIN_CLASS="org.bremersee.scs.StaticOnlyApplication"
+fi
+if [ "$SCS_FAST_START" = "true" ] && [ -e /opt/app/app.jsa ]; then
+  if [ -z "$ACTIVE_PROFILES" ]; then
+    export ACTIVE_PROFILES="in-memory,fast-start"
+  else
+    case ",$ACTIVE_PROFILES," in
+      *,fast-start,*) ;;
+      *) export ACTIVE_PROFILES="$ACTIVE_PROFILES,fast-start" ;;
+    esac
+  fi
+  java -Djava.security.egd=file:/dev/./urandom \
+    -Xshare:auto -XX:SharedArchiveFile=/opt/app/app.jsa \
+    -cp "/opt/app/app.jar:/opt/app/lib/*" $MAIN_CLASS
+elif [ "$SCS_STATIC_ONLY" = "true" ]; then
+  java -Djava.security.egd=file:/dev/./urandom -Dloader.main=$MAIN_CLASS \
+    -cp /opt/app.jar org.springframework.boot.loader.PropertiesLauncher
+else
+  java -Djava.security.egd=file:/dev/./urandom -jar /opt/app.jar
+fi
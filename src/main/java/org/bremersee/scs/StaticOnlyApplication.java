@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.bremersee.scs.config.FastStartConfiguration;
+import org.bremersee.scs.config.WebConfiguration;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.ConfigurationPropertiesAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.codec.CodecsAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.HttpHandlerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.ReactiveWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.WebFluxAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.error.ErrorWebFluxAutoConfiguration;
+import org.springframework.cloud.autoconfigure.RefreshAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.util.StringUtils;
+
+/**
+ * The static only application. It serves public content with the reactive web stack and the
+ * static content router only. Eureka client, config client, embedded redis, spring retry and the
+ * security filter chain are not loaded, and neither are the optional features of the other
+ * configurations (rate limiting, load shedding, releases, heat map, transport and actuator).
+ *
+ * <p>The profile {@code static-only} and the profiles of the environment variable
+ * {@code ACTIVE_PROFILES} are activated automatically. This class is intentionally not
+ * annotated with {@code SpringBootConfiguration}, so that it is not picked up by the component
+ * scan of the {@link Application}.
+ *
+ * @author Christian Bremer
+ */
+@ImportAutoConfiguration({
+    PropertyPlaceholderAutoConfiguration.class,
+    ConfigurationPropertiesAutoConfiguration.class,
+    RefreshAutoConfiguration.class,
+    JacksonAutoConfiguration.class,
+    CodecsAutoConfiguration.class,
+    ReactiveWebServerFactoryAutoConfiguration.class,
+    WebFluxAutoConfiguration.class,
+    ErrorWebFluxAutoConfiguration.class,
+    HttpHandlerAutoConfiguration.class
+})
+@Import({WebConfiguration.class, FastStartConfiguration.class})
+public class StaticOnlyApplication {
+
+  /**
+   * The name of the static only profile.
+   */
+  public static final String PROFILE = "static-only";
+
+  /**
+   * The entry point of application.
+   *
+   * @param args the input arguments
+   */
+  public static void main(String[] args) {
+    SpringApplication application = new SpringApplication(StaticOnlyApplication.class);
+    application.setDefaultProperties(Collections
+        .singletonMap("spring.cloud.bootstrap.enabled", "false"));
+    // The bootstrap context, that maps ACTIVE_PROFILES, is disabled, so they are added here.
+    Set<String> profiles = new LinkedHashSet<>();
+    profiles.add(PROFILE);
+    profiles.addAll(Arrays.asList(
+        StringUtils.tokenizeToStringArray(System.getenv("ACTIVE_PROFILES"), ",")));
+    application.setAdditionalProfiles(profiles.toArray(new String[0]));
+    application.run(args);
+  }
+
+}
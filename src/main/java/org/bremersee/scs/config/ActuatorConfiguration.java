@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The actuator configuration of the static content server.
+ *
+ * @author Christian Bremer
+ */
+@Configuration
+public class ActuatorConfiguration {
+
+  /**
+   * The static content server endpoint.
+   *
+   * @param scsRouter the static content router
+   * @param accessStatistics the access statistics
+   * @return the endpoint
+   */
+  @Bean
+  @ConditionalOnAvailableEndpoint
+  public ScsEndpoint scsEndpoint(
+      ScsRouterFunction scsRouter,
+      ScsAccessStatistics accessStatistics) {
+    return new ScsEndpoint(scsRouter, accessStatistics);
+  }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * The fast start configuration. It is activated with the profile {@code fast-start}, which also
+ * turns on lazy initialization. The beans that are needed to serve the first request are marked
+ * with {@code @Lazy(false)}.
+ *
+ * @author Christian Bremer
+ */
+@Configuration
+@Profile("fast-start")
+@Slf4j
+public class FastStartConfiguration {
+
+  /**
+   * The listener that reports the startup metrics and exits the application, if it is a training
+   * run for the class data sharing archive.
+   *
+   * @param properties the properties
+   * @return the application listener
+   */
+  @Bean
+  public ApplicationListener<ApplicationReadyEvent> fastStartReadyListener(
+      ScsProperties properties) {
+
+    return event -> {
+      if (properties.getStartup().isLogMetrics()) {
+        log.info("Static content server is ready: uptime = {} ms, rss = {}",
+            StartupMetrics.uptime().toMillis(),
+            StartupMetrics.residentSetSize()
+                .stream()
+                .mapToObj(size -> DataSize.ofBytes(size).toMegabytes() + " MB")
+                .findFirst()
+                .orElse("unknown"));
+      }
+      if (properties.getStartup().isExitOnReady()) {
+        log.info("Exit on ready is enabled, shutting down.");
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+      }
+    };
+  }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * The heat map configuration. The heat map is activated with
+ * {@code bremersee.scs.heat-map.enabled=true}. With
+ * {@code bremersee.scs.heat-map.hold-readiness=true} the readiness state contributor is replaced
+ * by the {@link ScsWarmUpReadinessIndicator}.
+ *
+ * @author Christian Bremer
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "bremersee.scs.heat-map", name = "enabled",
+    havingValue = "true")
+public class HeatMapConfiguration {
+
+  /**
+   * The heat map.
+   *
+   * @param properties the properties
+   * @param accessStatistics the access statistics
+   * @param scsRouter the static content router
+   * @return the heat map
+   */
+  @Bean(destroyMethod = "close")
+  @Lazy(false)
+  public ScsHeatMap scsHeatMap(
+      ScsProperties properties,
+      ScsAccessStatistics accessStatistics,
+      ScsRouterFunction scsRouter) {
+    return new ScsHeatMap(properties.getHeatMap(), accessStatistics, scsRouter);
+  }
+
+  /**
+   * The readiness state health indicator, that refuses traffic until the warm-up is finished. The
+   * bean name replaces the readiness state contributor of spring boot.
+   *
+   * @param availability the application availability
+   * @param scsHeatMap the heat map
+   * @return the readiness state health indicator
+   */
+  @Bean
+  @ConditionalOnProperty(prefix = "bremersee.scs.heat-map", name = "hold-readiness",
+      havingValue = "true")
+  public ScsWarmUpReadinessIndicator readinessStateHealthIndicator(
+      ApplicationAvailability availability,
+      ScsHeatMap scsHeatMap) {
+    return new ScsWarmUpReadinessIndicator(availability, scsHeatMap);
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpResources;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * The load shedding configuration. The load shedder is activated with
+ * {@code bremersee.scs.load-shedding.enabled=true}.
+ *
+ * @author Christian Bremer
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "bremersee.scs.load-shedding", name = "enabled",
+    havingValue = "true")
+@Slf4j
+public class LoadSheddingConfiguration {
+
+  /**
+   * The event loop lag monitor of the event loops of the server.
+   *
+   * @param properties the properties
+   * @param transport the transport of the server (it is missing, if the defaults of reactor
+   *     netty are used)
+   * @return the event loop lag monitor
+   */
+  @Bean(destroyMethod = "close")
+  public ScsEventLoopLagMonitor scsEventLoopLagMonitor(
+      ScsProperties properties,
+      ObjectProvider<ScsTransport> transport) {
+    ScsTransport serverTransport = transport.getIfAvailable();
+    return new ScsEventLoopLagMonitor(
+        serverTransport != null
+            ? serverTransport.getEventLoops()
+            : HttpResources.get().onServer(LoopResources.DEFAULT_NATIVE),
+        properties.getLoadShedding().getProbeInterval())
+        .start();
+  }
+
+  /**
+   * The load shedder.
+   *
+   * @param properties the properties
+   * @param eventLoopLagMonitor the event loop lag monitor
+   * @param meterRegistry the meter registry (it is missing in the static only runtime)
+   * @return the load shedder
+   */
+  @Bean
+  public ScsLoadShedder scsLoadShedder(
+      ScsProperties properties,
+      ScsEventLoopLagMonitor eventLoopLagMonitor,
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    log.info("Creating load shedder with {}", properties.getLoadShedding());
+    return new ScsLoadShedder(
+        properties.getLoadShedding(),
+        eventLoopLagMonitor::lagNanos,
+        ScsBlockingIo::pending,
+        meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+  }
+
+}
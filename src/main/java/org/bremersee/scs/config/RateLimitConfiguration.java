@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.server.adapter.ForwardedHeaderTransformer;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+
+/**
+ * The rate limit configuration. The rate limiter and the forwarded header transformer are
+ * activated with {@code bremersee.scs.rate-limit.enabled=true}.
+ *
+ * @author Christian Bremer
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "bremersee.scs.rate-limit", name = "enabled",
+    havingValue = "true")
+@Slf4j
+public class RateLimitConfiguration {
+
+  /**
+   * The rate limiter.
+   *
+   * @param properties the properties
+   * @param meterRegistry the meter registry (it is missing in the static only runtime)
+   * @return the rate limiter
+   */
+  @Bean
+  public ScsRateLimiter scsRateLimiter(
+      ScsProperties properties,
+      ObjectProvider<MeterRegistry> meterRegistry) {
+    log.info("Creating rate limiter with {}", properties.getRateLimit());
+    return new ScsRateLimiter(
+        properties.getRateLimit(),
+        meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+  }
+
+  /**
+   * The forwarded header transformer of the {@code framework} forward headers strategy, that
+   * also resolves the remote address of the client. It replaces the one of spring boot.
+   *
+   * @param properties the properties
+   * @return the forwarded header transformer
+   */
+  @Bean(WebHttpHandlerBuilder.FORWARDED_HEADER_TRANSFORMER_BEAN_NAME)
+  @ConditionalOnProperty(name = "server.forward-headers-strategy", havingValue = "framework")
+  public ForwardedHeaderTransformer forwardedHeaderTransformer(ScsProperties properties) {
+    return new ScsForwardedHeaderTransformer(properties.getRateLimit().getTrustedProxies());
+  }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * The releases configuration. Versioned releases are activated with
+ * {@code bremersee.scs.releases.enabled=true}.
+ *
+ * @author Christian Bremer
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "bremersee.scs.releases", name = "enabled",
+    havingValue = "true")
+public class ReleasesConfiguration {
+
+  /**
+   * The releases.
+   *
+   * @param properties the properties
+   * @param scsRouter the static content router
+   * @param accessStatistics the access statistics
+   * @return the releases
+   */
+  @Bean(destroyMethod = "close")
+  @Lazy(false)
+  public ScsReleases scsReleases(
+      ScsProperties properties,
+      ScsRouterFunction scsRouter,
+      ScsAccessStatistics accessStatistics) {
+    return new ScsReleases(properties, scsRouter, accessStatistics).start();
+  }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import javax.validation.constraints.NotNull;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The access statistics. It counts the accesses of the served content paths. The number of
+ * counted paths is limited; if the limit is reached, about the less frequently accessed half of
+ * the paths is dropped in the background. The threshold is estimated from a sample of the counts,
+ * so the paths are never sorted on a request thread. Until the paths are dropped, new paths are
+ * counted up to twice the limit, beyond that they are ignored.
+ *
+ * <p>The paths are relative to the content location, so every virtual host has its own access
+ * statistics (see {@link #forHost(String, int)}).
+ *
+ * @author Christian Bremer
+ */
+public class ScsAccessStatistics {
+
+  private static final int SAMPLE_SIZE = 64;
+
+  private final int maxPaths;
+
+  private final Scheduler scheduler;
+
+  private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+  private final AtomicBoolean shrinking = new AtomicBoolean();
+
+  private final Map<String, ScsAccessStatistics> hosts = new ConcurrentHashMap<>();
+
+  /**
+   * Instantiates new access statistics.
+   *
+   * @param maxPaths the max number of counted paths
+   */
+  public ScsAccessStatistics(int maxPaths) {
+    this(maxPaths, Schedulers.parallel());
+  }
+
+  /**
+   * Instantiates new access statistics.
+   *
+   * @param maxPaths the max number of counted paths
+   * @param scheduler the scheduler, that drops the less frequently accessed paths
+   */
+  ScsAccessStatistics(int maxPaths, @NotNull Scheduler scheduler) {
+    this.maxPaths = Math.max(1, maxPaths);
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Gets the access statistics of the given virtual host. They are created on first use and
+   * outlive a refresh of the routers like these statistics.
+   *
+   * @param host the virtual host
+   * @param maxPaths the max number of counted paths of the host
+   * @return the access statistics of the virtual host
+   */
+  public ScsAccessStatistics forHost(@NotNull String host, int maxPaths) {
+    return hosts.computeIfAbsent(host, key -> new ScsAccessStatistics(maxPaths, scheduler));
+  }
+
+  /**
+   * Records an access of the given path.
+   *
+   * @param path the path relative to the content location
+   */
+  public void record(@NotNull String path) {
+    LongAdder count = counter(path);
+    if (count != null) {
+      count.increment();
+    }
+  }
+
+  /**
+   * Adds a number of accesses of the given path, for example from a persisted heat map.
+   *
+   * @param path the path relative to the content location
+   * @param accesses the number of accesses
+   */
+  public void add(@NotNull String path, long accesses) {
+    LongAdder count = accesses > 0L ? counter(path) : null;
+    if (count != null) {
+      count.add(accesses);
+    }
+  }
+
+  private LongAdder counter(String path) {
+    LongAdder count = counts.get(path);
+    if (count == null) {
+      int size = counts.size();
+      if (size >= maxPaths) {
+        scheduleShrink();
+        if (size >= 2L * maxPaths) {
+          return null;
+        }
+      }
+      count = counts.computeIfAbsent(path, key -> new LongAdder());
+    }
+    return count;
+  }
+
+  private void scheduleShrink() {
+    if (shrinking.compareAndSet(false, true)) {
+      try {
+        scheduler.schedule(this::shrink);
+      } catch (RejectedExecutionException e) {
+        shrinking.set(false);
+      }
+    }
+  }
+
+  /**
+   * Drops about the less frequently accessed half of the paths, if the limit is reached.
+   */
+  void shrink() {
+    try {
+      if (counts.size() < maxPaths) {
+        return;
+      }
+      long threshold = sampledMedian();
+      int keep = maxPaths / 2;
+      counts.values().removeIf(count -> count.sum() < threshold);
+      Iterator<LongAdder> iterator = counts.values().iterator();
+      while (counts.size() > keep && iterator.hasNext()) {
+        if (iterator.next().sum() <= threshold) {
+          iterator.remove();
+        }
+      }
+    } finally {
+      shrinking.set(false);
+    }
+  }
+
+  private long sampledMedian() {
+    int step = Math.max(1, counts.size() / SAMPLE_SIZE);
+    long[] sample = new long[SAMPLE_SIZE];
+    int n = 0;
+    int i = 0;
+    for (LongAdder count : counts.values()) {
+      if (i++ % step == 0) {
+        sample[n++] = count.sum();
+        if (n == SAMPLE_SIZE) {
+          break;
+        }
+      }
+    }
+    if (n == 0) {
+      return 0L;
+    }
+    Arrays.sort(sample, 0, n);
+    return sample[n / 2];
+  }
+
+  /**
+   * Gets the most frequently accessed paths with their number of accesses.
+   *
+   * @param n the max number of paths
+   * @return the paths in descending order of their accesses
+   */
+  public List<Map.Entry<String, Long>> top(int n) {
+    List<Map.Entry<String, Long>> entries = snapshot();
+    int size = entries.size();
+    List<Map.Entry<String, Long>> top = new ArrayList<>(
+        entries.subList(Math.max(0, size - Math.max(0, n)), size));
+    Collections.reverse(top);
+    return top;
+  }
+
+  /**
+   * Gets the number of counted paths.
+   *
+   * @return the number of counted paths
+   */
+  public int size() {
+    return counts.size();
+  }
+
+  /**
+   * Removes all counts, also the counts of the virtual hosts.
+   */
+  public void clear() {
+    counts.clear();
+    hosts.values().forEach(ScsAccessStatistics::clear);
+  }
+
+  /**
+   * Gets the paths with their number of accesses in ascending order.
+   */
+  private List<Map.Entry<String, Long>> snapshot() {
+    return counts.entrySet().stream()
+        .<Map.Entry<String, Long>>map(entry -> new SimpleImmutableEntry<>(
+            entry.getKey(), entry.getValue().sum()))
+        .sorted(Map.Entry.comparingByValue())
+        .collect(Collectors.toList());
+  }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.validation.constraints.NotNull;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The scheduler of blocking file I/O. It delegates to the bounded elastic scheduler of reactor
+ * and counts the tasks, that are queued or running, so that the depth of the blocking I/O queue
+ * can be observed (for example by the {@link ScsLoadShedder}).
+ *
+ * @author Christian Bremer
+ */
+public abstract class ScsBlockingIo {
+
+  private static final AtomicInteger PENDING = new AtomicInteger();
+
+  private static final Scheduler SCHEDULER = new CountingScheduler(Schedulers.boundedElastic());
+
+  private ScsBlockingIo() {
+  }
+
+  /**
+   * Gets the scheduler of blocking file I/O.
+   *
+   * @return the scheduler
+   */
+  public static Scheduler scheduler() {
+    return SCHEDULER;
+  }
+
+  /**
+   * Gets the number of blocking I/O tasks, that are queued or running.
+   *
+   * @return the number of pending tasks
+   */
+  public static int pending() {
+    return PENDING.get();
+  }
+
+  /**
+   * A counted task, that is either run or cancelled.
+   */
+  private static class CountedTask implements Runnable {
+
+    private final Runnable task;
+
+    private final Set<CountedTask> owner;
+
+    private final AtomicInteger state = new AtomicInteger();
+
+    private volatile Disposable disposable;
+
+    private CountedTask(Runnable task, Set<CountedTask> owner) {
+      this.task = task;
+      this.owner = owner;
+      PENDING.incrementAndGet();
+      owner.add(this);
+    }
+
+    @Override
+    public void run() {
+      if (state.compareAndSet(0, 1)) {
+        try {
+          task.run();
+        } finally {
+          done();
+        }
+      }
+    }
+
+    /**
+     * Cancels the task, if it is not running yet. A cancelled task is not pending anymore.
+     */
+    private void cancel() {
+      if (state.compareAndSet(0, 2)) {
+        done();
+      }
+      if (disposable != null) {
+        disposable.dispose();
+      }
+    }
+
+    private void done() {
+      owner.remove(this);
+      PENDING.decrementAndGet();
+    }
+
+    private Disposable schedule(Function<Runnable, Disposable> scheduler) {
+      try {
+        disposable = scheduler.apply(this);
+      } catch (RuntimeException e) {
+        cancel();
+        throw e;
+      }
+      return this::cancel;
+    }
+  }
+
+  /**
+   * The scheduler, that counts the pending tasks.
+   */
+  private static class CountingScheduler implements Scheduler {
+
+    private final Scheduler delegate;
+
+    private final Set<CountedTask> tasks = ConcurrentHashMap.newKeySet();
+
+    private CountingScheduler(Scheduler delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Disposable schedule(@NotNull Runnable task) {
+      return new CountedTask(task, tasks).schedule(delegate::schedule);
+    }
+
+    @Override
+    public Disposable schedule(@NotNull Runnable task, long delay, @NotNull TimeUnit unit) {
+      // delayed tasks are not pending until they are due
+      return delegate.schedule(task, delay, unit);
+    }
+
+    @Override
+    public Worker createWorker() {
+      return new CountingWorker(delegate.createWorker());
+    }
+
+    @Override
+    public void dispose() {
+      // the bounded elastic scheduler of reactor is shared and must not be disposed here
+    }
+  }
+
+  /**
+   * The worker, that counts the pending tasks.
+   */
+  private static class CountingWorker implements Scheduler.Worker {
+
+    private final Scheduler.Worker delegate;
+
+    private final Set<CountedTask> tasks = ConcurrentHashMap.newKeySet();
+
+    private CountingWorker(Scheduler.Worker delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Disposable schedule(@NotNull Runnable task) {
+      return new CountedTask(task, tasks).schedule(delegate::schedule);
+    }
+
+    @Override
+    public Disposable schedule(@NotNull Runnable task, long delay, @NotNull TimeUnit unit) {
+      // delayed tasks are not pending until they are due
+      return delegate.schedule(task, delay, unit);
+    }
+
+    @Override
+    public void dispose() {
+      // the tasks, that are dropped by the disposed worker, are not pending anymore
+      delegate.dispose();
+      tasks.forEach(CountedTask::cancel);
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return delegate.isDisposed();
+    }
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.validation.constraints.NotNull;
+
+/**
+ * A bloom filter of strings. It answers, whether a string might be contained or is definitely
+ * not contained. The bits are stored in an {@link AtomicLongArray}, so that strings can be added
+ * while other threads are reading; about 9.6 bits per string are needed for a false positive
+ * rate of one percent.
+ *
+ * @author Christian Bremer
+ */
+public class ScsBloomFilter {
+
+  private static final double LN2 = Math.log(2.);
+
+  private final AtomicLongArray bits;
+
+  private final long bitCount;
+
+  private final int hashCount;
+
+  /**
+   * Instantiates a new bloom filter.
+   *
+   * @param expectedSize the expected number of strings
+   * @param falsePositiveRate the false positive rate at the expected number of strings
+   */
+  public ScsBloomFilter(long expectedSize, double falsePositiveRate) {
+    long n = Math.max(1L, expectedSize);
+    double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+    long m = (long) Math.ceil(-n * Math.log(p) / (LN2 * LN2));
+    int words = (int) Math.min(Integer.MAX_VALUE - 8L, Math.max(1L, (m + 63L) >>> 6));
+    this.bits = new AtomicLongArray(words);
+    this.bitCount = words * 64L;
+    this.hashCount = Math.max(1, Math.min(16, (int) Math.round((double) bitCount / n * LN2)));
+  }
+
+  /**
+   * Adds a string.
+   *
+   * @param value the string
+   */
+  public void put(@NotNull String value) {
+    long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+    long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1L;
+    for (int i = 0; i < hashCount; i++) {
+      long index = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+      int word = (int) (index >>> 6);
+      long mask = 1L << index;
+      if ((bits.get(word) & mask) == 0L) {
+        bits.getAndAccumulate(word, mask, (current, bit) -> current | bit);
+      }
+    }
+  }
+
+  /**
+   * Determines whether the string might be contained.
+   *
+   * @param value the string
+   * @return {@code false} if the string is definitely not contained, otherwise {@code true}
+   */
+  public boolean mightContain(@NotNull String value) {
+    long hash1 = hash(value, 0x9E3779B97F4A7C15L);
+    long hash2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1L;
+    for (int i = 0; i < hashCount; i++) {
+      long index = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+      if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0L) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the size of the filter in bytes.
+   *
+   * @return the size in bytes
+   */
+  public long sizeInBytes() {
+    return bitCount >>> 3;
+  }
+
+  /**
+   * Gets the number of hash functions.
+   *
+   * @return the number of hash functions
+   */
+  public int getHashCount() {
+    return hashCount;
+  }
+
+  private static long hash(String value, long seed) {
+    long hash = seed ^ value.length();
+    for (int i = 0; i < value.length(); i++) {
+      hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+    }
+    // final mix of murmur3 (fmix64)
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+}
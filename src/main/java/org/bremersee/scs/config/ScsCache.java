@@ -0,0 +1,475 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import javax.validation.constraints.NotNull;
+import org.springframework.core.io.Resource;
+
+/**
+ * A small bounded cache with least recently used eviction. The size is limited by the number of
+ * entries and optionally by the sum of the weights of the values (for example their size in
+ * bytes). Hits, misses and evictions are counted. An optional eviction listener is called with
+ * every evicted entry, after the locks of the cache are released.
+ *
+ * <p>The cache is split into up to 16 segments by the hash of the key, every segment has its own
+ * lock and its own least recently used order, so that concurrent requests of different keys
+ * rarely wait for each other. A segment gets at least 64 entries, so small caches have one
+ * segment and an exact order. The number of entries is limited per segment, the weight for the
+ * whole cache: a segment, that exceeds it, evicts its own least recently used entries first and
+ * then the ones of the following segments.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author Christian Bremer
+ */
+public class ScsCache<K, V> {
+
+  private static final int MAX_SEGMENTS = 16;
+
+  private static final int MIN_SEGMENT_ENTRIES = 64;
+
+  private final String name;
+
+  private final long maxWeight;
+
+  private final ToLongFunction<V> weigher;
+
+  private final BiConsumer<K, V> evictionListener;
+
+  private final List<Segment> segments = new ArrayList<>();
+
+  private final AtomicLong weight = new AtomicLong();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Instantiates a new cache, that is limited by the number of entries.
+   *
+   * @param name the name
+   * @param maxEntries the max entries
+   */
+  public ScsCache(@NotNull String name, int maxEntries) {
+    this(name, maxEntries, Long.MAX_VALUE, value -> 0L);
+  }
+
+  /**
+   * Instantiates a new cache, that is limited by the number of entries and the weight.
+   *
+   * @param name the name
+   * @param maxEntries the max entries
+   * @param maxWeight the max weight
+   * @param weigher the weigher
+   */
+  public ScsCache(
+      @NotNull String name,
+      int maxEntries,
+      long maxWeight,
+      @NotNull ToLongFunction<V> weigher) {
+    this(name, maxEntries, maxWeight, weigher, (key, value) -> {
+    });
+  }
+
+  /**
+   * Instantiates a new cache, that is limited by the number of entries and the weight and that
+   * notifies the given listener about evicted entries.
+   *
+   * @param name the name
+   * @param maxEntries the max entries
+   * @param maxWeight the max weight
+   * @param weigher the weigher
+   * @param evictionListener the eviction listener
+   */
+  public ScsCache(
+      @NotNull String name,
+      int maxEntries,
+      long maxWeight,
+      @NotNull ToLongFunction<V> weigher,
+      @NotNull BiConsumer<K, V> evictionListener) {
+    this.name = name;
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+    this.evictionListener = evictionListener;
+    int entries = Math.max(0, maxEntries);
+    int count = 1;
+    while (count < MAX_SEGMENTS && entries / (count * 2) >= MIN_SEGMENT_ENTRIES) {
+      count *= 2;
+    }
+    for (int i = 0; i < count; i++) {
+      segments.add(new Segment(entries / count + (i < entries % count ? 1 : 0)));
+    }
+  }
+
+  /**
+   * Gets the cache key of a resource. It is the url of the resource, so that the keys of
+   * different content locations do not collide and the keys of a directory share a prefix.
+   *
+   * @param resource the resource
+   * @return the key
+   */
+  public static String key(@NotNull Resource resource) {
+    try {
+      return resource.getURL().toExternalForm();
+    } catch (IOException e) {
+      return resource.getDescription();
+    }
+  }
+
+  /**
+   * Determines whether the key is the key prefix itself or a key below it. The prefix matches on
+   * a segment boundary, so that {@code /docs} does not match {@code /docs-old}.
+   *
+   * @param key the key
+   * @param keyPrefix the key prefix (see {@link #key(Resource)})
+   * @return {@code true}, if the key is within the prefix, otherwise {@code false}
+   */
+  public static boolean isWithin(@NotNull String key, @NotNull String keyPrefix) {
+    if (!key.startsWith(keyPrefix)) {
+      return false;
+    }
+    if (key.length() == keyPrefix.length() || keyPrefix.endsWith("/")) {
+      return true;
+    }
+    char c = key.charAt(keyPrefix.length());
+    return c == '/' || c == '|';
+  }
+
+  /**
+   * Gets the name.
+   *
+   * @return the name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the value of the given key.
+   *
+   * @param key the key
+   * @return the value or {@code null}
+   */
+  public V get(K key) {
+    V value = peek(key);
+    if (value != null) {
+      hits.increment();
+    } else {
+      misses.increment();
+    }
+    return value;
+  }
+
+  /**
+   * Gets the value of the given key without counting a hit or a miss. The caller can count it
+   * with {@link #recordHit()} or {@link #recordMiss()}, for example when the value turns out to
+   * be stale.
+   *
+   * @param key the key
+   * @return the value or {@code null}
+   */
+  public V peek(K key) {
+    Segment segment = segments.get(index(key));
+    synchronized (segment) {
+      return segment.map.get(key);
+    }
+  }
+
+  /**
+   * Counts a hit.
+   */
+  public void recordHit() {
+    hits.increment();
+  }
+
+  /**
+   * Counts a miss.
+   */
+  public void recordMiss() {
+    misses.increment();
+  }
+
+  /**
+   * Puts the value into the cache. Values, that are heavier than the max weight, are not cached.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the replaced value or {@code null}
+   */
+  public V put(@NotNull K key, @NotNull V value) {
+    long valueWeight = weigher.applyAsLong(value);
+    int index = index(key);
+    Segment segment = segments.get(index);
+    if (segment.maxEntries == 0 || valueWeight > maxWeight) {
+      return null;
+    }
+    V old;
+    List<Map.Entry<K, V>> evicted;
+    synchronized (segment) {
+      old = segment.map.put(key, value);
+      segment.add(valueWeight - (old != null ? weigher.applyAsLong(old) : 0L));
+      evicted = segment.evict(1, null);
+    }
+    notify(evictOthers(index, evicted));
+    return old;
+  }
+
+  /**
+   * Puts the value into the cache, if there is no value of the given key. Values, that are
+   * heavier than the max weight, are not cached.
+   *
+   * @param key the key
+   * @param value the value
+   * @return the present value or {@code null}, if there was no value
+   */
+  public V putIfAbsent(@NotNull K key, @NotNull V value) {
+    long valueWeight = weigher.applyAsLong(value);
+    int index = index(key);
+    Segment segment = segments.get(index);
+    List<Map.Entry<K, V>> evicted;
+    synchronized (segment) {
+      V present = segment.map.get(key);
+      if (present != null || segment.maxEntries == 0 || valueWeight > maxWeight) {
+        return present;
+      }
+      segment.map.put(key, value);
+      segment.add(valueWeight);
+      evicted = segment.evict(1, null);
+    }
+    notify(evictOthers(index, evicted));
+    return null;
+  }
+
+  private int index(Object key) {
+    int hash = Objects.hashCode(key);
+    return (hash ^ (hash >>> 16)) & (segments.size() - 1);
+  }
+
+  /**
+   * Evicts the least recently used entries of the segments following the given one, as long as
+   * the cache is heavier than the max weight.
+   */
+  private List<Map.Entry<K, V>> evictOthers(int index, List<Map.Entry<K, V>> evicted) {
+    for (int i = 1; i < segments.size() && weight.get() > maxWeight; i++) {
+      Segment segment = segments.get((index + i) & (segments.size() - 1));
+      synchronized (segment) {
+        evicted = segment.evict(0, evicted);
+      }
+    }
+    return evicted;
+  }
+
+  private void notify(List<Map.Entry<K, V>> evicted) {
+    if (evicted != null) {
+      evicted.forEach(entry -> evictionListener.accept(entry.getKey(), entry.getValue()));
+    }
+  }
+
+  /**
+   * Removes the value of the given key.
+   *
+   * @param key the key
+   */
+  public void remove(K key) {
+    Segment segment = segments.get(index(key));
+    synchronized (segment) {
+      V old = segment.map.remove(key);
+      if (old != null) {
+        segment.add(-weigher.applyAsLong(old));
+      }
+    }
+  }
+
+  /**
+   * Removes the value of the given key, if it is the given value.
+   *
+   * @param key the key
+   * @param value the value
+   * @return {@code true}, if the value was removed
+   */
+  public boolean remove(K key, V value) {
+    Segment segment = segments.get(index(key));
+    synchronized (segment) {
+      if (value == null || !value.equals(segment.map.get(key))) {
+        return false;
+      }
+      segment.map.remove(key);
+      segment.add(-weigher.applyAsLong(value));
+      return true;
+    }
+  }
+
+  /**
+   * Removes all entries whose key matches the given predicate.
+   *
+   * @param predicate the predicate
+   * @return the number of removed entries
+   */
+  public int removeIf(@NotNull Predicate<K> predicate) {
+    int removed = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        Iterator<Map.Entry<K, V>> iterator = segment.map.entrySet().iterator();
+        while (iterator.hasNext()) {
+          Map.Entry<K, V> entry = iterator.next();
+          if (predicate.test(entry.getKey())) {
+            segment.add(-weigher.applyAsLong(entry.getValue()));
+            iterator.remove();
+            removed++;
+          }
+        }
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Gets a snapshot of the values. The order of the values is not changed.
+   *
+   * @return the values
+   */
+  public List<V> values() {
+    List<V> values = new ArrayList<>();
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        values.addAll(segment.map.values());
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Removes all entries.
+   */
+  public void clear() {
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.map.clear();
+        segment.add(-segment.weight);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of entries.
+   *
+   * @return the number of entries
+   */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.map.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Gets the sum of the weights of all entries.
+   *
+   * @return the weight
+   */
+  public long weight() {
+    return weight.get();
+  }
+
+  /**
+   * Gets the number of hits.
+   *
+   * @return the hits
+   */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /**
+   * Gets the number of misses.
+   *
+   * @return the misses
+   */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /**
+   * Gets the number of evictions.
+   *
+   * @return the evictions
+   */
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * A segment of the cache with its own lock and its own least recently used order. The fields
+   * are guarded by the segment itself.
+   */
+  private class Segment {
+
+    private final LinkedHashMap<K, V> map = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final int maxEntries;
+
+    private long weight;
+
+    private Segment(int maxEntries) {
+      this.maxEntries = maxEntries;
+    }
+
+    private void add(long delta) {
+      weight += delta;
+      ScsCache.this.weight.addAndGet(delta);
+    }
+
+    /**
+     * Evicts the least recently used entries, while the segment has too many entries or the
+     * cache is too heavy, but keeps at least the given number of entries.
+     */
+    private List<Map.Entry<K, V>> evict(int keep, List<Map.Entry<K, V>> evicted) {
+      Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator();
+      while ((map.size() > maxEntries || ScsCache.this.weight.get() > maxWeight)
+          && map.size() > keep && iterator.hasNext()) {
+        Map.Entry<K, V> eldest = iterator.next();
+        add(-weigher.applyAsLong(eldest.getValue()));
+        if (evicted == null) {
+          evicted = new ArrayList<>();
+        }
+        evicted.add(new SimpleImmutableEntry<>(eldest.getKey(), eldest.getValue()));
+        iterator.remove();
+        evictions.increment();
+      }
+      return evicted;
+    }
+  }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.StringUtils;
+
+/**
+ * The files of a content location on the classpath, that are held in memory. Without it, every
+ * request resolves a classpath resource, which means a lookup in the jar and inflating the entry;
+ * and a classpath resource can't be sent with zero copy.
+ *
+ * <p>The files are read once, when the router is created, into direct buffers of their exact
+ * size. The map of the files is immutable, the buffers are read only and wrapped by
+ * {@link ScsPackResource}s, so they are written to the response without copying and they are
+ * not cached again by the content cache. Files, that exceed the configured sizes, are still read
+ * from the classpath.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsClasspathContent {
+
+  private final Map<String, ScsPackResource> files;
+
+  private final Set<String> directories;
+
+  private final long size;
+
+  private final boolean complete;
+
+  /**
+   * Reads the files of the classpath location into memory.
+   *
+   * @param location the classpath location
+   * @param properties the properties
+   * @throws IOException if reading the files fails
+   * @throws IllegalArgumentException if the max file size is larger than 2 GB
+   */
+  public ScsClasspathContent(
+      @NotNull ClassPathResource location,
+      @NotNull ScsProperties.ClasspathContent properties) throws IOException {
+    long start = System.nanoTime();
+    String root = decode(location.getURL());
+    String path = location.getPath().endsWith("/") ? location.getPath() : location.getPath() + "/";
+    Resource[] resources = new PathMatchingResourcePatternResolver(location.getClassLoader())
+        .getResources(ResourceLoader.CLASSPATH_URL_PREFIX + path + "**");
+    long maxFileSize = properties.getMaxFileSize().toBytes();
+    if (maxFileSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The max file size of the classpath content "
+          + properties.getMaxFileSize() + " is larger than 2 GB.");
+    }
+    long maxSize = properties.getMaxSize().toBytes();
+    Map<String, ScsPackResource> files = new HashMap<>();
+    Set<String> directories = new HashSet<>();
+    directories.add("");
+    long size = 0L;
+    boolean complete = true;
+    for (Resource resource : resources) {
+      String url = decode(resource.getURL());
+      if (!url.startsWith(root) || url.length() == root.length()) {
+        continue;
+      }
+      String relativePath = url.substring(root.length());
+      if (relativePath.endsWith("/") || !resource.isReadable()) {
+        addDirectories(directories, StringUtils.trimTrailingCharacter(relativePath, '/'));
+        continue;
+      }
+      long length = resource.contentLength();
+      ByteBuffer content = length >= 0L && length <= maxFileSize && size + length <= maxSize
+          ? read(resource, (int) length)
+          : null;
+      if (content == null) {
+        log.debug("Classpath resource {} ({} bytes) is not held in memory.", relativePath, length);
+        complete = false;
+        continue;
+      }
+      files.put(relativePath, new ScsPackResource(
+          content, location.createRelative(relativePath), lastModified(resource)));
+      size += length;
+      int slash = relativePath.lastIndexOf('/');
+      if (slash > 0) {
+        addDirectories(directories, relativePath.substring(0, slash));
+      }
+    }
+    this.files = Collections.unmodifiableMap(files);
+    this.directories = Collections.unmodifiableSet(directories);
+    this.size = size;
+    this.complete = complete;
+    log.info("Read {} files ({} bytes) of classpath location {} into memory in {} ms, "
+            + "complete = {}", files.size(), size, location.getPath(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), complete);
+  }
+
+  private static String decode(URL url) {
+    // the urls of the classloader and of the scanned files may be encoded differently
+    return StringUtils.uriDecode(url.toExternalForm(), StandardCharsets.UTF_8);
+  }
+
+  private static void addDirectories(Set<String> directories, String path) {
+    String directory = path;
+    while (!directory.isEmpty() && directories.add(directory)) {
+      int slash = directory.lastIndexOf('/');
+      directory = slash > 0 ? directory.substring(0, slash) : "";
+    }
+  }
+
+  private static ByteBuffer read(Resource resource, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+    try (InputStream in = resource.getInputStream();
+        ReadableByteChannel channel = Channels.newChannel(in)) {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          return null;
+        }
+      }
+      if (in.read() >= 0) {
+        return null;
+      }
+    }
+    buffer.flip();
+    return buffer.asReadOnlyBuffer();
+  }
+
+  private static long lastModified(Resource resource) {
+    try {
+      return resource.lastModified();
+    } catch (IOException e) {
+      return 0L;
+    }
+  }
+
+  /**
+   * Finds the file of the given path.
+   *
+   * @param path the path relative to the content location
+   * @return the file in memory or {@code null}
+   */
+  public Resource find(@NotNull String path) {
+    return files.get(path);
+  }
+
+  /**
+   * Determines whether the path is a directory.
+   *
+   * @param path the path relative to the content location
+   * @return {@code true}, if the path is a directory
+   */
+  public boolean isDirectory(@NotNull String path) {
+    return directories.contains(path);
+  }
+
+  /**
+   * Determines whether all files of the classpath location are held in memory. Then a path, that
+   * is neither a file nor a directory, does not exist.
+   *
+   * @return {@code true}, if all files are held in memory
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * Gets the paths of the files in memory.
+   *
+   * @return the paths
+   */
+  public Set<String> getPaths() {
+    return files.keySet();
+  }
+
+  /**
+   * Gets the size of the files in memory.
+   *
+   * @return the size in bytes
+   */
+  public long size() {
+    return size;
+  }
+
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+import reactor.core.publisher.Mono;
+
+/**
+ * The content cache. It holds small files in memory. A cached file is validated by its last
+ * modification time at most once per revalidate interval; within the interval a hit is served
+ * directly, validating and loading is done on the blocking I/O scheduler.
+ *
+ * <p>The content is stored by its hash: the path index maps the key of a file to the hash of its
+ * content and byte-identical files (for example a library, that is copied into several
+ * directories) share one body. The max size limits the size of the distinct bodies. A body is
+ * released, when the last key of it is evicted from the path index; a key, whose body was
+ * evicted, is loaded again. A hit is only counted, if the cached body is still valid.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsContentCache {
+
+  private final ScsProperties.ContentCache properties;
+
+  private final ScsCache<String, String> cache;
+
+  private final ScsCache<String, Body> bodies;
+
+  /**
+   * Instantiates a new content cache.
+   *
+   * @param properties the properties
+   */
+  public ScsContentCache(@NotNull ScsProperties.ContentCache properties) {
+    this.properties = properties;
+    this.cache = new ScsCache<>(
+        "content",
+        properties.getMaxEntries(),
+        Long.MAX_VALUE,
+        hash -> 0L,
+        this::release);
+    this.bodies = new ScsCache<>(
+        "content-bodies",
+        properties.getMaxEntries(),
+        properties.getMaxSize().toBytes(),
+        body -> body.content.length);
+  }
+
+  /**
+   * Specifies whether the content cache is enabled.
+   *
+   * @return {@code true}, if it is enabled
+   */
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  /**
+   * Gets the cache, that maps the keys of the cached files to the hashes of their content.
+   *
+   * @return the cache
+   */
+  public ScsCache<?, ?> getCache() {
+    return cache;
+  }
+
+  /**
+   * Gets the cache of the distinct bodies of the cached files.
+   *
+   * @return the cache of the bodies
+   */
+  public ScsCache<?, ?> getBodies() {
+    return bodies;
+  }
+
+  /**
+   * Gets the number of evicted files and bodies. It grows, when the cache is full.
+   *
+   * @return the number of evictions
+   */
+  public long evictions() {
+    return cache.evictions() + bodies.evictions();
+  }
+
+  /**
+   * Gets the cached content of the resource. If the resource is not cached yet and small enough,
+   * it is loaded.
+   *
+   * @param resource the resource
+   * @return the cached or the given resource
+   */
+  public Mono<Resource> apply(@NotNull Resource resource) {
+    if (!properties.isEnabled() || resource instanceof ScsMemoryResource
+        || resource instanceof ScsPackResource) {
+      return Mono.just(resource);
+    }
+    Entry entry = find(ScsCache.key(resource));
+    if (entry != null && System.nanoTime() - entry.validated
+        < properties.getRevalidateInterval().toNanos()) {
+      cache.recordHit();
+      bodies.recordHit();
+      return Mono.just(entry.resource);
+    }
+    return Mono.fromCallable(() -> get(resource))
+        .subscribeOn(ScsBlockingIo.scheduler());
+  }
+
+  private Entry find(String key) {
+    String hash = cache.peek(key);
+    Body body = hash != null ? bodies.peek(hash) : null;
+    return body != null ? body.resources.get(key) : null;
+  }
+
+  private Resource get(Resource resource) throws IOException {
+    try {
+      String key = ScsCache.key(resource);
+      String hash = cache.peek(key);
+      if (hash != null) {
+        Body body = bodies.peek(hash);
+        Entry entry = body != null ? body.resources.get(key) : null;
+        if (entry != null && entry.resource.lastModified() == resource.lastModified()) {
+          entry.validated = System.nanoTime();
+          cache.recordHit();
+          bodies.recordHit();
+          return entry.resource;
+        }
+        cache.remove(key, hash);
+        release(key, hash);
+      }
+      cache.recordMiss();
+      if (resource.contentLength() > properties.getMaxFileSize().toBytes()) {
+        return resource;
+      }
+    } catch (IOException e) {
+      log.debug("Checking cached content of {} failed.", resource, e);
+      return resource;
+    }
+    return load(resource);
+  }
+
+  /**
+   * Loads the resource into the cache, if it is small enough.
+   *
+   * @param resource the resource
+   * @return the cached or the given resource
+   * @throws IOException if reading the resource fails
+   */
+  public Resource load(@NotNull Resource resource) throws IOException {
+    long maxFileSize = properties.getMaxFileSize().toBytes();
+    if (!properties.isEnabled() || resource instanceof ScsMemoryResource
+        || resource instanceof ScsPackResource || resource.contentLength() > maxFileSize) {
+      return resource;
+    }
+    long lastModified = resource.lastModified();
+    byte[] content;
+    try (InputStream in = resource.getInputStream()) {
+      content = StreamUtils.copyToByteArray(in);
+    }
+    if (content.length > maxFileSize) {
+      return resource;
+    }
+    String hash = hash(content);
+    Body body = new Body(hash, content);
+    Body present = bodies.putIfAbsent(hash, body);
+    if (present != null) {
+      bodies.recordHit();
+      body = present;
+    } else {
+      bodies.recordMiss();
+    }
+    String key = ScsCache.key(resource);
+    ScsMemoryResource cached = new ScsMemoryResource(body.content, resource, lastModified);
+    body.resources.put(key, new Entry(cached));
+    String replaced = cache.put(key, hash);
+    if (replaced != null && !replaced.equals(hash)) {
+      release(key, replaced);
+    }
+    log.debug("Cached content of {}", resource);
+    return cached;
+  }
+
+  /**
+   * Removes the key from the body of the given hash. The body is released, if no key is left.
+   *
+   * @param key the key of the file
+   * @param hash the hash of the content
+   */
+  private void release(String key, String hash) {
+    Body body = bodies.peek(hash);
+    if (body != null) {
+      body.resources.remove(key);
+      if (body.resources.isEmpty()) {
+        bodies.remove(hash, body);
+      }
+    }
+  }
+
+  /**
+   * Gets the url safe base64 encoded SHA-256 hash of the content.
+   *
+   * @param content the content
+   * @return the hash
+   */
+  static String hash(byte[] content) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available.", e);
+    }
+  }
+
+  /**
+   * Removes the cached files, whose key is within the given prefix.
+   *
+   * @param keyPrefix the key prefix (see {@link ScsCache#key(Resource)})
+   * @return the number of removed files
+   */
+  public int invalidate(@NotNull String keyPrefix) {
+    int removed = cache.removeIf(key -> ScsCache.isWithin(key, keyPrefix));
+    Set<String> unused = new HashSet<>();
+    for (Body body : bodies.values()) {
+      body.resources.keySet().removeIf(key -> ScsCache.isWithin(key, keyPrefix));
+      if (body.resources.isEmpty()) {
+        unused.add(body.hash);
+      }
+    }
+    bodies.removeIf(unused::contains);
+    return removed;
+  }
+
+  /**
+   * The body of one or more files with the same content. It holds the cached resource of every
+   * file, so that a body and its resources are evicted together.
+   */
+  private static class Body {
+
+    private final String hash;
+
+    private final byte[] content;
+
+    private final Map<String, Entry> resources = new ConcurrentHashMap<>();
+
+    private Body(String hash, byte[] content) {
+      this.hash = hash;
+      this.content = content;
+    }
+  }
+
+  /**
+   * The cached resource of a file and the time of its last validation.
+   */
+  private static class Entry {
+
+    private final ScsMemoryResource resource;
+
+    private volatile long validated = System.nanoTime();
+
+    private Entry(ScsMemoryResource resource) {
+      this.resource = resource;
+    }
+  }
+
+}
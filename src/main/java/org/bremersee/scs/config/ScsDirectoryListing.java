@@ -0,0 +1,397 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.bremersee.scs.config.ScsResourceLookupFunction.DIRECTORY_PATH_ATTRIBUTE;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.util.HtmlUtils;
+import org.springframework.web.util.UriUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The directory listing. It lists a directory without index file page by page as html or json.
+ * The entries are streamed from the directory stream, so that a whole directory is never held in
+ * memory. A rendered page is cached until the last modification time of the directory or the
+ * size or the last modification time of one of its entries changes.
+ *
+ * <p>The entries are listed in the order of the file system. Pages are stable as long as the
+ * directory is not modified. Hidden entries (whose name starts with a dot) and hidden
+ * directories are not listed, unless {@code show-hidden} is enabled.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsDirectoryListing {
+
+  /**
+   * The name of the page query parameter.
+   */
+  static final String PAGE_PARAMETER = "page";
+
+  /**
+   * The name of the format query parameter (value {@code json} or {@code html}).
+   */
+  static final String FORMAT_PARAMETER = "format";
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private static final MediaType TEXT_HTML_UTF8 = new MediaType(MediaType.TEXT_HTML,
+      StandardCharsets.UTF_8);
+
+  private final ScsProperties.DirectoryListing properties;
+
+  private final ScsCache<String, Page> cache;
+
+  /**
+   * Instantiates a new directory listing.
+   *
+   * @param properties the properties
+   */
+  public ScsDirectoryListing(@NotNull ScsProperties.DirectoryListing properties) {
+    this.properties = properties;
+    this.cache = new ScsCache<>(
+        "directory-listing",
+        properties.getCacheSize(),
+        properties.getMaxCacheSize().toBytes(),
+        page -> page.content.length);
+  }
+
+  /**
+   * Gets the cache of the rendered pages.
+   *
+   * @return the cache
+   */
+  public ScsCache<?, ?> getCache() {
+    return cache;
+  }
+
+  /**
+   * Removes the cached pages, whose key is within the given prefix.
+   *
+   * @param keyPrefix the key prefix (see {@link ScsCache#key(Resource)})
+   * @return the number of removed pages
+   */
+  public int invalidate(@NotNull String keyPrefix) {
+    return cache.removeIf(key -> ScsCache.isWithin(key, keyPrefix));
+  }
+
+  /**
+   * Routes the request to the directory listing, if the lookup function has found a directory
+   * without index file.
+   *
+   * @param request the request
+   * @param location the content location
+   * @return the handler function or empty
+   */
+  public Mono<HandlerFunction<ServerResponse>> route(
+      @NotNull ServerRequest request,
+      @NotNull Resource location) {
+
+    Object directory = request.attributes().get(DIRECTORY_PATH_ATTRIBUTE);
+    if (!properties.isEnabled() || !(directory instanceof String) || !location.isFile()
+        || (!properties.isShowHidden() && isHidden((String) directory))) {
+      return Mono.empty();
+    }
+    try {
+      Path root = location.getFile().toPath().toAbsolutePath().normalize();
+      Path dir = root.resolve((String) directory).normalize();
+      if (!dir.startsWith(root)) {
+        return Mono.empty();
+      }
+      return Mono.just(req -> list(req, dir));
+    } catch (IOException e) {
+      log.warn("Content location {} is not a directory of the file system.", location);
+      return Mono.empty();
+    }
+  }
+
+  private Mono<ServerResponse> list(ServerRequest request, Path dir) {
+    int page = request.queryParam(PAGE_PARAMETER)
+        .map(value -> {
+          try {
+            return Math.max(0, Integer.parseInt(value));
+          } catch (NumberFormatException e) {
+            return 0;
+          }
+        })
+        .orElse(0);
+    boolean json = request.queryParam(FORMAT_PARAMETER)
+        .map("json"::equalsIgnoreCase)
+        .orElseGet(() -> acceptsJson(request));
+    String path = request.path();
+    String base = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    String key = ScsCache.key(new FileSystemResource(dir)) + "|" + page + "|"
+        + (json ? "json" : "html");
+    MediaType contentType = json ? MediaType.APPLICATION_JSON : TEXT_HTML_UTF8;
+
+    return Mono.fromCallable(() -> Files.getLastModifiedTime(dir).toMillis())
+        .subscribeOn(ScsBlockingIo.scheduler())
+        .flatMap(lastModified -> {
+          // still on the blocking scheduler, the entries of a cached page are checked here
+          Page cached = cache.get(key);
+          if (cached != null && cached.lastModified == lastModified && cached.isCurrent()) {
+            log.debug("Returning cached listing of {}", key);
+            return ServerResponse.ok()
+                .contentType(contentType)
+                .bodyValue(cached.content);
+          }
+          Flux<byte[]> content = Flux.defer(() -> {
+            Collector collector = new Collector(properties.getMaxCachedPageSize().toBytes());
+            return render(dir, base, page, json, collector)
+                .map(fragment -> fragment.getBytes(StandardCharsets.UTF_8))
+                .doOnNext(collector::add)
+                .doOnComplete(() -> collector.page(lastModified)
+                    .ifPresent(rendered -> cache.put(key, rendered)));
+          });
+          BodyInserter<Flux<byte[]>, ReactiveHttpOutputMessage> inserter
+              = (message, context) -> message.writeWith(content
+              .map(bytes -> message.bufferFactory().wrap(bytes)));
+          return ServerResponse.ok()
+              .contentType(contentType)
+              .body(inserter);
+        })
+        .onErrorResume(IOException.class, e -> {
+          log.debug("Listing directory {} failed.", dir, e);
+          return ServerResponse.notFound().build();
+        });
+  }
+
+  private static boolean acceptsJson(ServerRequest request) {
+    try {
+      return request.headers().accept().stream()
+          .anyMatch(MediaType.APPLICATION_JSON::equalsTypeAndSubtype);
+    } catch (InvalidMediaTypeException e) {
+      log.debug("Accept header of listing request is invalid, listing as html.", e);
+      return false;
+    }
+  }
+
+  private static boolean isHidden(String path) {
+    return path.startsWith(".") || path.contains("/.");
+  }
+
+  private Flux<String> render(
+      Path dir,
+      String base,
+      int page,
+      boolean json,
+      Collector collector) {
+    int size = Math.max(1, properties.getPageSize());
+    AtomicBoolean hasNext = new AtomicBoolean(false);
+    AtomicBoolean hasEntries = new AtomicBoolean(false);
+    String next = base + "?" + PAGE_PARAMETER + "=" + (page + 1)
+        + (json ? "&" + FORMAT_PARAMETER + "=json" : "");
+    Flux<String> entries = Flux
+        .using(
+            () -> Files.newDirectoryStream(dir),
+            stream -> Flux.fromIterable(stream),
+            ScsDirectoryListing::close)
+        .filter(entry -> properties.isShowHidden()
+            || !entry.getFileName().toString().startsWith("."))
+        .skip((long) page * size)
+        .take(size + 1L)
+        .index()
+        .map(tuple -> {
+          if (tuple.getT1() >= size) {
+            hasNext.set(true);
+            return "";
+          }
+          Path entry = tuple.getT2();
+          BasicFileAttributes attributes = readAttributes(entry);
+          collector.entry(entry, attributes);
+          if (attributes == null) {
+            return "";
+          }
+          String fragment = json
+              ? jsonEntry(entry, attributes)
+              : htmlEntry(entry, attributes, base);
+          if (json && !fragment.isEmpty() && hasEntries.getAndSet(true)) {
+            return "," + fragment;
+          }
+          return fragment;
+        })
+        .filter(fragment -> !fragment.isEmpty());
+    Mono<String> header = Mono.fromSupplier(() -> json
+        ? "{\"path\":" + toJson(base.isEmpty() ? "/" : base) + ",\"page\":" + page
+        + ",\"entries\":["
+        : "<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n<title>Index of "
+            + HtmlUtils.htmlEscape(base.isEmpty() ? "/" : base) + "</title>\n</head>\n<body>\n"
+            + "<h1>Index of " + HtmlUtils.htmlEscape(base.isEmpty() ? "/" : base) + "</h1>\n"
+            + "<ul>\n");
+    Mono<String> footer = Mono.fromSupplier(() -> json
+        ? "],\"next\":" + (hasNext.get() ? toJson(next) : "null") + "}"
+        : "</ul>\n"
+            + (hasNext.get()
+            ? "<p><a href=\"" + HtmlUtils.htmlEscape(next) + "\">Next page</a></p>\n"
+            : "")
+            + "</body>\n</html>\n");
+    return Flux.concat(header, entries, footer)
+        .subscribeOn(ScsBlockingIo.scheduler());
+  }
+
+  private static String htmlEntry(Path entry, BasicFileAttributes attributes, String base) {
+    String name = entry.getFileName().toString();
+    String suffix = attributes.isDirectory() ? "/" : "";
+    return "<li><a href=\""
+        + HtmlUtils.htmlEscape(base + "/" + UriUtils.encodePathSegment(name,
+        StandardCharsets.UTF_8) + suffix)
+        + "\">" + HtmlUtils.htmlEscape(name) + suffix + "</a> "
+        + (attributes.isDirectory() ? "-" : String.valueOf(attributes.size())) + " "
+        + attributes.lastModifiedTime().toInstant() + "</li>\n";
+  }
+
+  private static String jsonEntry(Path entry, BasicFileAttributes attributes) {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("name", entry.getFileName().toString());
+    map.put("directory", attributes.isDirectory());
+    map.put("size", attributes.isDirectory() ? null : attributes.size());
+    map.put("lastModified", attributes.lastModifiedTime().toInstant().toString());
+    return toJson(map);
+  }
+
+  private static BasicFileAttributes readAttributes(Path entry) {
+    try {
+      return Files.readAttributes(entry, BasicFileAttributes.class);
+    } catch (IOException e) {
+      log.debug("Reading attributes of {} failed.", entry, e);
+      return null;
+    }
+  }
+
+  /**
+   * Adds the size and the last modification time of an entry to the stamp of a page.
+   */
+  private static long stamp(long stamp, BasicFileAttributes attributes) {
+    long size = attributes != null ? attributes.size() : -1L;
+    long lastModified = attributes != null ? attributes.lastModifiedTime().toMillis() : -1L;
+    return 31L * (31L * stamp + size) + lastModified;
+  }
+
+  private static String toJson(Object value) {
+    try {
+      return OBJECT_MAPPER.writeValueAsString(value);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Creating json failed.", e);
+    }
+  }
+
+  private static void close(DirectoryStream<Path> stream) {
+    try {
+      stream.close();
+    } catch (IOException e) {
+      log.debug("Closing directory stream failed.", e);
+    }
+  }
+
+  /**
+   * A rendered page. Besides the last modification time of the directory it keeps its entries
+   * and a stamp of their sizes and last modification times, because changing a file doesn't
+   * change the directory.
+   */
+  static class Page {
+
+    private final long lastModified;
+
+    private final Path[] entries;
+
+    private final long stamp;
+
+    private final byte[] content;
+
+    private Page(long lastModified, Path[] entries, long stamp, byte[] content) {
+      this.lastModified = lastModified;
+      this.entries = entries;
+      this.stamp = stamp;
+      this.content = content;
+    }
+
+    private boolean isCurrent() {
+      long current = 0L;
+      for (Path entry : entries) {
+        current = stamp(current, readAttributes(entry));
+      }
+      return current == stamp;
+    }
+  }
+
+  /**
+   * Collects the entries and the rendered fragments of a page for the cache, as long as the
+   * page is not too large.
+   */
+  private static class Collector {
+
+    private final long maxSize;
+
+    private final List<Path> entries = new ArrayList<>();
+
+    private long stamp;
+
+    private ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private Collector(long maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    private void entry(Path entry, BasicFileAttributes attributes) {
+      entries.add(entry);
+      stamp = stamp(stamp, attributes);
+    }
+
+    private void add(byte[] bytes) {
+      if (out != null) {
+        if (out.size() + bytes.length > maxSize) {
+          out = null;
+        } else {
+          out.write(bytes, 0, bytes.length);
+        }
+      }
+    }
+
+    private Optional<Page> page(long lastModified) {
+      return Optional.ofNullable(out).map(content -> new Page(lastModified,
+          entries.toArray(new Path[0]), stamp, content.toByteArray()));
+    }
+  }
+
+}
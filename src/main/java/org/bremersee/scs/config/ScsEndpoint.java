@@ -0,0 +1,237 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.http.server.PathContainer;
+import org.springframework.lang.Nullable;
+
+/**
+ * The actuator endpoint of the static content server ({@code /actuator/scs}). It shows the
+ * statistics of the caches, the state of the path filter and the most frequently accessed paths
+ * of the default content and of every virtual host. The write operations
+ * invalidate the cached content of a path prefix ({@code POST /actuator/scs/invalidate} with
+ * {@code {"prefix": "/docs"}}) or preload paths ({@code POST /actuator/scs/preload} with
+ * {@code {"paths": ["/index.html"]}}), for example before traffic is switched to the node.
+ *
+ * <p>The endpoint is secured like all other actuator endpoints.
+ *
+ * @author Christian Bremer
+ */
+@Endpoint(id = "scs")
+@Slf4j
+public class ScsEndpoint {
+
+  private static final int DEFAULT_TOP = 20;
+
+  private final ScsRouterFunction router;
+
+  private final ScsAccessStatistics accessStatistics;
+
+  /**
+   * Instantiates a new endpoint.
+   *
+   * @param router the router
+   * @param accessStatistics the access statistics
+   */
+  public ScsEndpoint(
+      @NotNull ScsRouterFunction router,
+      @NotNull ScsAccessStatistics accessStatistics) {
+    this.router = router;
+    this.accessStatistics = accessStatistics;
+  }
+
+  /**
+   * Gets the statistics.
+   *
+   * @param top the number of the most frequently accessed paths (default is 20)
+   * @return the statistics
+   */
+  @ReadOperation
+  public Map<String, Object> statistics(@Nullable Integer top) {
+    Map<String, Object> caches = new LinkedHashMap<>();
+    for (ScsCache<?, ?> cache : caches(router)) {
+      caches.put(cache.getName(), statistics(cache));
+    }
+    router.getVirtualHosts().getRouters().forEach((host, hostRouter) -> {
+      for (ScsCache<?, ?> cache : caches(hostRouter)) {
+        caches.put(host + "/" + cache.getName(), statistics(cache));
+      }
+    });
+    int n = top != null ? top : DEFAULT_TOP;
+    Map<String, Object> hosts = new LinkedHashMap<>();
+    router.getVirtualHosts().getRouters().forEach((host, hostRouter) -> {
+      Map<String, Object> hostStatistics = new LinkedHashMap<>();
+      hostStatistics.put("hotPaths", hotPaths(hostRouter.getAccessStatistics(), n));
+      hostStatistics.put("countedPaths", hostRouter.getAccessStatistics().size());
+      putPathFilter(hostStatistics, hostRouter);
+      hosts.put(host, hostStatistics);
+    });
+    Map<String, Object> statistics = new LinkedHashMap<>();
+    statistics.put("location", router.getLookupFunction().getLocation().getDescription());
+    statistics.put("resolvers", router.getResolvers().getNames());
+    statistics.put("caches", caches);
+    statistics.put("hotPaths", hotPaths(accessStatistics, n));
+    statistics.put("countedPaths", accessStatistics.size());
+    putPathFilter(statistics, router);
+    if (!hosts.isEmpty()) {
+      statistics.put("virtualHosts", hosts);
+    }
+    statistics.put("pendingBlockingIo", ScsBlockingIo.pending());
+    return statistics;
+  }
+
+  private static void putPathFilter(Map<String, Object> statistics, ScsRouterFunction router) {
+    ScsPathFilter pathFilter = router.getLookupFunction().getPathFilter();
+    if (pathFilter == null) {
+      return;
+    }
+    Map<String, Object> state = new LinkedHashMap<>();
+    if (pathFilter.isDegraded()) {
+      state.put("state", "degraded");
+      state.put("failure", pathFilter.getFailure());
+    } else {
+      state.put("state", pathFilter.isReady() ? "ready" : "building");
+    }
+    statistics.put("pathFilter", state);
+  }
+
+  private static List<Map<String, Object>> hotPaths(ScsAccessStatistics accessStatistics, int n) {
+    List<Map<String, Object>> hotPaths = new ArrayList<>();
+    accessStatistics.top(n).forEach(entry -> {
+      Map<String, Object> hotPath = new LinkedHashMap<>();
+      hotPath.put("path", entry.getKey());
+      hotPath.put("accesses", entry.getValue());
+      hotPaths.add(hotPath);
+    });
+    return hotPaths;
+  }
+
+  /**
+   * Executes the operation {@code invalidate} or {@code preload}.
+   *
+   * @param operation the operation
+   * @param prefix the path prefix to invalidate
+   * @param paths the paths to preload
+   * @param host the virtual host (default is the default content location)
+   * @return the result
+   */
+  @WriteOperation
+  public Map<String, Object> execute(
+      @Selector String operation,
+      @Nullable String prefix,
+      @Nullable List<String> paths,
+      @Nullable String host) {
+
+    ScsRouterFunction hostRouter = host != null ? router.getVirtualHosts().find(host) : router;
+    if (hostRouter == null) {
+      throw new InvalidEndpointRequestException(
+          "Unknown virtual host " + host, "Unknown virtual host");
+    }
+    if ("invalidate".equals(operation)) {
+      return invalidate(hostRouter, prefix != null ? prefix : "/");
+    }
+    if ("preload".equals(operation)) {
+      return preload(hostRouter, paths != null ? paths : Collections.emptyList());
+    }
+    throw new InvalidEndpointRequestException(
+        "Unknown operation " + operation + ", use invalidate or preload.",
+        "Unknown operation");
+  }
+
+  private static Map<String, Object> invalidate(ScsRouterFunction router, String prefix) {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("prefix", prefix);
+    String path = router.getLookupFunction().normalizePath(PathContainer.parsePath(prefix));
+    if (path == null) {
+      result.put("invalidated", 0);
+      return result;
+    }
+    String keyPrefix;
+    try {
+      keyPrefix = ScsCache.key(router.getLookupFunction().getLocation().createRelative(path));
+    } catch (IOException e) {
+      throw new InvalidEndpointRequestException("Invalid prefix " + prefix, "Invalid prefix");
+    }
+    int invalidated = router.getContentCache().invalidate(keyPrefix)
+        + router.getFingerprints().invalidate(keyPrefix)
+        + router.getDirectoryListing().invalidate(keyPrefix);
+    log.info("Invalidated {} cache entries of {}", invalidated, keyPrefix);
+    result.put("invalidated", invalidated);
+    return result;
+  }
+
+  private static Map<String, Object> preload(ScsRouterFunction router, List<String> paths) {
+    List<String> loaded = new ArrayList<>();
+    List<String> skipped = new ArrayList<>();
+    for (String value : paths) {
+      String path = router.getLookupFunction().normalizePath(PathContainer
+          .parsePath(value.startsWith("/") ? value : "/" + value));
+      try {
+        if (path != null && router.preload(path)) {
+          loaded.add(value);
+          continue;
+        }
+      } catch (IOException e) {
+        log.warn("Preloading {} failed.", value, e);
+      }
+      skipped.add(value);
+    }
+    log.info("Preloaded {} paths, skipped {} paths.", loaded.size(), skipped.size());
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("loaded", loaded);
+    result.put("skipped", skipped);
+    return result;
+  }
+
+  private static List<ScsCache<?, ?>> caches(ScsRouterFunction router) {
+    return Arrays.asList(
+        router.getContentCache().getCache(),
+        router.getContentCache().getBodies(),
+        router.getImageVariants().getCache(),
+        router.getFingerprints().getIndex(),
+        router.getFingerprints().getDocuments(),
+        router.getDirectoryListing().getCache());
+  }
+
+  private static Map<String, Object> statistics(ScsCache<?, ?> cache) {
+    long hits = cache.hits();
+    long misses = cache.misses();
+    Map<String, Object> statistics = new LinkedHashMap<>();
+    statistics.put("size", cache.size());
+    statistics.put("weight", cache.weight());
+    statistics.put("hits", hits);
+    statistics.put("misses", misses);
+    statistics.put("hitRate", hits + misses > 0L ? (double) hits / (hits + misses) : 0.);
+    statistics.put("evictions", cache.evictions());
+    return statistics;
+  }
+
+}
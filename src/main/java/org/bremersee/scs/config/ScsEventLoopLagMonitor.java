@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The event loop lag monitor. It periodically submits a probe task to every event loop of the
+ * server and measures, how long the task waits until it runs. A probe, that has not run yet,
+ * counts with its current waiting time, so a blocked event loop is detected while it is
+ * blocked. The lag is the max of all event loops.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsEventLoopLagMonitor implements AutoCloseable {
+
+  private final List<Probe> probes = new ArrayList<>();
+
+  private final Duration interval;
+
+  private Disposable task;
+
+  /**
+   * Instantiates a new event loop lag monitor.
+   *
+   * @param eventLoops the event loops
+   * @param interval the probe interval
+   */
+  public ScsEventLoopLagMonitor(
+      @NotNull EventExecutorGroup eventLoops,
+      @NotNull Duration interval) {
+    for (EventExecutor eventLoop : eventLoops) {
+      probes.add(new Probe(eventLoop));
+    }
+    this.interval = interval;
+  }
+
+  /**
+   * Starts the monitor.
+   *
+   * @return the event loop lag monitor
+   */
+  public synchronized ScsEventLoopLagMonitor start() {
+    if (task == null) {
+      long nanos = Math.max(1L, interval.toNanos());
+      log.info("Monitoring the lag of {} event loops every {}", probes.size(), interval);
+      task = Schedulers.parallel().schedulePeriodically(
+          this::probe, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+    return this;
+  }
+
+  /**
+   * Gets the current lag in nanoseconds.
+   *
+   * @return the lag in nanoseconds
+   */
+  public long lagNanos() {
+    long now = System.nanoTime();
+    long lag = 0L;
+    for (Probe probe : probes) {
+      lag = Math.max(lag, probe.lag(now));
+    }
+    return lag;
+  }
+
+  private void probe() {
+    for (Probe probe : probes) {
+      probe.submit();
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (task != null) {
+      task.dispose();
+      task = null;
+    }
+  }
+
+  /**
+   * The probe of one event loop.
+   */
+  private static class Probe implements Runnable {
+
+    private final EventExecutor eventLoop;
+
+    private final AtomicLong submitted = new AtomicLong();
+
+    private volatile long lastLag;
+
+    private Probe(EventExecutor eventLoop) {
+      this.eventLoop = eventLoop;
+    }
+
+    private void submit() {
+      if (!eventLoop.isShuttingDown() && submitted.compareAndSet(0L, System.nanoTime())) {
+        try {
+          eventLoop.execute(this);
+        } catch (RejectedExecutionException e) {
+          submitted.set(0L);
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      long time = submitted.getAndSet(0L);
+      if (time != 0L) {
+        lastLag = System.nanoTime() - time;
+      }
+    }
+
+    private long lag(long now) {
+      long time = submitted.get();
+      return time != 0L ? Math.max(lastLag, now - time) : lastLag;
+    }
+  }
+
+}
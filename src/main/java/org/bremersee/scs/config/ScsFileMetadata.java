@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import javax.validation.constraints.NotNull;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+
+/**
+ * The metadata of a file (length, last modification time and entity tag). It is read without
+ * opening the file: from memory, if the content is cached, or with one {@code stat} of the file
+ * system. The metadata is enough to answer {@code HEAD} requests and requests, whose
+ * preconditions are not fulfilled ({@code 304 Not Modified} and
+ * {@code 412 Precondition Failed}).
+ *
+ * @author Christian Bremer
+ */
+public class ScsFileMetadata {
+
+  private final long length;
+
+  private final long lastModified;
+
+  private final String eTag;
+
+  /**
+   * Instantiates new file metadata.
+   *
+   * @param length the length in bytes
+   * @param lastModified the last modification time in milliseconds
+   */
+  public ScsFileMetadata(long length, long lastModified) {
+    this(length, lastModified,
+        "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"");
+  }
+
+  /**
+   * Instantiates new file metadata with the given entity tag.
+   *
+   * @param length the length in bytes
+   * @param lastModified the last modification time in milliseconds
+   * @param eTag the (strong and quoted) entity tag
+   */
+  public ScsFileMetadata(long length, long lastModified, @NotNull String eTag) {
+    this.length = length;
+    this.lastModified = lastModified;
+    this.eTag = eTag;
+  }
+
+  /**
+   * Reads the metadata of the given resource without opening it.
+   *
+   * @param resource the resource
+   * @return the metadata
+   * @throws IOException if the metadata can't be read
+   */
+  public static ScsFileMetadata of(@NotNull Resource resource) throws IOException {
+    if (resource instanceof ScsPackResource) {
+      return ((ScsPackResource) resource).getMetadata();
+    }
+    if (resource instanceof ScsMemoryResource
+        && ((ScsMemoryResource) resource).getETag() != null) {
+      return new ScsFileMetadata(resource.contentLength(), resource.lastModified(),
+          ((ScsMemoryResource) resource).getETag());
+    }
+    if (resource instanceof ByteArrayResource) {
+      return new ScsFileMetadata(resource.contentLength(), resource.lastModified());
+    }
+    if (resource.isFile()) {
+      BasicFileAttributes attributes = Files
+          .readAttributes(resource.getFile().toPath(), BasicFileAttributes.class);
+      return new ScsFileMetadata(attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+    return new ScsFileMetadata(resource.contentLength(), resource.lastModified());
+  }
+
+  /**
+   * Gets the length in bytes.
+   *
+   * @return the length
+   */
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * Gets the last modification time in milliseconds.
+   *
+   * @return the last modification time
+   */
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  /**
+   * Gets the (strong) entity tag, that is built of the last modification time and the length
+   * (unless it was given).
+   *
+   * @return the entity tag
+   */
+  public String getETag() {
+    return eTag;
+  }
+
+  /**
+   * Evaluates the preconditions of a request (RFC 7232, section 6).
+   *
+   * @param method the request method
+   * @param requestHeaders the request headers
+   * @return {@code 304 Not Modified}, {@code 412 Precondition Failed} or {@code null}, if the
+   *     request should be processed
+   */
+  public HttpStatus evaluatePreconditions(
+      @NotNull HttpMethod method,
+      @NotNull HttpHeaders requestHeaders) {
+    List<String> ifMatch = parse(requestHeaders::getIfMatch, Collections.emptyList());
+    if (!ifMatch.isEmpty()) {
+      if (!matches(ifMatch, false)) {
+        return HttpStatus.PRECONDITION_FAILED;
+      }
+    } else {
+      long ifUnmodifiedSince = parse(requestHeaders::getIfUnmodifiedSince, -1L);
+      if (ifUnmodifiedSince >= 0L && seconds(lastModified) > seconds(ifUnmodifiedSince)) {
+        return HttpStatus.PRECONDITION_FAILED;
+      }
+    }
+    boolean safe = method == HttpMethod.GET || method == HttpMethod.HEAD;
+    List<String> ifNoneMatch = parse(requestHeaders::getIfNoneMatch, Collections.emptyList());
+    if (!ifNoneMatch.isEmpty()) {
+      if (matches(ifNoneMatch, true)) {
+        return safe ? HttpStatus.NOT_MODIFIED : HttpStatus.PRECONDITION_FAILED;
+      }
+    } else if (safe) {
+      long ifModifiedSince = parse(requestHeaders::getIfModifiedSince, -1L);
+      if (ifModifiedSince >= 0L && seconds(lastModified) <= seconds(ifModifiedSince)) {
+        return HttpStatus.NOT_MODIFIED;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds the length, the last modification time and the entity tag to the response headers.
+   *
+   * @param responseHeaders the response headers
+   */
+  public void addTo(@NotNull HttpHeaders responseHeaders) {
+    responseHeaders.setContentLength(length);
+    addValidatorsTo(responseHeaders);
+  }
+
+  /**
+   * Adds the last modification time and the entity tag to the response headers.
+   *
+   * @param responseHeaders the response headers
+   */
+  public void addValidatorsTo(@NotNull HttpHeaders responseHeaders) {
+    responseHeaders.setETag(eTag);
+    if (lastModified > 0L) {
+      responseHeaders.setLastModified(lastModified);
+    }
+  }
+
+  private boolean matches(List<String> eTags, boolean weak) {
+    for (String value : eTags) {
+      if ("*".equals(value)) {
+        return true;
+      }
+      if (value.startsWith("W/")) {
+        if (weak && eTag.equals(value.substring(2))) {
+          return true;
+        }
+      } else if (eTag.equals(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Parses a request header; an invalid header is ignored like a missing header.
+   */
+  private static <T> T parse(Supplier<T> parser, T missing) {
+    try {
+      return parser.get();
+    } catch (IllegalArgumentException e) {
+      return missing;
+    }
+  }
+
+  private static long seconds(long millis) {
+    return millis / 1000L;
+  }
+
+}
@@ -0,0 +1,468 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.bremersee.scs.config.ScsResourceLookupFunction.RESOURCE_PATH_ATTRIBUTE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Mono;
+
+/**
+ * The fingerprints of the content. A file with one of the configured extensions is also
+ * available under a virtual url, that contains the hash of its content, for example
+ * {@code /app.3f9a1c0b.js} for {@code /app.js}. Such urls never change their content, so they
+ * are served with an immutable cache control. The references of html documents are rewritten to
+ * the virtual urls.
+ *
+ * <p>The hashes are calculated on demand and held in an index, that is validated by the last
+ * modification time and the length of the file. A rewritten html document is cached, until the
+ * document or one of the referenced files changes. Its entity tag is the hash of the rewritten
+ * content and its last modification time is the latest of the document and the referenced files,
+ * so that a client never revalidates a document with stale references.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsFingerprints {
+
+  /**
+   * The name of the request attribute, that is set, if the resource was resolved by a
+   * fingerprinted url.
+   */
+  public static final String FINGERPRINT_ATTRIBUTE = ScsFingerprints.class.getName()
+      + ".fingerprint";
+
+  private static final Pattern REFERENCE = Pattern
+      .compile("(?i)(\\s(?:src|href)\\s*=\\s*)([\"'])([^\"']*)\\2");
+
+  private final ScsProperties.Fingerprint properties;
+
+  private final Set<String> extensions;
+
+  private final Set<String> rewriteExtensions;
+
+  private final Pattern fingerprintedPath;
+
+  private final ScsCache<String, Hash> index;
+
+  private final ScsCache<String, Document> documents;
+
+  private final Map<HttpHeaders, HttpHeaders> immutableHeaders = new ConcurrentHashMap<>();
+
+  /**
+   * Instantiates new fingerprints.
+   *
+   * @param properties the properties
+   */
+  public ScsFingerprints(@NotNull ScsProperties.Fingerprint properties) {
+    this.properties = properties;
+    this.extensions = properties.getExtensions().stream()
+        .map(String::toLowerCase)
+        .collect(Collectors.toSet());
+    this.rewriteExtensions = properties.getRewriteExtensions().stream()
+        .map(String::toLowerCase)
+        .collect(Collectors.toSet());
+    int hashLength = Math.max(4, Math.min(64, properties.getHashLength()));
+    this.fingerprintedPath = Pattern
+        .compile("^(.*/)?([^/]+)\\.([0-9a-f]{" + hashLength + "})(\\.[^./]+)$");
+    this.index = new ScsCache<>("fingerprint-index", properties.getIndexSize());
+    this.documents = new ScsCache<>(
+        "fingerprint-documents",
+        properties.getRewriteCacheSize(),
+        properties.getMaxRewriteCacheSize().toBytes(),
+        document -> document.content != null ? document.content.contentLength() : 0L);
+  }
+
+  /**
+   * Specifies whether fingerprints are enabled.
+   *
+   * @return {@code true}, if they are enabled
+   */
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  /**
+   * Gets the index of the hashes.
+   *
+   * @return the index
+   */
+  public ScsCache<?, ?> getIndex() {
+    return index;
+  }
+
+  /**
+   * Gets the cache of the rewritten html documents.
+   *
+   * @return the cache
+   */
+  public ScsCache<?, ?> getDocuments() {
+    return documents;
+  }
+
+  /**
+   * Removes the hashes and rewritten documents, whose key is within the given prefix.
+   *
+   * @param keyPrefix the key prefix (see {@link ScsCache#key(Resource)})
+   * @return the number of removed entries
+   */
+  public int invalidate(@NotNull String keyPrefix) {
+    return index.removeIf(key -> ScsCache.isWithin(key, keyPrefix))
+        + documents.removeIf(key -> ScsCache.isWithin(key, keyPrefix));
+  }
+
+  /**
+   * Calculates the hash of the given file, if it is fingerprinted.
+   *
+   * @param path the path relative to the content location
+   * @param resource the resource
+   * @return {@code true}, if the hash was calculated
+   * @throws IOException if reading the file fails
+   */
+  public boolean preload(@NotNull String path, @NotNull Resource resource) throws IOException {
+    return properties.isEnabled() && fingerprint(path, resource) != null;
+  }
+
+  /**
+   * Resolves a fingerprinted url. If the hash of the url is the hash of the original file, the
+   * original file is returned and the request attributes of the resource path and the
+   * fingerprint are set.
+   *
+   * @param request the request
+   * @param lookupFunction the lookup function
+   * @return the original resource or empty
+   */
+  public Mono<Resource> resolve(
+      @NotNull ServerRequest request,
+      @NotNull ScsResourceLookupFunction lookupFunction) {
+
+    if (!properties.isEnabled()) {
+      return Mono.empty();
+    }
+    String path = lookupFunction.normalizePath(request.pathContainer());
+    if (path == null) {
+      return Mono.empty();
+    }
+    Matcher matcher = fingerprintedPath.matcher(path);
+    if (!matcher.matches()) {
+      return Mono.empty();
+    }
+    String original = (matcher.group(1) != null ? matcher.group(1) : "")
+        + matcher.group(2) + matcher.group(4);
+    String hash = matcher.group(3);
+    if (!lookupFunction.mightExist(original)) {
+      return Mono.empty();
+    }
+    return Mono
+        .fromCallable(() -> {
+          Resource resource = lookupFunction.createRelative(original);
+          if (!hash.equals(fingerprint(original, resource))) {
+            log.debug("Fingerprint {} of {} is unknown.", hash, original);
+            return null;
+          }
+          request.attributes().put(RESOURCE_PATH_ATTRIBUTE, original);
+          request.attributes().put(FINGERPRINT_ATTRIBUTE, Boolean.TRUE);
+          return resource;
+        })
+        .subscribeOn(ScsBlockingIo.scheduler());
+  }
+
+  /**
+   * Rewrites the references of a html document to fingerprinted urls. Other resources are
+   * returned unchanged.
+   *
+   * @param request the request
+   * @param resource the resource
+   * @param lookupFunction the lookup function
+   * @return the rewritten or the given resource
+   */
+  public Mono<Resource> rewrite(
+      @NotNull ServerRequest request,
+      @NotNull Resource resource,
+      @NotNull ScsResourceLookupFunction lookupFunction) {
+
+    Object path = request.attributes().get(RESOURCE_PATH_ATTRIBUTE);
+    if (!properties.isEnabled() || !(path instanceof String)
+        || !rewriteExtensions.contains(extension((String) path))) {
+      return Mono.just(resource);
+    }
+    return Mono
+        .fromCallable(() -> rewrite((String) path, resource, lookupFunction))
+        .subscribeOn(ScsBlockingIo.scheduler());
+  }
+
+  /**
+   * Gets the response headers of a fingerprinted url.
+   *
+   * @param headers the response headers of the original file
+   * @return the response headers with immutable cache control
+   */
+  public HttpHeaders immutableHeaders(@NotNull HttpHeaders headers) {
+    return immutableHeaders.computeIfAbsent(headers, h -> {
+      HttpHeaders copy = new HttpHeaders();
+      copy.putAll(h);
+      copy.setCacheControl(properties.getCacheControl());
+      return HttpHeaders.readOnlyHttpHeaders(copy);
+    });
+  }
+
+  /**
+   * Gets the fingerprinted path or reference.
+   *
+   * @param path the path or reference
+   * @param hash the hash
+   * @return the fingerprinted path or {@code null}, if the path has no extension
+   */
+  static String fingerprintedPath(String path, String hash) {
+    int slash = path.lastIndexOf('/');
+    int dot = path.lastIndexOf('.');
+    if (dot <= slash + 1) {
+      return null;
+    }
+    return path.substring(0, dot) + "." + hash + path.substring(dot);
+  }
+
+  /**
+   * Gets the fingerprint (hash) of a file.
+   *
+   * @param path the path relative to the content location
+   * @param resource the resource
+   * @return the fingerprint or {@code null}, if the file is not fingerprinted or not readable
+   * @throws IOException if reading the file fails
+   */
+  String fingerprint(String path, Resource resource) throws IOException {
+    if (!extensions.contains(extension(path)) || !resource.exists() || !resource.isReadable()) {
+      return null;
+    }
+    long lastModified = resource.lastModified();
+    long length = resource.contentLength();
+    String key = ScsCache.key(resource);
+    Hash hash = index.get(key);
+    if (hash == null || hash.lastModified != lastModified || hash.length != length) {
+      hash = new Hash(lastModified, length, hash(resource));
+      index.put(key, hash);
+    }
+    return hash.value;
+  }
+
+  private String hash(Resource resource) throws IOException {
+    MessageDigest digest = digest();
+    byte[] buffer = new byte[8192];
+    try (InputStream in = resource.getInputStream()) {
+      int read;
+      while ((read = in.read(buffer)) >= 0) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    int hashLength = Math.max(4, Math.min(64, properties.getHashLength()));
+    return hex(digest.digest()).substring(0, hashLength);
+  }
+
+  private static MessageDigest digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available.", e);
+    }
+  }
+
+  private static String hex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+
+  private Resource rewrite(
+      String path,
+      Resource resource,
+      ScsResourceLookupFunction lookupFunction) throws IOException {
+
+    long length = resource.contentLength();
+    if (length > properties.getMaxRewriteSize().toBytes()) {
+      return resource;
+    }
+    long lastModified = resource.lastModified();
+    String key = ScsCache.key(resource);
+    Document document = documents.get(key);
+    if (document != null && document.lastModified == lastModified
+        && isValid(document, lookupFunction)) {
+      return document.content != null ? document.content : resource;
+    }
+
+    // ISO-8859-1 maps every byte to one char and back, so the charset of the document is kept
+    String html;
+    try (InputStream in = resource.getInputStream()) {
+      html = StreamUtils.copyToString(in, StandardCharsets.ISO_8859_1);
+    }
+    Map<String, String> references = new LinkedHashMap<>();
+    long[] latest = {lastModified};
+    Matcher matcher = REFERENCE.matcher(html);
+    StringBuffer sb = new StringBuffer(html.length() + 256);
+    while (matcher.find()) {
+      String reference = matcher.group(3);
+      String replacement = fingerprintReference(
+          path, reference, lookupFunction, references, latest);
+      matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement != null
+          ? matcher.group(1) + matcher.group(2) + replacement + matcher.group(2)
+          : matcher.group()));
+    }
+    matcher.appendTail(sb);
+    ScsMemoryResource content = null;
+    if (!references.isEmpty()) {
+      // the references change the content, but neither the length nor the document's time
+      byte[] bytes = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+      String eTag = "\"" + hex(digest().digest(bytes)).substring(0, 32) + "\"";
+      content = new ScsMemoryResource(bytes, resource, latest[0], eTag);
+    }
+    documents.put(key, new Document(lastModified, content, references));
+    log.debug("Rewrote {} references of {}", references.size(), path);
+    return content != null ? content : resource;
+  }
+
+  private String fingerprintReference(
+      String documentPath,
+      String reference,
+      ScsResourceLookupFunction lookupFunction,
+      Map<String, String> references,
+      long[] latest) throws IOException {
+
+    int end = reference.length();
+    for (int i = 0; i < reference.length(); i++) {
+      char c = reference.charAt(i);
+      if (c == '?' || c == '#') {
+        end = i;
+        break;
+      }
+      if (c <= ' ' || c > '~' || c == ':' || c == '%' || c == '\\') {
+        return null;
+      }
+    }
+    String url = reference.substring(0, end);
+    String target = targetPath(documentPath, url, lookupFunction);
+    if (target == null) {
+      return null;
+    }
+    Resource targetResource = lookupFunction.createRelative(target);
+    String hash = fingerprint(target, targetResource);
+    String fingerprinted = hash != null ? fingerprintedPath(url, hash) : null;
+    if (fingerprinted == null) {
+      return null;
+    }
+    references.put(target, hash);
+    latest[0] = Math.max(latest[0], targetResource.lastModified());
+    return fingerprinted + reference.substring(end);
+  }
+
+  private static String targetPath(
+      String documentPath,
+      String url,
+      ScsResourceLookupFunction lookupFunction) {
+
+    if (url.isEmpty() || url.startsWith("//")) {
+      return null;
+    }
+    if (url.startsWith("/")) {
+      return lookupFunction.normalizePath(PathContainer.parsePath(url));
+    }
+    int slash = documentPath.lastIndexOf('/');
+    String path = StringUtils.cleanPath(documentPath.substring(0, slash + 1) + url);
+    return path.isEmpty() || path.startsWith("/") || path.startsWith("../") || "..".equals(path)
+        ? null
+        : path;
+  }
+
+  private boolean isValid(
+      Document document,
+      ScsResourceLookupFunction lookupFunction) throws IOException {
+
+    for (Map.Entry<String, String> reference : document.references.entrySet()) {
+      String target = reference.getKey();
+      if (!reference.getValue().equals(
+          fingerprint(target, lookupFunction.createRelative(target)))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String extension(String path) {
+    int slash = path.lastIndexOf('/');
+    int dot = path.lastIndexOf('.');
+    return dot > slash ? path.substring(dot + 1).toLowerCase() : "";
+  }
+
+  /**
+   * The hash of a file.
+   */
+  private static class Hash {
+
+    private final long lastModified;
+
+    private final long length;
+
+    private final String value;
+
+    private Hash(long lastModified, long length, String value) {
+      this.lastModified = lastModified;
+      this.length = length;
+      this.value = value;
+    }
+  }
+
+  /**
+   * A html document with its fingerprinted references.
+   */
+  private static class Document {
+
+    private final long lastModified;
+
+    private final ScsMemoryResource content;
+
+    private final Map<String, String> references;
+
+    private Document(
+        long lastModified,
+        ScsMemoryResource content,
+        Map<String, String> references) {
+      this.lastModified = lastModified;
+      this.content = content;
+      this.references = references;
+    }
+  }
+
+}
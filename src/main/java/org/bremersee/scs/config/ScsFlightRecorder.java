@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.core.io.Resource;
+
+/**
+ * The java flight recorder events of the static content server. There is one event per stage of
+ * a request: pattern matching, path normalization, index resolution, file system probing and
+ * body writing. Every event contains the path category (the file extension) and the resolved
+ * size in bytes; the duration is recorded by the flight recorder.
+ *
+ * <p>The events are off by default ({@code bremersee.scs.flight-recorder-events=false}); then no
+ * event is created at all. If they are switched on, they are only created while a recording of
+ * them is running, e. g. {@code jcmd <pid> JFR.start}.
+ *
+ * @author Christian Bremer
+ */
+public final class ScsFlightRecorder {
+
+  private static final ClassValue<EventType> EVENT_TYPES = new ClassValue<EventType>() {
+    @Override
+    protected EventType computeValue(Class<?> type) {
+      return EventType.getEventType(type.asSubclass(Event.class));
+    }
+  };
+
+  private static volatile boolean enabled = false;
+
+  private ScsFlightRecorder() {
+  }
+
+  /**
+   * Determines whether the events are enabled.
+   *
+   * @return {@code true} if the events are enabled, otherwise {@code false}
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Enables or disables the events.
+   *
+   * @param enabled {@code true} to enable the events
+   */
+  public static void setEnabled(boolean enabled) {
+    ScsFlightRecorder.enabled = enabled;
+  }
+
+  /**
+   * Creates and begins an event. No event is created, if it isn't recorded.
+   *
+   * @param <E> the event type
+   * @param type the event class
+   * @param factory the event factory
+   * @return the event or {@code null}, if the events are disabled or the flight recorder does
+   *     not record the event
+   */
+  static <E extends StageEvent> E begin(Class<E> type, Supplier<E> factory) {
+    if (!enabled || !EVENT_TYPES.get(type).isEnabled()) {
+      return null;
+    }
+    E event = factory.get();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Ends and commits an event.
+   *
+   * @param event the event (may be {@code null})
+   * @param path the path
+   * @param size the size in bytes or {@code -1}, if it is unknown
+   */
+  static void commit(StageEvent event, String path, long size) {
+    if (event != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.pathCategory = pathCategory(path);
+        event.size = size;
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * Ends and commits an event with the size of the resolved resource.
+   *
+   * @param event the event (may be {@code null})
+   * @param path the path
+   * @param resource the resolved resource (may be {@code null})
+   */
+  static void commit(StageEvent event, String path, Resource resource) {
+    if (event != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.pathCategory = pathCategory(path);
+        event.size = size(resource);
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * Gets the category of a path: the lower case file extension, {@code directory} or
+   * {@code none}.
+   *
+   * @param path the path
+   * @return the path category
+   */
+  static String pathCategory(String path) {
+    if (path == null) {
+      return "none";
+    }
+    if (path.isEmpty() || path.endsWith("/")) {
+      return "directory";
+    }
+    int index = path.lastIndexOf('.');
+    if (index <= path.lastIndexOf('/') || index == path.length() - 1) {
+      return "none";
+    }
+    return path.substring(index + 1).toLowerCase();
+  }
+
+  private static long size(Resource resource) {
+    if (resource == null || !resource.isReadable()) {
+      return -1L;
+    }
+    try {
+      return resource.contentLength();
+    } catch (IOException e) {
+      return -1L;
+    }
+  }
+
+  /**
+   * The base class of the events.
+   */
+  @Category({"Static Content Server", "Request"})
+  @StackTrace(false)
+  public abstract static class StageEvent extends Event {
+
+    @Label("Path Category")
+    @Description("The file extension of the path")
+    String pathCategory;
+
+    @Label("Size")
+    @Description("The size of the resolved content or -1")
+    @DataAmount
+    long size;
+  }
+
+  /**
+   * Matching the request path against the pattern.
+   */
+  @Name("org.bremersee.scs.PatternMatch")
+  @Label("Pattern Match")
+  public static class PatternMatchEvent extends StageEvent {
+  }
+
+  /**
+   * Decoding and normalizing the request path.
+   */
+  @Name("org.bremersee.scs.PathNormalization")
+  @Label("Path Normalization")
+  public static class PathNormalizationEvent extends StageEvent {
+  }
+
+  /**
+   * Resolving the index file of a directory.
+   */
+  @Name("org.bremersee.scs.IndexResolution")
+  @Label("Index Resolution")
+  public static class IndexResolutionEvent extends StageEvent {
+  }
+
+  /**
+   * Probing the file system (exists and readable).
+   */
+  @Name("org.bremersee.scs.FileProbe")
+  @Label("File Probe")
+  public static class FileProbeEvent extends StageEvent {
+  }
+
+  /**
+   * Writing the body of the response.
+   */
+  @Name("org.bremersee.scs.BodyWrite")
+  @Label("Body Write")
+  public static class BodyWriteEvent extends StageEvent {
+  }
+
+}
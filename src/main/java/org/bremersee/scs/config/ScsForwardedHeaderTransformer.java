@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.adapter.ForwardedHeaderTransformer;
+
+/**
+ * The forwarded header transformer of the {@code framework} forward headers strategy. In addition
+ * to the transformer of spring, it resolves the remote address of the client from the
+ * {@code Forwarded} or {@code X-Forwarded-For} header, so that the client can be identified (for
+ * example by the {@link ScsRateLimiter}).
+ *
+ * <p>Every proxy appends the address of its client to the header, but the client can send any
+ * entries itself. So the client address is the entry, that was appended by the first trusted
+ * proxy: with {@code n} trusted proxies it is the {@code n}-th entry from the right. The entries
+ * left of it are ignored.
+ *
+ * @author Christian Bremer
+ */
+public class ScsForwardedHeaderTransformer extends ForwardedHeaderTransformer {
+
+  private final int trustedProxies;
+
+  /**
+   * Instantiates a new forwarded header transformer.
+   *
+   * @param trustedProxies the number of trusted proxies in front of the server; if it is zero,
+   *     the forwarded headers are not used to identify the client
+   */
+  public ScsForwardedHeaderTransformer(int trustedProxies) {
+    this.trustedProxies = trustedProxies;
+  }
+
+  @Override
+  public ServerHttpRequest apply(ServerHttpRequest request) {
+    InetSocketAddress remoteAddress = isRemoveOnly()
+        ? null
+        : findClientAddress(request, trustedProxies);
+    ServerHttpRequest transformed = super.apply(request);
+    if (remoteAddress == null) {
+      return transformed;
+    }
+    return new ServerHttpRequestDecorator(transformed) {
+      @Override
+      public InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+      }
+    };
+  }
+
+  /**
+   * Finds the client address of the forwarded headers.
+   *
+   * @param request the request
+   * @param trustedProxies the number of trusted proxies in front of the server
+   * @return the client address or {@code null}
+   */
+  static InetSocketAddress findClientAddress(ServerHttpRequest request, int trustedProxies) {
+    if (trustedProxies <= 0) {
+      return null;
+    }
+    HttpHeaders headers = request.getHeaders();
+    String host = null;
+    String forwarded = trustedEntry(headers.getOrEmpty("Forwarded"), trustedProxies);
+    if (forwarded != null) {
+      for (String pair : forwarded.split(";")) {
+        String[] keyValue = pair.trim().split("=", 2);
+        if (keyValue.length == 2 && "for".equalsIgnoreCase(keyValue[0].trim())) {
+          host = keyValue[1].trim();
+        }
+      }
+    } else {
+      host = trustedEntry(headers.getOrEmpty("X-Forwarded-For"), trustedProxies);
+    }
+    host = stripPort(host);
+    return StringUtils.hasText(host) ? InetSocketAddress.createUnresolved(host, 0) : null;
+  }
+
+  private static String trustedEntry(List<String> values, int trustedProxies) {
+    String[] entries = StringUtils.tokenizeToStringArray(
+        String.join(",", values), ",", true, true);
+    if (entries.length == 0) {
+      return null;
+    }
+    // if there are fewer entries than trusted proxies, all of them were added by proxies
+    return entries[Math.max(0, entries.length - trustedProxies)];
+  }
+
+  private static String stripPort(String host) {
+    if (host == null) {
+      return null;
+    }
+    String value = host.startsWith("\"") && host.endsWith("\"") && host.length() > 1
+        ? host.substring(1, host.length() - 1)
+        : host;
+    if (value.startsWith("[")) {
+      int end = value.indexOf(']');
+      return end > 0 ? value.substring(1, end) : null;
+    }
+    int colon = value.indexOf(':');
+    if (colon >= 0 && colon == value.lastIndexOf(':')) {
+      return value.substring(0, colon);
+    }
+    return value;
+  }
+
+}
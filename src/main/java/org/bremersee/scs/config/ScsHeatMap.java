@@ -0,0 +1,243 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The heat map of the static content. It periodically persists the most frequently accessed
+ * paths of the {@link ScsAccessStatistics} with their number of accesses to a file. When the
+ * application is started, the persisted paths are loaded into the caches in the background, the
+ * hottest first, until the content cache starts to evict files.
+ *
+ * <p>The restored numbers of accesses are halved, so that paths, that are not accessed anymore,
+ * cool down over several restarts. Paths of the file, that are not normalized (for example with
+ * {@code ..} segments), are ignored.
+ *
+ * <p>If the readiness is held, the {@link ScsWarmUpReadinessIndicator} reports
+ * {@code REFUSING_TRAFFIC} until the warm-up is finished.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsHeatMap implements AutoCloseable {
+
+  private static final String HEADER = "# scs heat map: accesses path";
+
+  private final ScsProperties.HeatMap properties;
+
+  private final ScsAccessStatistics accessStatistics;
+
+  private final ScsRouterFunction router;
+
+  private final Path file;
+
+  private volatile boolean warm;
+
+  private Disposable persistTask;
+
+  private Disposable warmUpTask;
+
+  /**
+   * Instantiates a new heat map.
+   *
+   * @param properties the properties
+   * @param accessStatistics the access statistics
+   * @param router the router
+   */
+  public ScsHeatMap(
+      @NotNull ScsProperties.HeatMap properties,
+      @NotNull ScsAccessStatistics accessStatistics,
+      @NotNull ScsRouterFunction router) {
+    this.properties = properties;
+    this.accessStatistics = accessStatistics;
+    this.router = router;
+    this.file = Paths.get(properties.getFile());
+  }
+
+  /**
+   * Starts the warm-up and the periodic persisting of the heat map.
+   */
+  @EventListener(ApplicationStartedEvent.class)
+  public synchronized void start() {
+    if (persistTask != null) {
+      return;
+    }
+    long nanos = Math.max(1L, properties.getPersistInterval().toNanos());
+    persistTask = Schedulers.boundedElastic().schedulePeriodically(
+        this::persistQuietly, nanos, nanos, TimeUnit.NANOSECONDS);
+    long start = System.nanoTime();
+    warmUpTask = warmUp()
+        .timeout(properties.getWarmUpTimeout(), Mono.just(-1))
+        .doFinally(signal -> warm = true)
+        .subscribe(
+            loaded -> log.info("Warm-up finished: loaded = {}, duration = {} ms", loaded,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)),
+            e -> log.warn("Warm-up failed.", e));
+  }
+
+  /**
+   * Determines whether the warm-up is finished (or timed out or failed).
+   *
+   * @return {@code true} if the warm-up is finished, otherwise {@code false}
+   */
+  public boolean isWarm() {
+    return warm;
+  }
+
+  /**
+   * Restores the access statistics from the heat map file and loads the paths into the caches.
+   *
+   * @return the number of loaded paths
+   */
+  Mono<Integer> warmUp() {
+    ScsResourceLookupFunction lookupFunction = router.getLookupFunction();
+    return Mono.fromCallable(this::read)
+        .subscribeOn(ScsBlockingIo.scheduler())
+        .map(entries -> normalized(lookupFunction, entries))
+        .flatMapMany(entries -> {
+          entries.forEach(entry -> accessStatistics.add(entry.getKey(), entry.getValue() / 2L));
+          long evictions = router.getContentCache().evictions();
+          return Flux.fromIterable(entries)
+              .concatMap(entry -> Mono.fromCallable(() -> router.preload(entry.getKey()))
+                  .subscribeOn(ScsBlockingIo.scheduler())
+                  .onErrorResume(IOException.class, e -> {
+                    log.debug("Warming up {} failed.", entry.getKey(), e);
+                    return Mono.just(false);
+                  }))
+              .takeWhile(loaded -> router.getContentCache().evictions() == evictions);
+        })
+        .reduce(0, (count, loaded) -> loaded ? count + 1 : count);
+  }
+
+  private static List<Map.Entry<String, Long>> normalized(
+      ScsResourceLookupFunction lookupFunction,
+      List<Map.Entry<String, Long>> entries) {
+    List<Map.Entry<String, Long>> normalized = new ArrayList<>(entries.size());
+    for (Map.Entry<String, Long> entry : entries) {
+      String path = entry.getKey();
+      if (path.equals(lookupFunction.normalizePath(path))) {
+        normalized.add(entry);
+      } else {
+        log.warn("Ignoring invalid path of heat map: {}", path);
+      }
+    }
+    return normalized;
+  }
+
+  /**
+   * Reads the heat map file.
+   *
+   * @return the paths with their number of accesses, the hottest first
+   * @throws IOException if reading the file fails
+   */
+  List<Map.Entry<String, Long>> read() throws IOException {
+    if (!Files.isRegularFile(file)) {
+      log.info("There is no heat map {}, skipping warm-up.", file);
+      return Collections.emptyList();
+    }
+    List<Map.Entry<String, Long>> entries = new ArrayList<>();
+    for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+      int index = line.indexOf(' ');
+      if (line.startsWith("#") || index <= 0 || index == line.length() - 1) {
+        continue;
+      }
+      try {
+        long accesses = Long.parseLong(line.substring(0, index));
+        entries.add(new SimpleImmutableEntry<>(line.substring(index + 1), accesses));
+      } catch (NumberFormatException e) {
+        log.debug("Ignoring invalid line of heat map: {}", line);
+      }
+      if (entries.size() >= properties.getMaxPaths()) {
+        break;
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Persists the heat map. The file is replaced atomically. An empty heat map is not persisted.
+   *
+   * @throws IOException if writing the file fails
+   */
+  void persist() throws IOException {
+    List<Map.Entry<String, Long>> entries = accessStatistics.top(properties.getMaxPaths());
+    if (entries.isEmpty()) {
+      return;
+    }
+    Path dir = file.toAbsolutePath().getParent();
+    Files.createDirectories(dir);
+    Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+    try {
+      try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+        writer.write(HEADER);
+        writer.newLine();
+        for (Map.Entry<String, Long> entry : entries) {
+          String path = entry.getKey();
+          if (path.indexOf('\n') < 0 && path.indexOf('\r') < 0) {
+            writer.write(entry.getValue() + " " + path);
+            writer.newLine();
+          }
+        }
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+    log.debug("Persisted heat map with {} paths to {}", entries.size(), file);
+  }
+
+  private void persistQuietly() {
+    try {
+      persist();
+    } catch (IOException | RuntimeException e) {
+      log.warn("Persisting heat map {} failed.", file, e);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (persistTask != null) {
+      persistTask.dispose();
+      persistTask = null;
+      warmUpTask.dispose();
+      persistQuietly();
+    }
+  }
+
+}
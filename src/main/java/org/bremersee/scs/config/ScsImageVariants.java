@@ -0,0 +1,497 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Mono;
+
+/**
+ * The image variants. A scaled or converted variant of an image is requested with query
+ * parameters (for example {@code /img/photo.jpg?w=640&format=png}). Only the allowed widths and
+ * formats are generated; other requests get the original image.
+ *
+ * <p>A variant is generated once on the blocking I/O scheduler and kept in memory and on disk.
+ * The key of a variant contains the last modification time of the image, so a changed image
+ * gets new variants; the old ones are evicted. The number of variants, that are rendered at the
+ * same time, is limited, because decoding needs a lot of heap; above the limit and for
+ * {@code HEAD} requests the original image is served, if the variant is not cached. Such a
+ * fallback (and the original of an image, that can't be rendered) is marked with the request
+ * attribute {@link #FALLBACK_ATTRIBUTE} and served with {@code Cache-Control: no-store}, so
+ * that no cache keeps the original under the URL of the variant.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsImageVariants {
+
+  /**
+   * The name of the request attribute, that contains the media type of the variant.
+   */
+  public static final String VARIANT_TYPE_ATTRIBUTE = ScsImageVariants.class.getName()
+      + ".variantType";
+
+  /**
+   * The name of the request attribute, that is {@code true}, if the original image is served
+   * instead of a requested variant.
+   */
+  public static final String FALLBACK_ATTRIBUTE = ScsImageVariants.class.getName()
+      + ".fallback";
+
+  private final ScsProperties.ImageVariants properties;
+
+  private final Set<Integer> widths;
+
+  private final Map<String, MediaType> formats = new LinkedHashMap<>();
+
+  private final Set<String> extensions;
+
+  private final ScsCache<String, ScsMemoryResource> cache;
+
+  private final Map<String, Mono<Resource>> pending = new ConcurrentHashMap<>();
+
+  private final Map<List<Object>, HttpHeaders> variantHeaders = new ConcurrentHashMap<>();
+
+  private final Map<HttpHeaders, HttpHeaders> fallbackHeaders = new ConcurrentHashMap<>();
+
+  private final Path directory;
+
+  private final Semaphore renders;
+
+  private long diskSize = -1L;
+
+  /**
+   * Instantiates new image variants.
+   *
+   * @param properties the properties
+   * @param contentLocation the content location; the variants on disk are kept in a sub
+   *     directory of it
+   */
+  public ScsImageVariants(
+      @NotNull ScsProperties.ImageVariants properties,
+      @NotNull String contentLocation) {
+    this.properties = properties;
+    this.widths = new HashSet<>(properties.getWidths());
+    for (String format : properties.getFormats()) {
+      Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+      if (writers.hasNext()) {
+        String[] mimeTypes = writers.next().getOriginatingProvider().getMIMETypes();
+        formats.put(format.toLowerCase(), MediaType.parseMediaType(
+            mimeTypes != null && mimeTypes.length > 0 ? mimeTypes[0] : "image/" + format));
+      } else if (properties.isEnabled()) {
+        log.warn("There is no image writer for format {}, it is not available.", format);
+      }
+    }
+    this.extensions = properties.getExtensions().stream()
+        .map(String::toLowerCase)
+        .collect(Collectors.toSet());
+    this.cache = new ScsCache<>(
+        "image-variants",
+        properties.getMaxEntries(),
+        properties.getMaxSize().toBytes(),
+        ScsMemoryResource::contentLength);
+    this.directory = Paths.get(properties.getDirectory(), ScsContentCache
+        .hash(contentLocation.getBytes(StandardCharsets.UTF_8)).substring(0, 12));
+    this.renders = new Semaphore(Math.max(0, properties.getMaxConcurrentRenders()));
+  }
+
+  /**
+   * Specifies whether image variants are enabled.
+   *
+   * @return {@code true}, if they are enabled
+   */
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  /**
+   * Gets the cache of the variants in memory.
+   *
+   * @return the cache
+   */
+  public ScsCache<?, ?> getCache() {
+    return cache;
+  }
+
+  /**
+   * Gets the requested variant of the resource. If no variant is requested or the requested
+   * variant is not allowed, the resource itself is returned.
+   *
+   * @param request the request
+   * @param resource the resource
+   * @return the variant or the given resource
+   */
+  public Mono<Resource> apply(@NotNull ServerRequest request, @NotNull Resource resource) {
+    if (!properties.isEnabled()) {
+      return Mono.just(resource);
+    }
+    MultiValueMap<String, String> params = request.queryParams();
+    String widthValue = params.getFirst(properties.getWidthParameter());
+    String formatValue = params.getFirst(properties.getFormatParameter());
+    String sourceFormat = sourceFormat(resource.getFilename());
+    if ((widthValue == null && formatValue == null) || sourceFormat == null) {
+      return Mono.just(resource);
+    }
+    int width = width(widthValue);
+    String format = formatValue != null ? formatValue.toLowerCase() : sourceFormat;
+    if (width < 0 || !formats.containsKey(format)
+        || (width == 0 && format.equals(sourceFormat))) {
+      return Mono.just(resource);
+    }
+    String key;
+    try {
+      key = ScsCache.key(resource) + "#" + resource.lastModified() + "-" + width + "." + format;
+    } catch (IOException e) {
+      log.debug("Last modification time of {} is not available.", resource, e);
+      return fallback(request, resource);
+    }
+    MediaType mediaType = formats.get(format);
+    ScsMemoryResource cached = cache.get(key);
+    if (cached != null) {
+      request.attributes().put(VARIANT_TYPE_ATTRIBUTE, mediaType);
+      return Mono.just(cached);
+    }
+    if (HttpMethod.HEAD.equals(request.method())) {
+      // the body is not sent, a variant is not rendered for it
+      return fallback(request, resource);
+    }
+    return pending
+        .computeIfAbsent(key, k -> Mono
+            .fromCallable(() -> load(resource, width, format, k))
+            .subscribeOn(ScsBlockingIo.scheduler())
+            .onErrorResume(e -> {
+              log.warn("Creating variant {} failed.", k, e);
+              return Mono.just(resource);
+            })
+            .doFinally(signal -> pending.remove(k))
+            .cache())
+        .doOnNext(variant -> {
+          if (variant instanceof ScsMemoryResource) {
+            request.attributes().put(VARIANT_TYPE_ATTRIBUTE, mediaType);
+          } else {
+            request.attributes().put(FALLBACK_ATTRIBUTE, Boolean.TRUE);
+          }
+        });
+  }
+
+  private static Mono<Resource> fallback(ServerRequest request, Resource resource) {
+    request.attributes().put(FALLBACK_ATTRIBUTE, Boolean.TRUE);
+    return Mono.just(resource);
+  }
+
+  /**
+   * Gets the response headers of a variant.
+   *
+   * @param headers the response headers of the original image
+   * @param mediaType the media type of the variant
+   * @return the response headers with the content type of the variant
+   */
+  public HttpHeaders variantHeaders(@NotNull HttpHeaders headers, @NotNull MediaType mediaType) {
+    return variantHeaders.computeIfAbsent(Arrays.asList(headers, mediaType), key -> {
+      HttpHeaders copy = new HttpHeaders();
+      copy.putAll(headers);
+      copy.setContentType(mediaType);
+      return HttpHeaders.readOnlyHttpHeaders(copy);
+    });
+  }
+
+  /**
+   * Gets the response headers of an original image, that is served instead of a variant.
+   *
+   * @param headers the response headers of the original image
+   * @return the response headers with {@code Cache-Control: no-store}
+   */
+  public HttpHeaders fallbackHeaders(@NotNull HttpHeaders headers) {
+    return fallbackHeaders.computeIfAbsent(headers, key -> {
+      HttpHeaders copy = new HttpHeaders();
+      copy.putAll(headers);
+      copy.setCacheControl(CacheControl.noStore());
+      return HttpHeaders.readOnlyHttpHeaders(copy);
+    });
+  }
+
+  private String sourceFormat(String filename) {
+    String extension = StringUtils.getFilenameExtension(filename);
+    if (extension == null || !extensions.contains(extension.toLowerCase())) {
+      return null;
+    }
+    extension = extension.toLowerCase();
+    return "jpg".equals(extension) ? "jpeg" : extension;
+  }
+
+  /**
+   * Parses the requested width.
+   *
+   * @return the width, {@code 0} if no width is requested or {@code -1}, if it is not allowed
+   */
+  private int width(String value) {
+    if (value == null) {
+      return 0;
+    }
+    try {
+      int width = Integer.parseInt(value);
+      return widths.contains(width) ? width : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private Resource load(Resource resource, int width, String format, String key)
+      throws IOException {
+    long lastModified = resource.lastModified();
+    Path file = directory.resolve(ScsContentCache
+        .hash(key.getBytes(StandardCharsets.UTF_8)) + "." + format);
+    byte[] content = read(file);
+    if (content == null) {
+      if (!renders.tryAcquire()) {
+        log.debug("Too many variants are rendered, serving the original of {}.", key);
+        return resource;
+      }
+      try {
+        content = render(resource, width, format);
+      } finally {
+        renders.release();
+      }
+      if (content == null) {
+        return resource;
+      }
+      write(file, content);
+    }
+    ScsMemoryResource variant = new ScsMemoryResource(content, resource, lastModified);
+    cache.put(key, variant);
+    return variant;
+  }
+
+  private byte[] render(Resource resource, int width, String format) throws IOException {
+    BufferedImage source;
+    try (InputStream in = resource.getInputStream();
+        ImageInputStream imageIn = new MemoryCacheImageInputStream(in)) {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(imageIn);
+      if (!readers.hasNext()) {
+        log.debug("There is no image reader for {}.", resource);
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(imageIn, true, true);
+        long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+        if (pixels > properties.getMaxSourcePixels()) {
+          log.debug("Image {} is too large ({} pixels) for variants.", resource, pixels);
+          return null;
+        }
+        source = reader.read(0);
+      } finally {
+        reader.dispose();
+      }
+    }
+    boolean opaque = "jpeg".equals(format) || !source.getColorModel().hasAlpha();
+    BufferedImage image = scale(source, width, opaque);
+    ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ImageOutputStream imageOut = new MemoryCacheImageOutputStream(out)) {
+      writer.setOutput(imageOut);
+      ImageWriteParam param = writer.getDefaultWriteParam();
+      if ("jpeg".equals(format) && param.canWriteCompressed()) {
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(Math.max(0f, Math.min(1f, properties.getJpegQuality())));
+      }
+      writer.write(null, new IIOImage(image, null, null), param);
+    } finally {
+      writer.dispose();
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Scales the image down to the given width in steps of at most one half, which keeps the
+   * quality of bilinear interpolation. An image is never scaled up.
+   */
+  static BufferedImage scale(BufferedImage source, int width, boolean opaque) {
+    int targetWidth = width > 0 && width < source.getWidth() ? width : source.getWidth();
+    int targetHeight = Math.max(1, (int) Math
+        .round((double) source.getHeight() * targetWidth / source.getWidth()));
+    int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+    BufferedImage current = source;
+    do {
+      int w = Math.max(targetWidth, current.getWidth() / 2);
+      int h = Math.max(targetHeight, current.getHeight() / 2);
+      BufferedImage next = new BufferedImage(w, h, type);
+      Graphics2D graphics = next.createGraphics();
+      try {
+        if (opaque) {
+          graphics.setColor(Color.WHITE);
+          graphics.fillRect(0, 0, w, h);
+        }
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+            RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING,
+            RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.drawImage(current, 0, 0, w, h, null);
+      } finally {
+        graphics.dispose();
+      }
+      current = next;
+    } while (current.getWidth() != targetWidth || current.getHeight() != targetHeight);
+    return current;
+  }
+
+  private byte[] read(Path file) {
+    if (properties.getMaxDiskSize().toBytes() <= 0L || !Files.isRegularFile(file)) {
+      return null;
+    }
+    try {
+      byte[] content = Files.readAllBytes(file);
+      // the modification time is the last access, the least recently used files are evicted
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      return content;
+    } catch (IOException e) {
+      log.debug("Reading variant {} failed.", file, e);
+      return null;
+    }
+  }
+
+  private synchronized void write(Path file, byte[] content) {
+    long maxDiskSize = properties.getMaxDiskSize().toBytes();
+    if (maxDiskSize <= 0L || content.length > maxDiskSize) {
+      return;
+    }
+    try {
+      if (diskSize < 0L) {
+        Files.createDirectories(directory);
+        diskSize = files().mapToLong(Entry::getSize).sum();
+      }
+      Path tmp = Files.createTempFile(directory, "variant-", ".tmp");
+      try {
+        Files.write(tmp, content);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+      diskSize += content.length;
+      if (diskSize > maxDiskSize) {
+        evict(maxDiskSize * 3L / 4L);
+      }
+    } catch (IOException e) {
+      log.warn("Writing variant {} failed.", file, e);
+    }
+  }
+
+  private void evict(long targetSize) throws IOException {
+    List<Entry> entries = files()
+        .sorted(Comparator.comparing(Entry::getLastModified))
+        .collect(Collectors.toList());
+    for (Entry entry : entries) {
+      if (diskSize <= targetSize) {
+        break;
+      }
+      if (Files.deleteIfExists(entry.file)) {
+        diskSize -= entry.size;
+      }
+    }
+  }
+
+  private Stream<Entry> files() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(file -> !file.getFileName().toString().endsWith(".tmp"))
+          .map(Entry::of)
+          .filter(Objects::nonNull)
+          .collect(Collectors.toList())
+          .stream();
+    }
+  }
+
+  /**
+   * A variant on disk.
+   */
+  private static class Entry {
+
+    private final Path file;
+
+    private final long size;
+
+    private final FileTime lastModified;
+
+    private Entry(Path file, BasicFileAttributes attributes) {
+      this.file = file;
+      this.size = attributes.size();
+      this.lastModified = attributes.lastModifiedTime();
+    }
+
+    private static Entry of(Path file) {
+      try {
+        return new Entry(file, Files.readAttributes(file, BasicFileAttributes.class));
+      } catch (IOException e) {
+        return null;
+      }
+    }
+
+    private long getSize() {
+      return size;
+    }
+
+    private FileTime getLastModified() {
+      return lastModified;
+    }
+  }
+
+}
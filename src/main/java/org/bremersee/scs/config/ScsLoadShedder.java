@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import javax.validation.constraints.NotNull;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+/**
+ * The load shedder. It is the first web filter and rejects requests with
+ * {@code 503 Service Unavailable} as long as the server is overloaded, before any other work is
+ * done for them. Overload is detected by the lag of the event loops and the number of pending
+ * blocking file I/O tasks. Low priority requests (large downloads) are rejected first, all other
+ * requests only when the critical thresholds are crossed.
+ *
+ * @author Christian Bremer
+ */
+public class ScsLoadShedder implements WebFilter, Ordered {
+
+  /**
+   * The order of the filter; it runs before the rate limiter.
+   */
+  public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 5;
+
+  private static final PathPatternParser PATTERN_PARSER = new PathPatternParser();
+
+  private final LongSupplier eventLoopLag;
+
+  private final IntSupplier pendingIo;
+
+  private final long maxLag;
+
+  private final long criticalLag;
+
+  private final int maxPendingIo;
+
+  private final int criticalPendingIo;
+
+  private final PathPattern[] lowPriorityPatterns;
+
+  private final Set<String> lowPriorityExtensions;
+
+  private final List<String> lowPriorityParameters;
+
+  private final PathPattern[] exemptPatterns;
+
+  private final Counter lowPriorityShed;
+
+  private final Counter normalPriorityShed;
+
+  /**
+   * Instantiates a new load shedder.
+   *
+   * @param properties the properties
+   * @param eventLoopLag the event loop lag in nanoseconds
+   * @param pendingIo the number of pending blocking I/O tasks
+   * @param meterRegistry the meter registry
+   */
+  public ScsLoadShedder(
+      @NotNull ScsProperties.LoadShedding properties,
+      @NotNull LongSupplier eventLoopLag,
+      @NotNull IntSupplier pendingIo,
+      @NotNull MeterRegistry meterRegistry) {
+    this.eventLoopLag = eventLoopLag;
+    this.pendingIo = pendingIo;
+    this.maxLag = properties.getMaxEventLoopLag().toNanos();
+    this.criticalLag = properties.getCriticalEventLoopLag().toNanos();
+    this.maxPendingIo = properties.getMaxPendingIo();
+    this.criticalPendingIo = properties.getCriticalPendingIo();
+    this.lowPriorityPatterns = properties.getLowPriorityPatterns().stream()
+        .map(PATTERN_PARSER::parse)
+        .toArray(PathPattern[]::new);
+    this.lowPriorityExtensions = properties.getLowPriorityExtensions().stream()
+        .map(String::toLowerCase)
+        .collect(Collectors.toSet());
+    this.lowPriorityParameters = properties.getLowPriorityParameters();
+    this.exemptPatterns = properties.getExemptPatterns().stream()
+        .map(PATTERN_PARSER::parse)
+        .toArray(PathPattern[]::new);
+    this.lowPriorityShed = Counter.builder("scs.load-shedding.rejected")
+        .description("Requests rejected by the load shedder")
+        .tag("priority", "low")
+        .register(meterRegistry);
+    this.normalPriorityShed = Counter.builder("scs.load-shedding.rejected")
+        .description("Requests rejected by the load shedder")
+        .tag("priority", "normal")
+        .register(meterRegistry);
+    Gauge.builder("scs.event-loop.lag", eventLoopLag, lag -> lag.getAsLong() / 1_000_000.)
+        .description("The max lag of the event loops")
+        .baseUnit("milliseconds")
+        .register(meterRegistry);
+    Gauge.builder("scs.blocking-io.pending", pendingIo, IntSupplier::getAsInt)
+        .description("The number of queued or running blocking file I/O tasks")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public int getOrder() {
+    return ORDER;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    long lag = eventLoopLag.getAsLong();
+    int pending = pendingIo.getAsInt();
+    if (lag < maxLag && pending < maxPendingIo) {
+      return chain.filter(exchange);
+    }
+    ServerHttpRequest request = exchange.getRequest();
+    PathContainer path = request.getPath().pathWithinApplication();
+    if (matches(exemptPatterns, path)) {
+      return chain.filter(exchange);
+    }
+    if (isLowPriority(request, path)) {
+      lowPriorityShed.increment();
+      return reject(exchange);
+    }
+    if (lag >= criticalLag || pending >= criticalPendingIo) {
+      normalPriorityShed.increment();
+      return reject(exchange);
+    }
+    return chain.filter(exchange);
+  }
+
+  private boolean isLowPriority(ServerHttpRequest request, PathContainer path) {
+    for (String parameter : lowPriorityParameters) {
+      if (request.getQueryParams().containsKey(parameter)) {
+        return true;
+      }
+    }
+    if (matches(lowPriorityPatterns, path)) {
+      return true;
+    }
+    String value = path.value();
+    int index = value.lastIndexOf('.');
+    return index > value.lastIndexOf('/')
+        && lowPriorityExtensions.contains(value.substring(index + 1).toLowerCase());
+  }
+
+  private static boolean matches(PathPattern[] patterns, PathContainer path) {
+    for (PathPattern pattern : patterns) {
+      if (pattern.matches(path)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Mono<Void> reject(ServerWebExchange exchange) {
+    ServerHttpResponse response = exchange.getResponse();
+    response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+    response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+    return response.setComplete();
+  }
+
+}
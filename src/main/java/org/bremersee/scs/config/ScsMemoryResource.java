@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import javax.validation.constraints.NotNull;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * A resource, whose content is held in memory (for example a cached file or a rewritten html
+ * document). It keeps the file name and the last modification time of the original resource.
+ * Content, that doesn't only depend on the original resource, can have its own entity tag.
+ *
+ * @author Christian Bremer
+ */
+public class ScsMemoryResource extends ByteArrayResource {
+
+  private final Resource original;
+
+  private final long lastModified;
+
+  private final String eTag;
+
+  /**
+   * Instantiates a new memory resource.
+   *
+   * @param content the content
+   * @param original the original resource
+   * @param lastModified the last modification time of the original resource
+   */
+  public ScsMemoryResource(
+      @NotNull byte[] content,
+      @NotNull Resource original,
+      long lastModified) {
+    this(content, original, lastModified, null);
+  }
+
+  /**
+   * Instantiates a new memory resource with its own entity tag.
+   *
+   * @param content the content
+   * @param original the original resource
+   * @param lastModified the last modification time of the content
+   * @param eTag the (strong and quoted) entity tag or {@code null}, if it is built of the last
+   *     modification time and the length
+   */
+  public ScsMemoryResource(
+      @NotNull byte[] content,
+      @NotNull Resource original,
+      long lastModified,
+      String eTag) {
+    super(content, original.getDescription());
+    this.original = original;
+    this.lastModified = lastModified;
+    this.eTag = eTag;
+  }
+
+  /**
+   * Gets the original resource.
+   *
+   * @return the original resource
+   */
+  public Resource getOriginal() {
+    return original;
+  }
+
+  /**
+   * Gets the entity tag.
+   *
+   * @return the entity tag or {@code null}, if it is built of the last modification time and the
+   *     length
+   */
+  public String getETag() {
+    return eTag;
+  }
+
+  @Override
+  public long lastModified() {
+    return lastModified;
+  }
+
+  @Override
+  public String getFilename() {
+    return original.getFilename();
+  }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import javax.validation.constraints.NotNull;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * A resource, whose content is a read only byte buffer: a slice of a memory mapped pack file (see
+ * {@link ScsPackStore}) or a direct buffer of a file on the classpath (see
+ * {@link ScsClasspathContent}). Its metadata is computed once. It keeps the url, the file name
+ * and the description of the original resource, so that it is cached and served like the
+ * original.
+ *
+ * @author Christian Bremer
+ */
+public class ScsPackResource extends AbstractResource {
+
+  private final ByteBuffer content;
+
+  private final Resource original;
+
+  private final long lastModified;
+
+  private final ScsFileMetadata metadata;
+
+  /**
+   * Instantiates a new pack resource.
+   *
+   * @param content the content
+   * @param original the original resource
+   * @param lastModified the last modification time of the original resource
+   */
+  public ScsPackResource(
+      @NotNull ByteBuffer content,
+      @NotNull Resource original,
+      long lastModified) {
+    this.content = content;
+    this.original = original;
+    this.lastModified = lastModified;
+    this.metadata = new ScsFileMetadata(content.remaining(), lastModified);
+  }
+
+  /**
+   * Gets the content. The returned buffer is read only and has its own position and limit.
+   *
+   * @return the content
+   */
+  public ByteBuffer getByteBuffer() {
+    return content.duplicate();
+  }
+
+  /**
+   * Gets the metadata.
+   *
+   * @return the metadata
+   */
+  public ScsFileMetadata getMetadata() {
+    return metadata;
+  }
+
+  /**
+   * Gets the original resource.
+   *
+   * @return the original resource
+   */
+  public Resource getOriginal() {
+    return original;
+  }
+
+  @Override
+  public boolean exists() {
+    return true;
+  }
+
+  @Override
+  public URL getURL() throws IOException {
+    return original.getURL();
+  }
+
+  @Override
+  public URI getURI() throws IOException {
+    return original.getURI();
+  }
+
+  @Override
+  public long contentLength() {
+    return content.remaining();
+  }
+
+  @Override
+  public long lastModified() {
+    return lastModified;
+  }
+
+  @Override
+  public Resource createRelative(String relativePath) throws IOException {
+    return original.createRelative(relativePath);
+  }
+
+  @Override
+  public String getFilename() {
+    return original.getFilename();
+  }
+
+  @Override
+  public String getDescription() {
+    return original.getDescription();
+  }
+
+  @Override
+  public InputStream getInputStream() {
+    return new ByteBufferInputStream(getByteBuffer());
+  }
+
+  /**
+   * The input stream of a byte buffer.
+   */
+  private static class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(@NotNull byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(len, buffer.remaining());
+      buffer.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public long skip(long n) {
+      int skipped = (int) Math.max(0L, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+
+}
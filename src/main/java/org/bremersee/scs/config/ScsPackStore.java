@@ -0,0 +1,526 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The pack store of a content location. Small files are copied into pack files, that are mapped
+ * into memory, and an index maps their paths to slices of the mapped pack files. Looking up a
+ * packed file is an index probe; it is served from the slice without opening the file.
+ *
+ * <p>The content location is checked periodically in the background. Only new and changed files
+ * are appended to a new pack file; when more than half of the packed bytes are outdated, all
+ * packed files are compacted into one new pack file. If the pack store listens to a
+ * {@link ScsPathFilter}, which is ready, a check only looks at the paths of the received change
+ * events; otherwise (and when events may have been lost) the whole content location is scanned.
+ *
+ * <p>A packed file is never served stale until the next check: if the pack store listens to a
+ * ready path filter, a received change event removes the path (and all paths below it) from
+ * serving at once; otherwise the length and the modification time of the packed file are
+ * compared with the file before it is served. A changed or deleted file is served from the file
+ * system until the next check has packed it again.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsPackStore implements AutoCloseable, ScsPathFilter.Listener {
+
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+  private final Path root;
+
+  private final ScsProperties.PackStore properties;
+
+  private final List<Segment> segments = new ArrayList<>();
+
+  private volatile Map<String, Entry> index = Collections.emptyMap();
+
+  private final Map<String, Long> changes = new ConcurrentHashMap<>();
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  private volatile ScsPathFilter pathFilter;
+
+  private volatile boolean rescan = true;
+
+  private volatile boolean scanning;
+
+  private volatile boolean closed;
+
+  private Path directory;
+
+  private long liveBytes;
+
+  private int segmentCount;
+
+  private Disposable task;
+
+  /**
+   * Instantiates a new pack store.
+   *
+   * @param root the content location
+   * @param properties the properties
+   */
+  public ScsPackStore(@NotNull Path root, @NotNull ScsProperties.PackStore properties) {
+    this.root = root;
+    this.properties = properties;
+  }
+
+  /**
+   * Listens to the change events of the given path filter instead of scanning the content
+   * location on every check. It must be called before the pack store is started.
+   *
+   * @param pathFilter the path filter of the content location
+   * @return the pack store
+   */
+  public ScsPackStore listenTo(@NotNull ScsPathFilter pathFilter) {
+    pathFilter.addListener(this);
+    this.pathFilter = pathFilter;
+    return this;
+  }
+
+  @Override
+  public void changed(String path) {
+    changes.put(path, sequence.incrementAndGet());
+  }
+
+  @Override
+  public void invalidated() {
+    rescan = true;
+  }
+
+  /**
+   * Starts packing and checking the content location periodically in the background.
+   *
+   * @return the pack store
+   */
+  public synchronized ScsPackStore start() {
+    if (task == null && !closed) {
+      long nanos = Math.max(1L, properties.getCheckInterval().toNanos());
+      task = Schedulers.boundedElastic().schedulePeriodically(
+          this::run, 0L, nanos, TimeUnit.NANOSECONDS);
+    }
+    return this;
+  }
+
+  /**
+   * Finds the packed content of the given path.
+   *
+   * @param path the normalized path relative to the content location
+   * @param original the original resource of the path
+   * @return the packed resource or {@code null}, if the path is not packed or the file has
+   *     changed since it was packed
+   */
+  public Resource find(@NotNull String path, @NotNull Resource original) {
+    Entry entry = index.get(path);
+    return entry != null && isCurrent(path, entry, original)
+        ? new ScsPackResource(entry.content.duplicate(), original, entry.lastModified)
+        : null;
+  }
+
+  /**
+   * Checks whether the packed file is still the current content of the path. With a ready path
+   * filter the change events are checked, otherwise the file itself.
+   */
+  private boolean isCurrent(String path, Entry entry, Resource original) {
+    ScsPathFilter filter = pathFilter;
+    if (filter != null && filter.isReady() && !rescan && !scanning) {
+      return !isChanged(path);
+    }
+    try {
+      return original.contentLength() == entry.content.remaining()
+          && original.lastModified() == entry.lastModified;
+    } catch (IOException e) {
+      // the file is deleted or not readable
+      return false;
+    }
+  }
+
+  private boolean isChanged(String path) {
+    if (changes.isEmpty()) {
+      return false;
+    }
+    for (int i = path.length(); i > 0; i = path.lastIndexOf('/', i - 1)) {
+      if (changes.containsKey(path.substring(0, i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the number of packed files.
+   *
+   * @return the number of packed files
+   */
+  public int size() {
+    return index.size();
+  }
+
+  private void run() {
+    try {
+      update();
+    } catch (IOException | RuntimeException e) {
+      log.warn("Packing files of {} failed.", root, e);
+    }
+  }
+
+  /**
+   * Checks the changed paths or scans the whole content location and packs new and changed
+   * files.
+   *
+   * @throws IOException if the scan fails
+   */
+  synchronized void update() throws IOException {
+    if (closed) {
+      return;
+    }
+    long start = System.nanoTime();
+    if (directory == null) {
+      Path parent = Paths.get(properties.getDirectory());
+      Files.createDirectories(parent);
+      directory = Files.createTempDirectory(parent, "scs-pack-");
+    }
+    Map<String, Entry> current = index;
+    Map<String, Entry> next;
+    List<Path> changed = new ArrayList<>();
+    // the handled changes are kept until the new index is published, changes received during the
+    // update are checked again by the next update
+    Map<String, Long> handled = new HashMap<>(changes);
+    ScsPathFilter filter = pathFilter;
+    try {
+      if (rescan || filter == null || !filter.isReady()) {
+        rescan = false;
+        scanning = true;
+        next = new HashMap<>(Math.max(16, current.size() * 4 / 3 + 1));
+        scan(root, current, next, changed);
+      } else if (!handled.isEmpty()) {
+        next = new HashMap<>(current);
+        for (String path : handled.keySet()) {
+          check(path, current, next, changed);
+        }
+      } else {
+        return;
+      }
+      publish(start, current, next, changed);
+      handled.forEach(changes::remove);
+    } finally {
+      scanning = false;
+    }
+  }
+
+  /**
+   * Packs the changed files and publishes the new index.
+   */
+  private void publish(
+      long start,
+      Map<String, Entry> current,
+      Map<String, Entry> next,
+      List<Path> changed) throws IOException {
+    liveBytes = next.values().stream().mapToLong(entry -> entry.content.remaining()).sum();
+    int packed = 0;
+    if (!changed.isEmpty()) {
+      try (SegmentWriter writer = new SegmentWriter()) {
+        for (Path file : changed) {
+          packed += pack(writer, file) ? 1 : 0;
+        }
+        next.putAll(writer.finish());
+      }
+    }
+    long mappedBytes = segments.stream().mapToLong(segment -> segment.size).sum();
+    if (mappedBytes - liveBytes > liveBytes && segments.size() > 1) {
+      next = compact(next);
+    }
+    boolean modified = !changed.isEmpty() || next.size() != current.size();
+    index = Collections.unmodifiableMap(next);
+    deleteUnused(next);
+    if (modified) {
+      log.info("Pack store of {} is updated: files = {} (+{}), size = {} KB, duration = {} ms",
+          root, next.size(), packed, liveBytes / 1024L, (System.nanoTime() - start) / 1_000_000L);
+    }
+  }
+
+  /**
+   * Checks a changed path. A deleted directory removes all packed files below it, a created
+   * directory is scanned.
+   */
+  private void check(
+      String path,
+      Map<String, Entry> current,
+      Map<String, Entry> next,
+      List<Path> changed) throws IOException {
+    Path file = root.resolve(path);
+    if (Files.isDirectory(file)) {
+      scan(file, current, next, changed);
+      return;
+    }
+    String prefix = path + "/";
+    next.keySet().removeIf(key -> key.startsWith(prefix));
+    if (Files.isRegularFile(file)) {
+      visit(path, file, Files.readAttributes(file, BasicFileAttributes.class), current, next,
+          changed);
+    } else {
+      next.remove(path);
+    }
+  }
+
+  private void scan(
+      Path start,
+      Map<String, Entry> current,
+      Map<String, Entry> next,
+      List<Path> changed) throws IOException {
+    Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            visit(relativize(file), file, attrs, current, next, changed);
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            // unreadable files and cycles of links are not served either
+            return FileVisitResult.CONTINUE;
+          }
+        });
+  }
+
+  private void visit(
+      String path,
+      Path file,
+      BasicFileAttributes attrs,
+      Map<String, Entry> current,
+      Map<String, Entry> next,
+      List<Path> changed) {
+    Entry entry = current.get(path);
+    if (!attrs.isRegularFile() || attrs.size() > properties.getMaxFileSize().toBytes()) {
+      next.remove(path);
+    } else if (entry != null && entry.content.remaining() == attrs.size()
+        && entry.lastModified == attrs.lastModifiedTime().toMillis()) {
+      next.put(path, entry);
+    } else {
+      next.remove(path);
+      changed.add(file);
+    }
+  }
+
+  private boolean pack(SegmentWriter writer, Path file) {
+    try {
+      long lastModified = Files.getLastModifiedTime(file).toMillis();
+      byte[] content = Files.readAllBytes(file);
+      if (content.length > properties.getMaxFileSize().toBytes()
+          || liveBytes + content.length > maxSize()
+          || Files.getLastModifiedTime(file).toMillis() != lastModified) {
+        // too large or changed while reading, it is served from the file system
+        return false;
+      }
+      writer.add(relativize(file), ByteBuffer.wrap(content), lastModified);
+      liveBytes += content.length;
+      return true;
+    } catch (IOException e) {
+      log.debug("Packing file {} failed.", file, e);
+      return false;
+    }
+  }
+
+  /**
+   * Gets the max size of all packed files; a mapped file can't be larger than 2 GB.
+   */
+  private long maxSize() {
+    return Math.min(properties.getMaxSize().toBytes(), Integer.MAX_VALUE);
+  }
+
+  private Map<String, Entry> compact(Map<String, Entry> entries) throws IOException {
+    try (SegmentWriter writer = new SegmentWriter()) {
+      for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+        writer.add(entry.getKey(), entry.getValue().content.duplicate(),
+            entry.getValue().lastModified);
+      }
+      return writer.finish();
+    }
+  }
+
+  /**
+   * Deletes the pack files, that are not referenced by the index anymore. The memory of a mapped
+   * file is released, when the last slice of it is garbage collected.
+   */
+  private void deleteUnused(Map<String, Entry> entries) {
+    Set<Segment> used = new HashSet<>();
+    for (Entry entry : entries.values()) {
+      used.add(entry.segment);
+    }
+    segments.removeIf(segment -> {
+      if (used.contains(segment)) {
+        return false;
+      }
+      delete(segment.file);
+      return true;
+    });
+  }
+
+  private String relativize(Path file) {
+    String value = root.relativize(file).toString();
+    String separator = root.getFileSystem().getSeparator();
+    return separator.equals("/") ? value : value.replace(separator, "/");
+  }
+
+  private static void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.debug("Deleting pack file {} failed.", file, e);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (task != null) {
+      task.dispose();
+      task = null;
+    }
+    index = Collections.emptyMap();
+    segments.forEach(segment -> delete(segment.file));
+    segments.clear();
+    if (directory != null) {
+      delete(directory);
+      directory = null;
+    }
+  }
+
+  /**
+   * A pack file.
+   */
+  private static class Segment {
+
+    private final Path file;
+
+    private final long size;
+
+    private Segment(Path file, long size) {
+      this.file = file;
+      this.size = size;
+    }
+  }
+
+  /**
+   * A packed file.
+   */
+  private static class Entry {
+
+    private final ByteBuffer content;
+
+    private final long lastModified;
+
+    private final Segment segment;
+
+    private Entry(ByteBuffer content, long lastModified, Segment segment) {
+      this.content = content;
+      this.lastModified = lastModified;
+      this.segment = segment;
+    }
+  }
+
+  /**
+   * The writer of a new pack file. The files are appended one after another and mapped into
+   * memory, when the pack file is finished.
+   */
+  private class SegmentWriter implements AutoCloseable {
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final List<String> paths = new ArrayList<>();
+
+    private final List<long[]> positions = new ArrayList<>();
+
+    private long size;
+
+    private boolean finished;
+
+    private SegmentWriter() throws IOException {
+      this.file = directory.resolve("pack-" + (++segmentCount) + ".bin");
+      this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void add(String path, ByteBuffer content, long lastModified) throws IOException {
+      long length = content.remaining();
+      while (content.hasRemaining()) {
+        channel.write(content);
+      }
+      paths.add(path);
+      positions.add(new long[]{size, length, lastModified});
+      size += length;
+    }
+
+    private Map<String, Entry> finish() throws IOException {
+      Segment segment = new Segment(file, size);
+      ByteBuffer mapped = size > 0L
+          ? channel.map(FileChannel.MapMode.READ_ONLY, 0L, size)
+          : EMPTY;
+      Map<String, Entry> entries = new HashMap<>(paths.size() * 4 / 3 + 1);
+      for (int i = 0; i < paths.size(); i++) {
+        long[] position = positions.get(i);
+        ByteBuffer content = mapped.duplicate();
+        content.position((int) position[0]).limit((int) (position[0] + position[1]));
+        entries.put(paths.get(i), new Entry(content.slice().asReadOnlyBuffer(), position[2],
+            segment));
+      }
+      segments.add(segment);
+      finished = true;
+      return entries;
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+      if (!finished) {
+        delete(file);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The path filter of a content location. It holds all existing paths (files and directories) of
+ * the content location in a {@link ScsBloomFilter}, so that requests of paths, that definitely
+ * don't exist, can be rejected without any file system access.
+ *
+ * <p>The filter is built by a scan of the content location in a background thread, which then
+ * watches the content location for changes: created files are added; if too many files were
+ * deleted or events were lost, the filter is rebuilt. As long as the filter is not ready, every
+ * path might exist.
+ *
+ * <p>If watching fails (on Linux typically because the limit of inotify watches
+ * {@code fs.inotify.max_user_watches} is reached by a large tree), the filter is degraded: every
+ * path might exist until the application is restarted. The degraded state and its cause are shown
+ * by the {@link ScsEndpoint}.
+ *
+ * <p>The events are also passed to the {@link Listener listeners} (for example the
+ * {@link ScsPackStore}), so that they don't have to scan the content location themselves.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsPathFilter implements AutoCloseable {
+
+  private final Path root;
+
+  private final ScsProperties.PathFilter properties;
+
+  private final Map<WatchKey, Path> watchKeys = new HashMap<>();
+
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  private volatile ScsBloomFilter filter;
+
+  private volatile boolean closed;
+
+  private volatile String failure;
+
+  private long count;
+
+  private long capacity;
+
+  private long deletions;
+
+  private WatchService watchService;
+
+  private Thread thread;
+
+  /**
+   * Instantiates a new path filter.
+   *
+   * @param root the content location
+   * @param properties the properties
+   */
+  public ScsPathFilter(@NotNull Path root, @NotNull ScsProperties.PathFilter properties) {
+    this.root = root;
+    this.properties = properties;
+    this.capacity = Math.max(1L, properties.getExpectedPaths());
+  }
+
+  /**
+   * Starts building and watching in a background thread.
+   *
+   * @return the path filter
+   */
+  public synchronized ScsPathFilter start() {
+    if (thread == null && !closed) {
+      thread = new Thread(this::run, "scs-path-filter");
+      thread.setDaemon(true);
+      thread.start();
+    }
+    return this;
+  }
+
+  /**
+   * Adds a listener, that is notified about the changes of the content location.
+   *
+   * @param listener the listener
+   */
+  public void addListener(@NotNull Listener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Determines whether the filter is ready.
+   *
+   * @return {@code true} if the filter is ready, otherwise {@code false}
+   */
+  public boolean isReady() {
+    return filter != null;
+  }
+
+  /**
+   * Determines whether the filter is degraded, because building or watching failed. A degraded
+   * filter lets every path pass.
+   *
+   * @return {@code true} if the filter is degraded, otherwise {@code false}
+   */
+  public boolean isDegraded() {
+    return failure != null;
+  }
+
+  /**
+   * Gets the cause, why the filter is degraded.
+   *
+   * @return the cause or {@code null}, if the filter is not degraded
+   */
+  public String getFailure() {
+    return failure;
+  }
+
+  /**
+   * Determines whether the path might exist.
+   *
+   * @param path the normalized path relative to the content location
+   * @return {@code false} if the path definitely does not exist, otherwise {@code true}
+   */
+  public boolean mightContain(@NotNull String path) {
+    ScsBloomFilter current = filter;
+    return current == null || path.isEmpty() || current.mightContain(path);
+  }
+
+  private void run() {
+    try (WatchService service = root.getFileSystem().newWatchService()) {
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        watchService = service;
+      }
+      build();
+      while (!closed) {
+        WatchKey key = service.take();
+        Path dir = watchKeys.get(key);
+        boolean rebuild = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == OVERFLOW || dir == null) {
+            rebuild = true;
+            continue;
+          }
+          Path path = dir.resolve((Path) event.context());
+          if (event.kind() == ENTRY_CREATE) {
+            added(path);
+          } else if (event.kind() == ENTRY_DELETE) {
+            deletions++;
+          }
+          String relativePath = relativize(path);
+          listeners.forEach(listener -> listener.changed(relativePath));
+        }
+        if (!key.reset()) {
+          watchKeys.remove(key);
+        }
+        if (rebuild || deletions > count / 10L + 100L || count > capacity) {
+          build();
+        }
+      }
+    } catch (ClosedWatchServiceException | InterruptedException e) {
+      log.debug("Path filter of {} is closed.", root);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Path filter of {} failed, all paths might exist (on Linux check the limit "
+          + "fs.inotify.max_user_watches).", root, e);
+      failure = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+      filter = null;
+      listeners.forEach(Listener::invalidated);
+    }
+  }
+
+  /**
+   * Builds the filter by a scan of the content location and registers all directories.
+   *
+   * @throws IOException if the scan fails
+   */
+  private void build() throws IOException {
+    long start = System.nanoTime();
+    ScsBloomFilter next;
+    do {
+      capacity = Math.max(capacity, count * 2L);
+      next = scan(new ScsBloomFilter(capacity, properties.getFalsePositiveRate()));
+    } while (count > capacity && !closed);
+    deletions = 0L;
+    if (!closed) {
+      // events may have been lost before the directories were registered
+      listeners.forEach(Listener::invalidated);
+      filter = next;
+      log.info("Path filter of {} is ready: paths = {}, size = {} KB, duration = {} ms", root,
+          count, next.sizeInBytes() / 1024L, (System.nanoTime() - start) / 1_000_000L);
+    }
+  }
+
+  private ScsBloomFilter scan(ScsBloomFilter next) throws IOException {
+    count = 0L;
+    walk(next, root);
+    return next;
+  }
+
+  private void added(Path path) throws IOException {
+    ScsBloomFilter current = filter;
+    if (current != null) {
+      // a new directory may already contain files, when it is registered
+      walk(current, path);
+    }
+  }
+
+  private void walk(ScsBloomFilter target, Path start) throws IOException {
+    Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+              throws IOException {
+            register(dir);
+            put(target, dir);
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            put(target, file);
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            // unreadable files and cycles of links are not served either
+            return FileVisitResult.CONTINUE;
+          }
+        });
+  }
+
+  private void register(Path dir) throws IOException {
+    if (watchService != null) {
+      watchKeys.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+    }
+  }
+
+  private void put(ScsBloomFilter target, Path path) {
+    String value = relativize(path);
+    if (!value.isEmpty()) {
+      target.put(value);
+      count++;
+    }
+  }
+
+  private String relativize(Path path) {
+    String value = root.relativize(path).toString();
+    String separator = root.getFileSystem().getSeparator();
+    return separator.equals("/") ? value : value.replace(separator, "/");
+  }
+
+  @Override
+  public void close() {
+    WatchService service;
+    synchronized (this) {
+      closed = true;
+      filter = null;
+      service = watchService;
+    }
+    if (service != null) {
+      try {
+        service.close();
+      } catch (IOException e) {
+        log.debug("Closing watch service of {} failed.", root, e);
+      }
+    }
+  }
+
+  /**
+   * The listener of the changes of a content location.
+   */
+  public interface Listener {
+
+    /**
+     * Is called, when a file or directory was created, modified or deleted.
+     *
+     * @param path the path relative to the content location
+     */
+    void changed(String path);
+
+    /**
+     * Is called, when changes may have been lost (for example the filter was rebuilt or watching
+     * failed), so that the whole content location must be checked.
+     */
+    void invalidated();
+  }
+
+}
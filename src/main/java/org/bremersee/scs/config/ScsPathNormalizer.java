@@ -0,0 +1,221 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The request path normalizer. It trims leading slashes and control characters, decodes percent
+ * encoded characters, removes empty and {@code .} segments and rejects {@code ..} segments,
+ * control characters and backslashes in one pass. A clean path is returned without creating a
+ * new string, if no offset is given. Decoded paths are kept in a small direct mapped cache, so
+ * that hot encoded urls are decoded only once.
+ *
+ * @author Christian Bremer
+ */
+public class ScsPathNormalizer {
+
+  private static final int MIN_BUFFER_SIZE = 256;
+
+  private static final ThreadLocal<byte[]> BUFFER = ThreadLocal
+      .withInitial(() -> new byte[MIN_BUFFER_SIZE]);
+
+  private final AtomicReferenceArray<Entry> cache;
+
+  private final int mask;
+
+  /**
+   * Instantiates a new path normalizer.
+   *
+   * @param cacheSize the size of the decoded path cache (it will be rounded up to a power of two;
+   *     zero or less disables the cache)
+   */
+  public ScsPathNormalizer(int cacheSize) {
+    if (cacheSize > 0) {
+      int size = 1;
+      while (size < cacheSize) {
+        size <<= 1;
+      }
+      this.cache = new AtomicReferenceArray<>(size);
+      this.mask = size - 1;
+    } else {
+      this.cache = null;
+      this.mask = 0;
+    }
+  }
+
+  /**
+   * Normalizes the path beginning at the given offset.
+   *
+   * @param path the (percent encoded) path
+   * @param offset the offset
+   * @return the normalized and decoded path without leading and trailing slash or {@code null},
+   *     if the path is invalid
+   */
+  public String normalize(String path, int offset) {
+    if (path == null || offset >= path.length()) {
+      return "";
+    }
+    boolean encoded = cache != null && path.indexOf('%', offset) >= 0;
+    if (encoded) {
+      Entry entry = cache.get(index(path, offset));
+      if (entry != null && entry.offset == offset && entry.path.equals(path)) {
+        return entry.value;
+      }
+    }
+    String value = doNormalize(path, offset);
+    if (encoded) {
+      cache.set(index(path, offset), new Entry(path, offset, value));
+    }
+    return value;
+  }
+
+  private int index(String path, int offset) {
+    int hash = path.hashCode() * 31 + offset;
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private static String doNormalize(String path, int offset) {
+    final int length = path.length();
+    int start = offset;
+    while (start < length && isLeadingJunk(path.charAt(start))) {
+      start++;
+    }
+    if (start == length) {
+      return "";
+    }
+    byte[] out = buffer(3 * (length - start));
+    int len = 0;
+    int segmentStart = 0;
+    boolean modified = false;
+    int i = start;
+    while (i < length) {
+      char c = path.charAt(i);
+      int b;
+      if (c == '%') {
+        if (i + 2 >= length) {
+          return null;
+        }
+        int hi = Character.digit(path.charAt(i + 1), 16);
+        int lo = Character.digit(path.charAt(i + 2), 16);
+        if (hi < 0 || lo < 0) {
+          return null;
+        }
+        b = (hi << 4) | lo;
+        i += 3;
+        modified = true;
+      } else if (c < 0x80) {
+        b = c;
+        i++;
+      } else {
+        // Multi byte characters never contain the bytes of '/', '.' or control characters.
+        int codePoint = path.codePointAt(i);
+        i += Character.charCount(codePoint);
+        len = appendUtf8(out, len, codePoint);
+        continue;
+      }
+      if (b == '/') {
+        int segmentLength = len - segmentStart;
+        if (segmentLength == 0) {
+          modified = true;
+        } else if (isDot(out, segmentStart, segmentLength)) {
+          len = segmentStart;
+          modified = true;
+        } else if (isDotDot(out, segmentStart, segmentLength)) {
+          return null;
+        } else {
+          out[len++] = '/';
+          segmentStart = len;
+        }
+      } else if (b < 0x20 || b == 0x7F || b == '\\') {
+        return null;
+      } else {
+        out[len++] = (byte) b;
+      }
+    }
+    int segmentLength = len - segmentStart;
+    if (isDotDot(out, segmentStart, segmentLength)) {
+      return null;
+    }
+    if (isDot(out, segmentStart, segmentLength)) {
+      len = segmentStart;
+      modified = true;
+    }
+    int end = length;
+    if (len > 0 && out[len - 1] == '/') {
+      len--;
+      end--;
+    }
+    if (modified) {
+      return new String(out, 0, len, StandardCharsets.UTF_8);
+    }
+    return start == 0 && end == length ? path : path.substring(start, end);
+  }
+
+  private static boolean isLeadingJunk(char c) {
+    return c == '/' || c <= ' ' || c == 127;
+  }
+
+  private static boolean isDot(byte[] out, int start, int length) {
+    return length == 1 && out[start] == '.';
+  }
+
+  private static boolean isDotDot(byte[] out, int start, int length) {
+    return length == 2 && out[start] == '.' && out[start + 1] == '.';
+  }
+
+  private static byte[] buffer(int size) {
+    byte[] buffer = BUFFER.get();
+    if (buffer.length < size) {
+      buffer = new byte[Math.max(size, buffer.length << 1)];
+      BUFFER.set(buffer);
+    }
+    return buffer;
+  }
+
+  private static int appendUtf8(byte[] out, int len, int codePoint) {
+    if (codePoint < 0x800) {
+      out[len++] = (byte) (0xC0 | (codePoint >> 6));
+    } else if (codePoint < 0x10000) {
+      out[len++] = (byte) (0xE0 | (codePoint >> 12));
+      out[len++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+    } else {
+      out[len++] = (byte) (0xF0 | (codePoint >> 18));
+      out[len++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+      out[len++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+    }
+    out[len++] = (byte) (0x80 | (codePoint & 0x3F));
+    return len;
+  }
+
+  private static class Entry {
+
+    private final String path;
+
+    private final int offset;
+
+    private final String value;
+
+    private Entry(String path, int offset, String value) {
+      this.path = path;
+      this.offset = offset;
+      this.value = value;
+    }
+  }
+
+}
@@ -16,7 +16,12 @@
 
 package org.bremersee.scs.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import javax.validation.constraints.NotNull;
@@ -26,6 +31,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.core.io.ClassPathResource;
@@ -33,6 +39,7 @@ import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.util.Pair;
 import org.springframework.util.AntPathMatcher;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
 /**
@@ -72,6 +79,93 @@ public class ScsProperties {
   @NotNull
   private Map<String, String> directoryPatternIndexMap = new LinkedHashMap<>();
 
+  @NotNull
+  private List<String> publicPaths = new ArrayList<>();
+
+  /**
+   * The virtual hosts. The key is the host name (e.g. {@code [www.example.org]}) or a wildcard
+   * host name (e.g. {@code [*.example.org]}), the value contains the content location and the
+   * index rules of the host. Requests of all other hosts are served by the default content
+   * location.
+   */
+  @NotNull
+  private Map<String, VirtualHost> virtualHosts = new LinkedHashMap<>();
+
+  private int decodedPathCacheSize = 256;
+
+  /**
+   * The max number of paths, whose accesses are counted. If it is reached, about the less
+   * frequently accessed half is dropped in the background.
+   */
+  private int accessStatisticsSize = 10_000;
+
+  /**
+   * Specifies whether java flight recorder events are created for the stages of a request (see
+   * {@link ScsFlightRecorder}).
+   */
+  private boolean flightRecorderEvents = false;
+
+  @NotNull
+  private PathFilter pathFilter = new PathFilter();
+
+  @NotNull
+  private PackStore packStore = new PackStore();
+
+  @NotNull
+  private ClasspathContent classpathContent = new ClasspathContent();
+
+  @NotNull
+  private ResponseHeaders responseHeaders = new ResponseHeaders();
+
+  @NotNull
+  private ReadBuffer readBuffer = new ReadBuffer();
+
+  @NotNull
+  private ContentCache contentCache = new ContentCache();
+
+  @NotNull
+  private Releases releases = new Releases();
+
+  @NotNull
+  private HeatMap heatMap = new HeatMap();
+
+  @NotNull
+  private Fingerprint fingerprint = new Fingerprint();
+
+  @NotNull
+  private ImageVariants imageVariants = new ImageVariants();
+
+  @NotNull
+  private ResolverChain resolverChain = new ResolverChain();
+
+  @NotNull
+  private DirectoryListing directoryListing = new DirectoryListing();
+
+  @NotNull
+  private ZipDownload zipDownload = new ZipDownload();
+
+  @NotNull
+  private RateLimit rateLimit = new RateLimit();
+
+  @NotNull
+  private LoadShedding loadShedding = new LoadShedding();
+
+  @NotNull
+  private Startup startup = new Startup();
+
+  @NotNull
+  private Transport transport = new Transport();
+
+  /**
+   * Creates a copy of the given properties. Every property with getter and setter is copied, so a
+   * new property can't be forgotten; nested properties are shared with the source.
+   *
+   * @param source the source
+   */
+  ScsProperties(@NotNull ScsProperties source) {
+    BeanUtils.copyProperties(source, this);
+  }
+
   /**
    * Gets content location.
    *
@@ -105,6 +199,57 @@ public class ScsProperties {
         : new FileSystemResource(location);
   }
 
+  /**
+   * Creates the properties of a virtual host. The caches get the given share of the configured
+   * sizes.
+   *
+   * @param virtualHost the virtual host
+   * @param shares the number of shares of the caches
+   * @return the properties of the virtual host
+   */
+  public ScsProperties forVirtualHost(@NotNull VirtualHost virtualHost, int shares) {
+    ScsProperties properties = share(shares);
+    properties.setContentLocation(virtualHost.getContentLocation());
+    if (virtualHost.getPattern() != null) {
+      properties.setPattern(virtualHost.getPattern());
+    }
+    if (virtualHost.getDefaultIndex() != null) {
+      properties.setDefaultIndex(virtualHost.getDefaultIndex());
+    }
+    if (!virtualHost.getDirectoryPatternIndexMap().isEmpty()) {
+      properties.setDirectoryPatternIndexMap(
+          new LinkedHashMap<>(virtualHost.getDirectoryPatternIndexMap()));
+    }
+    return properties;
+  }
+
+  /**
+   * Creates a copy of the properties, whose caches and memory budgets get the given share of the
+   * configured sizes. All other properties are copied unchanged.
+   *
+   * @param shares the number of shares of the caches
+   * @return the copy
+   */
+  public ScsProperties share(int shares) {
+    int parts = Math.max(1, shares);
+    ScsProperties properties = new ScsProperties(this);
+    properties.setDirectoryPatternIndexMap(new LinkedHashMap<>(directoryPatternIndexMap));
+    properties.setDecodedPathCacheSize(Math.max(1, decodedPathCacheSize / parts));
+    properties.setAccessStatisticsSize(Math.max(1, accessStatisticsSize / parts));
+    properties.setPathFilter(pathFilter.share(parts));
+    properties.setPackStore(packStore.share(parts));
+    properties.setClasspathContent(classpathContent.share(parts));
+    properties.setContentCache(contentCache.share(parts));
+    properties.setFingerprint(fingerprint.share(parts));
+    properties.setImageVariants(imageVariants.share(parts));
+    properties.setDirectoryListing(directoryListing.share(parts));
+    return properties;
+  }
+
+  private static DataSize share(DataSize size, int parts) {
+    return DataSize.ofBytes(size.toBytes() / parts);
+  }
+
   /**
    * Find directory index.
    *
@@ -143,4 +288,931 @@ public class ScsProperties {
         });
   }
 
+  /**
+   * The startup properties.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class Startup {
+
+    /**
+     * Specifies whether the application should exit as soon as it is ready. This is used by the
+     * training run that records the class list for the class data sharing archive.
+     */
+    private boolean exitOnReady = false;
+
+    /**
+     * Specifies whether startup time and resident set size should be logged when the application
+     * is ready.
+     */
+    private boolean logMetrics = true;
+  }
+
+  /**
+   * The transport properties of the server. They are read once on start.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class Transport {
+
+    private boolean enabled = false;
+
+    /**
+     * The transport type.
+     */
+    @NotNull
+    private TransportType type = TransportType.AUTO;
+
+    /**
+     * The number of threads, that accept connections (zero or less uses the worker threads).
+     */
+    private int selectThreads = 1;
+
+    /**
+     * The number of event loop threads (zero or less is the number of processors, at least 4).
+     */
+    private int workerThreads = 0;
+
+    /**
+     * The max length of the queue of incoming connections (zero or less is the default of the
+     * operating system).
+     */
+    private int backlog = 0;
+
+    /**
+     * Specifies whether the Nagle algorithm is disabled.
+     */
+    private boolean tcpNoDelay = true;
+
+    /**
+     * Specifies whether keep alive packets are sent on idle connections.
+     */
+    private boolean keepAlive = false;
+
+    /**
+     * Specifies whether several servers may bind the same port (only with epoll).
+     */
+    private boolean reusePort = false;
+  }
+
+  /**
+   * The transport type of the server.
+   */
+  public enum TransportType {
+
+    /**
+     * The native transport, if it is available, otherwise NIO (like the default of reactor
+     * netty).
+     */
+    AUTO,
+
+    /**
+     * The NIO transport of the JDK.
+     */
+    NIO,
+
+    /**
+     * The native epoll transport of linux; NIO is used, if it is not available.
+     */
+    EPOLL
+  }
+
+  /**
+   * The path filter properties. The existing paths of the content location are held in a bloom
+   * filter, so that requests of paths, that don't exist, are rejected without file system
+   * access.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class PathFilter {
+
+    private boolean enabled = false;
+
+    /**
+     * The expected number of paths (files and directories). The filter grows, if there are
+     * more.
+     */
+    private long expectedPaths = 100_000L;
+
+    /**
+     * The false positive rate.
+     */
+    private double falsePositiveRate = 0.01;
+
+    /**
+     * Creates a copy, whose memory budget gets the given share of the configured size.
+     *
+     * @param parts the number of shares
+     * @return the copy
+     */
+    PathFilter share(int parts) {
+      PathFilter copy = new PathFilter();
+      BeanUtils.copyProperties(this, copy);
+      copy.setExpectedPaths(Math.max(1L, expectedPaths / parts));
+      return copy;
+    }
+  }
+
+  /**
+   * The pack store properties. Small files of the content location are packed into memory mapped
+   * files, so that they are served without opening them.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class PackStore {
+
+    private boolean enabled = false;
+
+    /**
+     * The max size of a packed file.
+     */
+    @NotNull
+    private DataSize maxFileSize = DataSize.ofKilobytes(4);
+
+    /**
+     * The max size of all packed files.
+     */
+    @NotNull
+    private DataSize maxSize = DataSize.ofMegabytes(256);
+
+    /**
+     * The directory of the pack files. The pack files of a content location are kept in a new
+     * sub directory, that is deleted on close.
+     */
+    @NotNull
+    private String directory = System.getProperty("java.io.tmpdir");
+
+    /**
+     * The interval, in which the content location is checked for changed files. A changed or
+     * deleted file is not served stale in the meantime: it is served from the file system, until
+     * the next check has packed it again.
+     */
+    @NotNull
+    private Duration checkInterval = Duration.ofSeconds(10L);
+
+    /**
+     * Creates a copy, whose memory budget gets the given share of the configured size.
+     *
+     * @param parts the number of shares
+     * @return the copy
+     */
+    PackStore share(int parts) {
+      PackStore copy = new PackStore();
+      BeanUtils.copyProperties(this, copy);
+      copy.setMaxSize(ScsProperties.share(maxSize, parts));
+      return copy;
+    }
+  }
+
+  /**
+   * The classpath content properties. If the content location is on the classpath, its files
+   * are read into memory, when the router is created (see {@link ScsClasspathContent}).
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class ClasspathContent {
+
+    /**
+     * Specifies whether the files of a classpath location are held in memory. Unlike the other
+     * features it is enabled by default, because the classpath content can't change at runtime.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The max size of a file in memory (at most 2 GB). Larger files are read from the classpath.
+     */
+    @NotNull
+    private DataSize maxFileSize = DataSize.ofMegabytes(8);
+
+    /**
+     * The max size of all files in memory.
+     */
+    @NotNull
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Creates a copy, whose memory budget gets the given share of the configured size.
+     *
+     * @param parts the number of shares
+     * @return the copy
+     */
+    ClasspathContent share(int parts) {
+      ClasspathContent copy = new ClasspathContent();
+      BeanUtils.copyProperties(this, copy);
+      copy.setMaxSize(ScsProperties.share(maxSize, parts));
+      return copy;
+    }
+  }
+
+  /**
+   * The response headers properties. The headers are precomputed once per file extension and
+   * path pattern.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class ResponseHeaders {
+
+    /**
+     * The charset, that is added to the content type of text based media types (for example
+     * {@code UTF-8}). If it is not present, no charset is added.
+     */
+    private String defaultCharset;
+
+    /**
+     * The values of the {@code Vary} header.
+     */
+    @NotNull
+    private List<String> vary = new ArrayList<>();
+
+    /**
+     * Additional headers, for example security headers like {@code X-Content-Type-Options}.
+     */
+    @NotNull
+    private Map<String, String> headers = new LinkedHashMap<>();
+
+    /**
+     * The cache control values of path patterns (the first matching pattern wins). If no pattern
+     * matches, no cache control header is added.
+     */
+    @NotNull
+    private Map<String, String> cacheControlPatternMap = new LinkedHashMap<>();
+  }
+
+  /**
+   * The directory listing properties. A directory without index file is listed, if the listing
+   * is enabled. Only directories of the file system can be listed.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class DirectoryListing {
+
+    private boolean enabled = false;
+
+    /**
+     * Specifies whether hidden entries (whose name starts with a dot) and hidden directories are
+     * listed.
+     */
+    private boolean showHidden = false;
+
+    /**
+     * The number of entries of one page.
+     */
+    private int pageSize = 1000;
+
+    /**
+     * The max number of rendered pages, that are cached.
+     */
+    private int cacheSize = 256;
+
+    /**
+     * The max size of a rendered page, that is cached.
+     */
+    @NotNull
+    private DataSize maxCachedPageSize = DataSize.ofKilobytes(512);
+
+    /**
+     * The max size of all cached pages.
+     */
+    @NotNull
+    private DataSize maxCacheSize = DataSize.ofMegabytes(16);
+
+    /**
+     * Creates a copy, whose caches get the given share of the configured sizes.
+     *
+     * @param parts the number of shares
+     * @return the copy
+     */
+    DirectoryListing share(int parts) {
+      DirectoryListing copy = new DirectoryListing();
+      BeanUtils.copyProperties(this, copy);
+      copy.setCacheSize(Math.max(1, cacheSize / parts));
+      copy.setMaxCacheSize(ScsProperties.share(maxCacheSize, parts));
+      return copy;
+    }
+  }
+
+  /**
+   * The read buffer properties of streamed file responses. The chunk size grows with the file
+   * size between the min and the max chunk size, so that small files are read with one small
+   * buffer and large files with few large buffers. The buffers are allocated from the buffer
+   * factory of the response, which is pooled by netty.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class ReadBuffer {
+
+    /**
+     * The min chunk size.
+     */
+    @NotNull
+    private DataSize minChunkSize = DataSize.ofKilobytes(4);
+
+    /**
+     * The max chunk size.
+     */
+    @NotNull
+    private DataSize maxChunkSize = DataSize.ofKilobytes(256);
+
+    /**
+     * Specifies whether files of the file system are sent with zero copy (sendfile), if the
+     * server supports it. Then no read buffers are used at all.
+     */
+    private boolean zeroCopy = true;
+
+    /**
+     * Gets the chunk size for a file with the given length. It is the next power of two of the
+     * length within the min and max chunk size.
+     *
+     * @param contentLength the content length (negative if unknown)
+     * @return the chunk size
+     */
+    public int chunkSize(long contentLength) {
+      int min = (int) Math.max(1L, Math.min(minChunkSize.toBytes(), Integer.MAX_VALUE));
+      int max = (int) Math.max(min, Math.min(maxChunkSize.toBytes(), 1L << 30));
+      if (contentLength < 0L) {
+        return min;
+      }
+      if (contentLength >= max) {
+        return max;
+      }
+      int size = contentLength <= 1L ? 1 : Integer.highestOneBit((int) contentLength - 1) << 1;
+      return Math.max(min, Math.min(max, size));
+    }
+  }
+
+  /**
+   * The content cache properties. Small files are held in memory, so that serving them needs no
+   * file I/O except checking the last modification time.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class ContentCache {
+
+    private boolean enabled = false;
+
+    /**
+     * The max number of cached files.
+     */
+    private int maxEntries = 1024;
+
+    /**
+     * The max size of all cached files; files with the same content are counted once.
+     */
+    @NotNull
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+
+    /**
+     * The max size of a cached file.
+     */
+    @NotNull
+    private DataSize maxFileSize = DataSize.ofKilobytes(512);
+
+    /**
+     * The interval, in which a cached file is validated against the file at most once. Within
+     * the interval a hit is served without touching the file system, so a change can be served
+     * stale for up to this interval. Zero validates the file on every access.
+     */
+    @NotNull
+    private Duration revalidateInterval = Duration.ofSeconds(1L);
+
+    /**
+     * Creates a copy, whose caches get the given share of the configured sizes.
+     *
+     * @param parts the number of shares
+     * @return the copy
+     */
+    ContentCache share(int parts) {
+      ContentCache copy = new ContentCache();
+      BeanUtils.copyProperties(this, copy);
+      copy.setMaxEntries(Math.max(1, maxEntries / parts));
+      copy.setMaxSize(ScsProperties.share(maxSize, parts));
+      return copy;
+    }
+  }
+
+  /**
+   * The properties of a virtual host. Missing values are taken from the default properties.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class VirtualHost {
+
+    /**
+     * The content location of the host.
+     */
+    private String contentLocation;
+
+    /**
+     * The pattern of the host.
+     */
+    private String pattern;
+
+    /**
+     * The default index of the host.
+     */
+    private String defaultIndex;
+
+    /**
+     * The directory pattern index map of the host.
+     */
+    @NotNull
+    private Map<String, String> directoryPatternIndexMap = new LinkedHashMap<>();
+  }
+
+  /**
+   * The releases properties. If they are enabled, the content location contains a directory for
+   * every release ({@code releases/<id>/}) and a pointer file with the id of the current
+   * release.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class Releases {
+
+    private boolean enabled = false;
+
+    /**
+     * The directory of the releases relative to the content location.
+     */
+    @NotNull
+    private String directory = "releases";
+
+    /**
+     * The pointer file relative to the content location. It contains the id of the current
+     * release.
+     */
+    @NotNull
+    private String pointerFile = "current";
+
+    /**
+     * The interval, in which the pointer file is checked.
+     */
+    @NotNull
+    private Duration checkInterval = Duration.ofSeconds(5L);
+
+    /**
+     * The max number of the most frequently accessed paths, that are loaded into the caches
+     * before switching to a new release.
+     */
+    private int warmUpPaths = 1000;
+  }
+
+  /**
+   * The heat map properties. The most frequently accessed paths are persisted periodically and
+   * loaded into the caches on startup.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class HeatMap {
+
+    private boolean enabled = false;
+
+    /**
+     * The file of the heat map. It should be on a persistent volume.
+     */
+    @NotNull
+    private String file = System.getProperty("java.io.tmpdir") + "/scs-heat-map.txt";
+
+    /**
+     * The interval, in which the heat map is persisted.
+     */
+    @NotNull
+    private Duration persistInterval = Duration.ofMinutes(1L);
+
+    /**
+     * The max number of persisted paths.
+     */
+    private int maxPaths = 1000;
+
+    /**
+     * The max duration of the warm-up.
+     */
+    @NotNull
+    private Duration warmUpTimeout = Duration.ofMinutes(2L);
+
+    /**
+     * Specifies whether the application refuses traffic (readiness state) until the warm-up is
+     * finished.
+     */
+    private boolean holdReadiness = false;
+  }
+
+  /**
+   * The image variants properties. A scaled or converted variant of an image is requested with
+   * query parameters (for example {@code /img/photo.jpg?w=640&format=png}).
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class ImageVariants {
+
+    private boolean enabled = false;
+
+    /**
+     * The name of the query parameter of the width.
+     */
+    @NotNull
+    private String widthParameter = "w";
+
+    /**
+     * The name of the query parameter of the format.
+     */
+    @NotNull
+    private String formatParameter = "format";
+
+    /**
+     * The allowed widths. Other widths are ignored, so that the cache can't be flooded.
+     */
+    @NotNull
+    private List<Integer> widths = new ArrayList<>(Arrays.asList(320, 640, 960, 1280, 1920));
+
+    /**
+     * The allowed formats. A format is only available, if there is an image writer for it.
+     */
+    @NotNull
+    private List<String> formats = new ArrayList<>(Arrays.asList("jpeg", "png"));
+
+    /**
+     * The file extensions of the images, that have variants.
+     */
+    @NotNull
+    private List<String> extensions = new ArrayList<>(Arrays.asList("jpg", "jpeg", "png"));
+
+    /**
+     * The quality of jpeg variants (between 0 and 1).
+     */
+    private float jpegQuality = 0.85f;
+
+    /**
+     * The max number of pixels of an image, that is scaled or converted.
+     */
+    private long maxSourcePixels = 40_000_000L;
+
+    /**
+     * The max number of variants, that are rendered at the same time. Decoding an image needs up
+     * to four bytes per pixel of heap. If the limit is reached, the original image is served.
+     */
+    private int maxConcurrentRenders = 2;
+
+    /**
+     * The max number of variants in memory.
+     */
+    private int maxEntries = 512;
+
+    /**
+     * The max size of the variants in memory.
+     */
+    @NotNull
+    private DataSize maxSize = DataSize.ofMegabytes(32);
+
+    /**
+     * The directory of the variants on disk. The variants of a content location are kept in a
+     * sub directory.
+     */
+    @NotNull
+    private String directory = System.getProperty("java.io.tmpdir") + "/scs-image-variants";
+
+    /**
+     * The max size of the variants on disk.
+     */
+    @NotNull
+    private DataSize maxDiskSize = DataSize.ofMegabytes(512);
+
+    /**
+     * Creates a copy, whose caches get the given share of the configured sizes.
+     *
+     * @param parts the number of shares
+     * @return the copy
+     */
+    ImageVariants share(int parts) {
+      ImageVariants copy = new ImageVariants();
+      BeanUtils.copyProperties(this, copy);
+      copy.setMaxConcurrentRenders(Math.max(1, maxConcurrentRenders / parts));
+      copy.setMaxEntries(Math.max(1, maxEntries / parts));
+      copy.setMaxSize(ScsProperties.share(maxSize, parts));
+      copy.setMaxDiskSize(ScsProperties.share(maxDiskSize, parts));
+      return copy;
+    }
+  }
+
+  /**
+   * The fingerprint properties. Every file with one of the extensions is also available under a
+   * virtual url, that contains the hash of the content (for example {@code /app.3f9a1c0b.js}).
+   * References in html documents are rewritten to these urls.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class Fingerprint {
+
+    private boolean enabled = false;
+
+    /**
+     * The number of hex characters of the hash in the url.
+     */
+    private int hashLength = 8;
+
+    /**
+     * The file extensions, that are fingerprinted.
+     */
+    @NotNull
+    private List<String> extensions = new ArrayList<>(Arrays.asList(
+        "js", "mjs", "css", "png", "jpg", "jpeg", "gif", "svg", "webp", "ico", "woff", "woff2",
+        "ttf", "eot", "json", "map"));
+
+    /**
+     * The file extensions of html documents, whose references are rewritten.
+     */
+    @NotNull
+    private List<String> rewriteExtensions = new ArrayList<>(Arrays.asList("html", "htm"));
+
+    /**
+     * The cache control of fingerprinted urls.
+     */
+    @NotNull
+    private String cacheControl = "public, max-age=31536000, immutable";
+
+    /**
+     * The max number of hashes, that are held in memory.
+     */
+    private int indexSize = 10_000;
+
+    /**
+     * The max size of a html document, that is rewritten.
+     */
+    @NotNull
+    private DataSize maxRewriteSize = DataSize.ofMegabytes(1);
+
+    /**
+     * The max number of rewritten html documents, that are cached.
+     */
+    private int rewriteCacheSize = 256;
+
+    /**
+     * The max size of all cached rewritten html documents.
+     */
+    @NotNull
+    private DataSize maxRewriteCacheSize = DataSize.ofMegabytes(16);
+
+    /**
+     * Creates a copy, whose caches get the given share of the configured sizes.
+     *
+     * @param parts the number of shares
+     * @return the copy
+     */
+    Fingerprint share(int parts) {
+      Fingerprint copy = new Fingerprint();
+      BeanUtils.copyProperties(this, copy);
+      copy.setIndexSize(Math.max(1, indexSize / parts));
+      copy.setRewriteCacheSize(Math.max(1, rewriteCacheSize / parts));
+      copy.setMaxRewriteCacheSize(ScsProperties.share(maxRewriteCacheSize, parts));
+      return copy;
+    }
+  }
+
+  /**
+   * The resolver chain properties (see {@link ScsResourceResolvers}).
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class ResolverChain {
+
+    /**
+     * Specifies whether the latency and the short circuits of the stages are measured.
+     */
+    private boolean metrics = true;
+
+    /**
+     * The names of the stages, that are removed from the chain.
+     */
+    private List<String> disabledStages = new ArrayList<>();
+
+    /**
+     * The orders of stages by name. They override the orders of the stages; a stage with a lower
+     * order runs first and wraps the stages with a higher order.
+     */
+    private Map<String, Integer> stageOrders = new LinkedHashMap<>();
+  }
+
+  /**
+   * The rate limit properties. Every client (ip address) gets a token bucket and a concurrency
+   * limit per path pattern. The first matching pattern is used; requests of paths without
+   * matching pattern are not limited.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class RateLimit {
+
+    private boolean enabled = false;
+
+    /**
+     * The time after which the bucket of an idle client is removed.
+     */
+    @NotNull
+    private Duration idleTimeout = Duration.ofMinutes(5);
+
+    /**
+     * The max number of clients, whose buckets are held. If it is reached, idle buckets are
+     * removed and new clients share one overflow bucket per path pattern, until there is space
+     * again.
+     */
+    private int maxClients = 100_000;
+
+    /**
+     * The number of trusted proxies in front of the server, that append the address of their
+     * client to the forwarded headers (forward headers strategy {@code framework}). The client
+     * is identified by the entry of the first trusted proxy; entries, that were sent by the
+     * client, are ignored. With zero the forwarded headers are not used.
+     */
+    private int trustedProxies = 1;
+
+    /**
+     * The limits per path pattern, for example {@code [/downloads/**]}.
+     */
+    @NotNull
+    private Map<String, Limit> patternLimitMap = new LinkedHashMap<>();
+  }
+
+  /**
+   * The limit of a client.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class Limit {
+
+    /**
+     * The sustained number of requests per second.
+     */
+    private double requestsPerSecond = 100.;
+
+    /**
+     * The number of requests, that may be sent at once.
+     */
+    private int burst = 200;
+
+    /**
+     * The max number of concurrent requests (zero or less is unlimited).
+     */
+    private int maxConcurrent = 0;
+  }
+
+  /**
+   * The load shedding properties. If the event loops lag or too many blocking file I/O tasks are
+   * pending, low priority requests are rejected with {@code 503 Service Unavailable}; if the
+   * critical thresholds are crossed, all requests except the exempt ones are rejected.
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class LoadShedding {
+
+    private boolean enabled = false;
+
+    /**
+     * The interval of the event loop lag probes.
+     */
+    @NotNull
+    private Duration probeInterval = Duration.ofMillis(100);
+
+    /**
+     * The event loop lag, above which low priority requests are rejected.
+     */
+    @NotNull
+    private Duration maxEventLoopLag = Duration.ofMillis(100);
+
+    /**
+     * The event loop lag, above which all requests are rejected.
+     */
+    @NotNull
+    private Duration criticalEventLoopLag = Duration.ofSeconds(1);
+
+    /**
+     * The number of pending blocking I/O tasks, above which low priority requests are rejected.
+     */
+    private int maxPendingIo = 64;
+
+    /**
+     * The number of pending blocking I/O tasks, above which all requests are rejected.
+     */
+    private int criticalPendingIo = 512;
+
+    /**
+     * The path patterns of low priority requests.
+     */
+    @NotNull
+    private List<String> lowPriorityPatterns = new ArrayList<>();
+
+    /**
+     * The file extensions of low priority requests (large downloads).
+     */
+    @NotNull
+    private List<String> lowPriorityExtensions = new ArrayList<>(Arrays.asList(
+        "zip", "gz", "tgz", "tar", "bz2", "xz", "7z", "iso", "img", "jar", "war", "mp4",
+        "webm", "mkv", "mp3"));
+
+    /**
+     * The query parameters of low priority requests (for example the zip download).
+     */
+    @NotNull
+    private List<String> lowPriorityParameters = new ArrayList<>(
+        Collections.singletonList("zip"));
+
+    /**
+     * The path patterns, that are never rejected.
+     */
+    @NotNull
+    private List<String> exemptPatterns = new ArrayList<>(
+        Collections.singletonList("/actuator/**"));
+  }
+
+  /**
+   * The zip download properties. A directory of the file system is downloaded as zip archive, if
+   * the request contains the query parameter (for example {@code /docs?zip}).
+   */
+  @Getter
+  @Setter
+  @ToString
+  @EqualsAndHashCode
+  @NoArgsConstructor
+  public static class ZipDownload {
+
+    private boolean enabled = false;
+
+    /**
+     * The name of the query parameter, that requests the zip archive.
+     */
+    @NotNull
+    private String parameter = "zip";
+
+    /**
+     * The max sum of the sizes of all files of the archive.
+     */
+    @NotNull
+    private DataSize maxTotalSize = DataSize.ofGigabytes(1);
+
+    /**
+     * The size of the chunks, that are written to the response.
+     */
+    @NotNull
+    private DataSize chunkSize = DataSize.ofKilobytes(64);
+
+    /**
+     * The file extensions of already compressed files. They are stored without compression.
+     */
+    @NotNull
+    private List<String> storedExtensions = new ArrayList<>(Arrays.asList(
+        "zip", "gz", "tgz", "bz2", "xz", "7z", "jar", "war", "png", "jpg", "jpeg", "gif",
+        "webp", "mp3", "mp4", "webm", "woff", "woff2", "pdf"));
+  }
+
 }
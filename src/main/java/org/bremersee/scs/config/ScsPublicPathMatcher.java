@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.util.Collection;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+/**
+ * The public path matcher. It matches {@code GET} and {@code HEAD} requests of the given path
+ * patterns, which are parsed only once. Paths below the excluded base path (the actuator
+ * endpoints) never match, even if a pattern like {@code /**} covers them.
+ *
+ * @author Christian Bremer
+ */
+public class ScsPublicPathMatcher implements ServerWebExchangeMatcher {
+
+  private static final PathPatternParser PATTERN_PARSER = new PathPatternParser();
+
+  private static final Mono<MatchResult> MATCH = MatchResult.match();
+
+  private static final Mono<MatchResult> NO_MATCH = MatchResult.notMatch();
+
+  private final PathPattern[] patterns;
+
+  private final PathPattern[] excludedPatterns;
+
+  /**
+   * Instantiates a new public path matcher.
+   *
+   * @param patterns the patterns
+   * @param excludedBasePath the base path, that is never public (for example the base path of
+   *     the actuator endpoints); it may be {@code null}
+   */
+  public ScsPublicPathMatcher(Collection<String> patterns, String excludedBasePath) {
+    this.patterns = patterns.stream()
+        .map(PATTERN_PARSER::parse)
+        .toArray(PathPattern[]::new);
+    String basePath = StringUtils.hasText(excludedBasePath) && !"/".equals(excludedBasePath)
+        ? StringUtils.trimTrailingCharacter(excludedBasePath, '/')
+        : null;
+    this.excludedPatterns = basePath != null
+        ? new PathPattern[]{PATTERN_PARSER.parse(basePath), PATTERN_PARSER.parse(basePath + "/**")}
+        : new PathPattern[0];
+  }
+
+  @Override
+  public Mono<MatchResult> matches(ServerWebExchange exchange) {
+    HttpMethod method = exchange.getRequest().getMethod();
+    if (method != HttpMethod.GET && method != HttpMethod.HEAD) {
+      return NO_MATCH;
+    }
+    PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+    for (PathPattern pattern : excludedPatterns) {
+      if (pattern.matches(path)) {
+        return NO_MATCH;
+      }
+    }
+    for (PathPattern pattern : patterns) {
+      if (pattern.matches(path)) {
+        return MATCH;
+      }
+    }
+    return NO_MATCH;
+  }
+
+}
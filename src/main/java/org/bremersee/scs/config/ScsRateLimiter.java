@@ -0,0 +1,330 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+/**
+ * The rate limiter. It is a web filter in front of security and the static content router, that
+ * rejects requests of a client with {@code 429 Too Many Requests}, if the client exceeds the rate
+ * or the number of concurrent requests of the first matching path pattern.
+ *
+ * <p>The rate is limited with the generic cell rate algorithm: a bucket is just the theoretical
+ * arrival time of the next request in an {@link AtomicLong}, which is updated with compare and
+ * set. The buckets are held in a {@link ConcurrentHashMap}, so admission never blocks. Buckets of
+ * idle clients are removed while requests are filtered, no extra thread is needed. The number of
+ * buckets is capped: if there are too many clients, new clients share an overflow bucket of the
+ * path pattern, so a flood of new client addresses can't exhaust the memory.
+ *
+ * <p>The client is identified by the remote address of the request. Forwarded headers are
+ * resolved before, depending on {@code server.forward-headers-strategy}: by netty ({@code native})
+ * or by the {@link ScsForwardedHeaderTransformer} ({@code framework}).
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsRateLimiter implements WebFilter, Ordered {
+
+  /**
+   * The order of the filter; it runs before the security filter chain.
+   */
+  public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 10;
+
+  private static final PathPatternParser PATTERN_PARSER = new PathPatternParser();
+
+  private static final long MIN_SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+  private final List<Rule> rules = new ArrayList<>();
+
+  private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+  private final long idleTimeoutNanos;
+
+  private final int maxClients;
+
+  private final LongSupplier nanoClock;
+
+  private final AtomicLong lastSweep;
+
+  private final Counter rateRejected;
+
+  private final Counter concurrencyRejected;
+
+  private final Counter evicted;
+
+  private final Counter overflow;
+
+  /**
+   * Instantiates a new rate limiter.
+   *
+   * @param properties the properties
+   * @param meterRegistry the meter registry
+   */
+  public ScsRateLimiter(
+      @NotNull ScsProperties.RateLimit properties,
+      @NotNull MeterRegistry meterRegistry) {
+    this(properties, meterRegistry, System::nanoTime);
+  }
+
+  /**
+   * Instantiates a new rate limiter.
+   *
+   * @param properties the properties
+   * @param meterRegistry the meter registry
+   * @param nanoClock the clock in nanoseconds
+   */
+  ScsRateLimiter(
+      @NotNull ScsProperties.RateLimit properties,
+      @NotNull MeterRegistry meterRegistry,
+      @NotNull LongSupplier nanoClock) {
+    properties.getPatternLimitMap().forEach((key, limit) -> {
+      String pattern = key.startsWith("[") && key.endsWith("]")
+          ? key.substring(1, key.length() - 1)
+          : key;
+      rules.add(new Rule(rules.size(), PATTERN_PARSER.parse(pattern), limit,
+          Counter.builder("scs.rate-limit.accepted")
+              .description("Requests accepted by the rate limiter")
+              .tag("pattern", pattern)
+              .register(meterRegistry),
+          nanoClock.getAsLong()));
+    });
+    this.idleTimeoutNanos = properties.getIdleTimeout().toNanos();
+    this.maxClients = Math.max(1, properties.getMaxClients());
+    this.nanoClock = nanoClock;
+    this.lastSweep = new AtomicLong(nanoClock.getAsLong());
+    this.rateRejected = Counter.builder("scs.rate-limit.rejected")
+        .description("Requests rejected by the rate limiter")
+        .tag("reason", "rate")
+        .register(meterRegistry);
+    this.concurrencyRejected = Counter.builder("scs.rate-limit.rejected")
+        .description("Requests rejected by the rate limiter")
+        .tag("reason", "concurrency")
+        .register(meterRegistry);
+    this.evicted = Counter.builder("scs.rate-limit.evicted")
+        .description("Buckets of idle clients, that were removed")
+        .register(meterRegistry);
+    this.overflow = Counter.builder("scs.rate-limit.overflow")
+        .description("Requests of new clients, that share the overflow bucket")
+        .register(meterRegistry);
+    meterRegistry.gaugeMapSize("scs.rate-limit.clients", Tags.empty(), buckets);
+  }
+
+  @Override
+  public int getOrder() {
+    return ORDER;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    ServerHttpRequest request = exchange.getRequest();
+    Rule rule = findRule(request.getPath().pathWithinApplication());
+    if (rule == null) {
+      return chain.filter(exchange);
+    }
+    long now = nanoClock.getAsLong();
+    sweep(now);
+    String key = clientAddress(request) + '|' + rule.index;
+    Bucket bucket = buckets.get(key);
+    if (bucket == null) {
+      if (buckets.size() >= maxClients) {
+        overflow.increment();
+        bucket = rule.overflow;
+      } else {
+        bucket = buckets.computeIfAbsent(key, k -> new Bucket(now));
+      }
+    }
+    bucket.lastAccess = now;
+    long waitNanos = bucket.acquire(now, rule.intervalNanos, rule.toleranceNanos);
+    if (waitNanos > 0L) {
+      rateRejected.increment();
+      return reject(exchange, waitNanos);
+    }
+    if (rule.limit.getMaxConcurrent() <= 0) {
+      rule.accepted.increment();
+      return chain.filter(exchange);
+    }
+    if (bucket.concurrent.incrementAndGet() > rule.limit.getMaxConcurrent()) {
+      bucket.concurrent.decrementAndGet();
+      concurrencyRejected.increment();
+      return reject(exchange, TimeUnit.SECONDS.toNanos(1L));
+    }
+    rule.accepted.increment();
+    return chain.filter(exchange)
+        .doFinally(signalType -> bucket.concurrent.decrementAndGet());
+  }
+
+  private Rule findRule(PathContainer path) {
+    for (Rule rule : rules) {
+      if (rule.pattern.matches(path)) {
+        return rule;
+      }
+    }
+    return null;
+  }
+
+  private static String clientAddress(ServerHttpRequest request) {
+    InetSocketAddress remoteAddress = request.getRemoteAddress();
+    if (remoteAddress == null) {
+      return "unknown";
+    }
+    return remoteAddress.getAddress() != null
+        ? remoteAddress.getAddress().getHostAddress()
+        : remoteAddress.getHostString();
+  }
+
+  private static Mono<Void> reject(ServerWebExchange exchange, long waitNanos) {
+    ServerHttpResponse response = exchange.getResponse();
+    response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+    long seconds = Math.max(1L, (waitNanos + 999_999_999L) / 1_000_000_000L);
+    response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+    return response.setComplete();
+  }
+
+  /**
+   * Removes the buckets of idle clients. It runs at most every half idle timeout, or every
+   * second, if the max number of clients is reached.
+   *
+   * @param now the current time in nanoseconds
+   */
+  private void sweep(long now) {
+    long last = lastSweep.get();
+    long interval = buckets.size() >= maxClients
+        ? Math.min(idleTimeoutNanos / 2L, MIN_SWEEP_INTERVAL_NANOS)
+        : idleTimeoutNanos / 2L;
+    if (now - last < interval || !lastSweep.compareAndSet(last, now)) {
+      return;
+    }
+    int before = buckets.size();
+    buckets.values().removeIf(bucket -> now - bucket.lastAccess >= idleTimeoutNanos
+        && bucket.concurrent.get() == 0);
+    int removed = before - buckets.size();
+    if (removed > 0) {
+      evicted.increment(removed);
+      log.debug("Removed {} buckets of idle clients.", removed);
+    }
+  }
+
+  /**
+   * Gets the number of clients, whose buckets are held.
+   *
+   * @return the number of clients
+   */
+  int clients() {
+    return buckets.size();
+  }
+
+  /**
+   * A limit rule of a path pattern.
+   */
+  private static class Rule {
+
+    private final int index;
+
+    private final PathPattern pattern;
+
+    private final ScsProperties.Limit limit;
+
+    private final long intervalNanos;
+
+    private final long toleranceNanos;
+
+    private final Counter accepted;
+
+    private final Bucket overflow;
+
+    private Rule(
+        int index,
+        PathPattern pattern,
+        ScsProperties.Limit limit,
+        Counter accepted,
+        long now) {
+      this.index = index;
+      this.pattern = pattern;
+      this.limit = limit;
+      double rate = limit.getRequestsPerSecond() > 0. ? limit.getRequestsPerSecond() : 1.;
+      this.intervalNanos = Math.max(1L, (long) (1_000_000_000. / rate));
+      this.toleranceNanos = intervalNanos * (Math.max(1, limit.getBurst()) - 1L);
+      this.accepted = accepted;
+      this.overflow = new Bucket(now);
+    }
+  }
+
+  /**
+   * The bucket of a client.
+   */
+  static class Bucket {
+
+    private final AtomicLong theoreticalArrivalTime;
+
+    private final AtomicInteger concurrent = new AtomicInteger();
+
+    private volatile long lastAccess;
+
+    Bucket(long now) {
+      this.theoreticalArrivalTime = new AtomicLong(now);
+      this.lastAccess = now;
+    }
+
+    /**
+     * Acquires a token.
+     *
+     * @param now the current time in nanoseconds
+     * @param interval the emission interval in nanoseconds
+     * @param tolerance the burst tolerance in nanoseconds
+     * @return zero, if the token is acquired, otherwise the time to wait in nanoseconds
+     */
+    long acquire(long now, long interval, long tolerance) {
+      while (true) {
+        long tat = theoreticalArrivalTime.get();
+        long start = tat - now > 0L ? tat : now;
+        long wait = start - now - tolerance;
+        if (wait > 0L) {
+          return wait;
+        }
+        if (theoreticalArrivalTime.compareAndSet(tat, start + interval)) {
+          return 0L;
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The releases of the static content. The content location contains a directory for every
+ * release and a pointer file with the id of the current release:
+ *
+ * <pre>
+ * /opt/content/current            (contains e.g. 2020-07-01)
+ * /opt/content/releases/2020-06-15/
+ * /opt/content/releases/2020-07-01/
+ * </pre>
+ *
+ * <p>The pointer file is checked periodically. If it points to another release, the most
+ * frequently accessed paths of the new release are loaded into the caches and then the router
+ * is switched atomically to the new release. A rollback is done by writing the old id into the
+ * pointer file; its content is usually still cached. A new release is copied completely into
+ * its own directory before the pointer file is changed, so requests never see a half updated
+ * tree.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsReleases implements AutoCloseable {
+
+  private static final Pattern RELEASE_ID = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*");
+
+  /**
+   * The directory of the empty location, that is served, if there is no valid current release.
+   * It is not a valid release id, so no pointer file can point to it.
+   */
+  private static final String NO_RELEASE = ".no-release";
+
+  private final ScsProperties properties;
+
+  private final ScsRouterFunction router;
+
+  private final ScsAccessStatistics accessStatistics;
+
+  private volatile String current;
+
+  private Disposable task;
+
+  /**
+   * Instantiates new releases.
+   *
+   * @param properties the properties
+   * @param router the router
+   * @param accessStatistics the access statistics
+   */
+  public ScsReleases(
+      @NotNull ScsProperties properties,
+      @NotNull ScsRouterFunction router,
+      @NotNull ScsAccessStatistics accessStatistics) {
+    this.properties = properties;
+    this.router = router;
+    this.accessStatistics = accessStatistics;
+    this.current = readPointer(properties);
+  }
+
+  /**
+   * Gets the content location of the current release. If there is no valid current release, an
+   * empty location is returned, so that neither the pointer file nor the release directories
+   * are served, until the pointer file points to a release.
+   *
+   * @param properties the properties
+   * @return the location of the current release, an empty location, if there is no valid
+   *     current release, or {@code null}, if releases are disabled
+   */
+  public static Resource currentLocation(@NotNull ScsProperties properties) {
+    if (!properties.getReleases().isEnabled()) {
+      return null;
+    }
+    String id = readPointer(properties);
+    if (id == null) {
+      log.warn("There is no valid current release in {}, nothing is served.",
+          pointerFile(properties));
+      return location(properties, NO_RELEASE);
+    }
+    return location(properties, id);
+  }
+
+  /**
+   * Gets the id of the current release.
+   *
+   * @return the id of the current release or {@code null}
+   */
+  public String getCurrent() {
+    return current;
+  }
+
+  /**
+   * Starts checking the pointer file periodically.
+   *
+   * @return the releases
+   */
+  public synchronized ScsReleases start() {
+    if (task == null) {
+      long nanos = Math.max(1L, properties.getReleases().getCheckInterval().toNanos());
+      log.info("Current release is {}, checking {} every {}", current,
+          pointerFile(properties), properties.getReleases().getCheckInterval());
+      task = Schedulers.boundedElastic().schedulePeriodically(
+          this::check, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+    return this;
+  }
+
+  /**
+   * Checks the pointer file and switches to the release, it points to.
+   */
+  synchronized void check() {
+    String id = readPointer(properties);
+    if (id != null && !id.equals(current)) {
+      try {
+        switchTo(id);
+      } catch (RuntimeException e) {
+        log.error("Switching to release {} failed.", id, e);
+      }
+    }
+  }
+
+  private void switchTo(String id) {
+    long start = System.nanoTime();
+    Resource location = location(properties, id);
+    ScsResourceLookupFunction lookupFunction = new ScsResourceLookupFunction(
+        properties, location);
+    long evictions = router.getContentCache().evictions();
+    int loaded = 0;
+    for (Map.Entry<String, Long> entry
+        : accessStatistics.top(properties.getReleases().getWarmUpPaths())) {
+      try {
+        if (router.preload(lookupFunction, entry.getKey())) {
+          loaded++;
+        }
+      } catch (IOException e) {
+        log.debug("Warming up {} of release {} failed.", entry.getKey(), id, e);
+      }
+      if (router.getContentCache().evictions() != evictions) {
+        break;
+      }
+    }
+    ScsResourceLookupFunction oldLookupFunction = router.getLookupFunction();
+    router.setLookupFunction(lookupFunction);
+    oldLookupFunction.close();
+    log.info("Switched from release {} to release {}: warmed up = {}, duration = {} ms",
+        current, id, loaded, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    current = id;
+  }
+
+  private static Path pointerFile(ScsProperties properties) {
+    return Paths.get(properties.getContentLocation(), properties.getReleases().getPointerFile());
+  }
+
+  private static Resource location(ScsProperties properties, String id) {
+    return new FileSystemResource(properties.getContentLocation()
+        + properties.getReleases().getDirectory() + "/" + id + "/");
+  }
+
+  /**
+   * Reads the id of the current release from the pointer file.
+   *
+   * @param properties the properties
+   * @return the id of the current release or {@code null}, if the pointer file does not exist,
+   *     is invalid or points to a missing directory
+   */
+  static String readPointer(ScsProperties properties) {
+    Path pointerFile = pointerFile(properties);
+    String id;
+    try {
+      if (!Files.isRegularFile(pointerFile)) {
+        log.debug("Pointer file {} of the current release does not exist.", pointerFile);
+        return null;
+      }
+      id = new String(Files.readAllBytes(pointerFile), StandardCharsets.UTF_8).trim();
+    } catch (IOException e) {
+      log.warn("Reading pointer file {} failed.", pointerFile, e);
+      return null;
+    }
+    if (!RELEASE_ID.matcher(id).matches() || id.contains("..")) {
+      log.warn("Pointer file {} contains an invalid release id.", pointerFile);
+      return null;
+    }
+    File dir = new File(properties.getContentLocation()
+        + properties.getReleases().getDirectory(), id);
+    if (!dir.isDirectory()) {
+      log.warn("Release directory {} does not exist.", dir);
+      return null;
+    }
+    return id;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (task != null) {
+      task.dispose();
+      task = null;
+    }
+  }
+
+}
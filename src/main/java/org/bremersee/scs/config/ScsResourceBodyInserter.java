@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.io.IOException;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.bremersee.scs.config.ScsFlightRecorder.BodyWriteEvent;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Mono;
+
+/**
+ * The body inserter of a whole resource. Files of the file system are sent with zero copy, if it
+ * is enabled and supported by the server. Content in memory (and in memory mapped pack files) is
+ * wrapped. Otherwise the resource is read into buffers of the response buffer factory (pooled by
+ * netty), whose size depends on the content length. The buffers are released by the server after
+ * writing or when the download is cancelled.
+ *
+ * <p>Range requests are not handled here, see {@link ScsResourceHandlerFunction}.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsResourceBodyInserter implements BodyInserter<Resource, ReactiveHttpOutputMessage> {
+
+  private final Resource resource;
+
+  private final ScsProperties.ReadBuffer properties;
+
+  /**
+   * Instantiates a new resource body inserter.
+   *
+   * @param resource the resource
+   * @param properties the read buffer properties
+   */
+  public ScsResourceBodyInserter(
+      @NotNull Resource resource,
+      @NotNull ScsProperties.ReadBuffer properties) {
+    this.resource = resource;
+    this.properties = properties;
+  }
+
+  @Override
+  public Mono<Void> insert(ReactiveHttpOutputMessage message, Context context) {
+    BodyWriteEvent event = ScsFlightRecorder.begin(BodyWriteEvent.class, BodyWriteEvent::new);
+    long contentLength = contentLength();
+    Mono<Void> write = write(message, contentLength);
+    if (event == null) {
+      return write;
+    }
+    return write.doFinally(signal -> ScsFlightRecorder
+        .commit(event, resource.getFilename(), contentLength));
+  }
+
+  private Mono<Void> write(ReactiveHttpOutputMessage message, long contentLength) {
+    if (contentLength >= 0L) {
+      message.getHeaders().setContentLength(contentLength);
+    }
+    message.getHeaders().set(HttpHeaders.ACCEPT_RANGES, "bytes");
+    if (properties.isZeroCopy() && contentLength >= 0L && resource.isFile()
+        && message instanceof ZeroCopyHttpOutputMessage) {
+      try {
+        return ((ZeroCopyHttpOutputMessage) message)
+            .writeWith(resource.getFile(), 0L, contentLength);
+      } catch (IOException e) {
+        log.debug("Zero copy of {} is not possible, reading it into buffers.", resource, e);
+      }
+    }
+    if (resource instanceof ByteArrayResource) {
+      // the content is already in memory, it is written without copying
+      return message.writeWith(Mono.just(message.bufferFactory()
+          .wrap(((ByteArrayResource) resource).getByteArray())));
+    }
+    if (resource instanceof ScsPackResource) {
+      // the content is a slice of a memory mapped pack file or a direct buffer of a file on the
+      // classpath, it is written without copying
+      return message.writeWith(Mono.just(message.bufferFactory()
+          .wrap(((ScsPackResource) resource).getByteBuffer())));
+    }
+    int chunkSize = properties.chunkSize(contentLength);
+    return message.writeWith(DataBufferUtils.read(resource, message.bufferFactory(), chunkSize));
+  }
+
+  private long contentLength() {
+    try {
+      return resource.contentLength();
+    } catch (IOException e) {
+      return -1L;
+    }
+  }
+
+}
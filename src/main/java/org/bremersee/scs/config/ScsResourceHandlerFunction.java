@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+import javax.validation.constraints.NotNull;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.EntityResponse;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * The static content resource handler function. It works like the default resource handler
+ * function of spring, but applies the precomputed response headers and streams whole resources
+ * with the {@link ScsResourceBodyInserter}. Range requests are answered by spring.
+ *
+ * <p>{@code HEAD} requests and requests with failing preconditions ({@code 304 Not Modified},
+ * {@code 412 Precondition Failed}) are answered from the {@link ScsFileMetadata} only; the file
+ * is never opened.
+ *
+ * @author Christian Bremer
+ */
+public class ScsResourceHandlerFunction implements HandlerFunction<ServerResponse> {
+
+  private static final Set<HttpMethod> SUPPORTED_METHODS = EnumSet
+      .of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+
+  private final Resource resource;
+
+  private final HttpHeaders headers;
+
+  private final ScsProperties.ReadBuffer readBuffer;
+
+  /**
+   * Instantiates a new resource handler function.
+   *
+   * @param resource the resource
+   * @param headers the precomputed response headers
+   * @param readBuffer the read buffer properties
+   */
+  public ScsResourceHandlerFunction(
+      @NotNull Resource resource,
+      @NotNull HttpHeaders headers,
+      @NotNull ScsProperties.ReadBuffer readBuffer) {
+    this.resource = resource;
+    this.headers = headers;
+    this.readBuffer = readBuffer;
+  }
+
+  @Override
+  public Mono<ServerResponse> handle(ServerRequest request) {
+    HttpMethod method = request.method();
+    if (method == HttpMethod.GET || method == HttpMethod.HEAD) {
+      ScsFileMetadata metadata;
+      try {
+        metadata = ScsFileMetadata.of(resource);
+      } catch (IOException e) {
+        // the file was deleted after it was looked up
+        return ServerResponse.notFound().build();
+      }
+      HttpStatus status = metadata.evaluatePreconditions(method, request.headers().asHttpHeaders());
+      if (status == HttpStatus.NOT_MODIFIED) {
+        return ServerResponse.status(status)
+            .headers(httpHeaders -> {
+              httpHeaders.putAll(headers);
+              httpHeaders.remove(HttpHeaders.CONTENT_TYPE);
+              metadata.addValidatorsTo(httpHeaders);
+            })
+            .build();
+      }
+      if (status != null) {
+        return ServerResponse.status(status).build();
+      }
+      if (method == HttpMethod.HEAD) {
+        return ServerResponse.ok()
+            .headers(httpHeaders -> {
+              httpHeaders.putAll(headers);
+              httpHeaders.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+              metadata.addTo(httpHeaders);
+            })
+            .build();
+      }
+      if (request.headers().header(HttpHeaders.RANGE).isEmpty()) {
+        return ServerResponse.ok()
+            .headers(httpHeaders -> {
+              httpHeaders.putAll(headers);
+              metadata.addValidatorsTo(httpHeaders);
+            })
+            .body(new ScsResourceBodyInserter(resource, readBuffer));
+      }
+      return EntityResponse.fromObject(resource)
+          .headers(httpHeaders -> {
+            httpHeaders.putAll(headers);
+            metadata.addValidatorsTo(httpHeaders);
+          })
+          .build()
+          .map(response -> response);
+    }
+    if (method == HttpMethod.OPTIONS) {
+      return ServerResponse.ok()
+          .allow(SUPPORTED_METHODS)
+          .body(BodyInserters.empty());
+    }
+    return ServerResponse.status(HttpStatus.METHOD_NOT_ALLOWED)
+        .allow(SUPPORTED_METHODS)
+        .body(BodyInserters.empty());
+  }
+
+}
@@ -22,11 +22,15 @@ import static org.bremersee.scs.config.ScsProperties.createContentResource;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.charset.StandardCharsets;
 import java.util.function.Function;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import lombok.extern.slf4j.Slf4j;
+import org.bremersee.scs.config.ScsFlightRecorder.FileProbeEvent;
+import org.bremersee.scs.config.ScsFlightRecorder.IndexResolutionEvent;
+import org.bremersee.scs.config.ScsFlightRecorder.PathNormalizationEvent;
+import org.bremersee.scs.config.ScsFlightRecorder.PatternMatchEvent;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.server.PathContainer;
 import org.springframework.util.StringUtils;
@@ -37,31 +41,82 @@ import org.springframework.web.util.pattern.PathPatternParser;
 import reactor.core.publisher.Mono;
 
 /**
- * The static content resource lookup function.
+ * The static content resource lookup function. It is the last element of the resolver chain
+ * (see {@link ScsResourceResolvers}), that probes the file system and resolves the index file of
+ * a directory. The steps before (pattern match and path normalization, path filter, classpath
+ * content and pack store) are lookup stages of the chain, which use the parts of this function.
  *
  * @author Christian Bremer
  */
 @Validated
 @Slf4j
-public class ScsResourceLookupFunction implements Function<ServerRequest, Mono<Resource>> {
+public class ScsResourceLookupFunction
+    implements Function<ServerRequest, Mono<Resource>>, AutoCloseable {
+
+  /**
+   * The name of the request attribute, that contains the path of the resolved resource relative
+   * to the content location.
+   */
+  public static final String RESOURCE_PATH_ATTRIBUTE = ScsResourceLookupFunction.class.getName()
+      + ".resourcePath";
+
+  /**
+   * The name of the request attribute, that contains the path of a directory relative to the
+   * content location, if the request path points to a directory without an index file.
+   */
+  public static final String DIRECTORY_PATH_ATTRIBUTE = ScsResourceLookupFunction.class.getName()
+      + ".directoryPath";
+
+  /**
+   * The name of the request attribute, that contains the normalized request path relative to the
+   * content location. It is set by the first stage, that needs it.
+   */
+  public static final String NORMALIZED_PATH_ATTRIBUTE = ScsResourceLookupFunction.class
+      .getName() + ".normalizedPath";
 
   private static final PathPatternParser PATTERN_PARSER = new PathPatternParser();
 
   private final PathPattern pattern;
 
+  private final String patternPrefix;
+
+  private final ScsPathNormalizer pathNormalizer;
+
   private final Resource location;
 
   private final ScsProperties properties;
 
+  private final ScsPathFilter pathFilter;
+
+  private final ScsPackStore packStore;
+
+  private final ScsClasspathContent classpathContent;
+
   /**
    * Instantiates a new resource lookup function.
    *
    * @param properties the properties
    */
   public ScsResourceLookupFunction(@NotNull @Valid ScsProperties properties) {
+    this(properties, null);
+  }
+
+  /**
+   * Instantiates a new resource lookup function with the given content location, for example
+   * the directory of a release (see {@link ScsReleases}).
+   *
+   * @param properties the properties
+   * @param location the content location; if it is {@code null}, the content location of the
+   *     properties is used
+   */
+  public ScsResourceLookupFunction(@NotNull @Valid ScsProperties properties, Resource location) {
     this.properties = properties;
     this.pattern = PATTERN_PARSER.parse(properties.getPattern());
-    if (!this.properties.getContentLocation().toLowerCase()
+    this.patternPrefix = findPatternPrefix(properties.getPattern());
+    this.pathNormalizer = new ScsPathNormalizer(properties.getDecodedPathCacheSize());
+    if (location != null) {
+      this.location = location;
+    } else if (!this.properties.getContentLocation().toLowerCase()
         .startsWith(ScsProperties.CLASSPATH_PREFIX)) {
       File dir = new File(this.properties.getContentLocation());
       if (!dir.exists() || !dir.isDirectory()) {
@@ -74,57 +129,113 @@ public class ScsResourceLookupFunction implements Function<ServerRequest, Mono<R
     } else {
       this.location = properties.createContentResource();
     }
+    this.pathFilter = createPathFilter(properties, this.location);
+    this.packStore = createPackStore(properties, this.location, this.pathFilter);
+    this.classpathContent = createClasspathContent(properties, this.location);
+  }
+
+  private static ScsPathFilter createPathFilter(ScsProperties properties, Resource location) {
+    if (!properties.getPathFilter().isEnabled() || !location.isFile()) {
+      return null;
+    }
+    try {
+      return new ScsPathFilter(location.getFile().toPath(), properties.getPathFilter()).start();
+    } catch (IOException e) {
+      log.warn("Path filter of {} is not available.", location, e);
+      return null;
+    }
+  }
+
+  private static ScsPackStore createPackStore(
+      ScsProperties properties,
+      Resource location,
+      ScsPathFilter pathFilter) {
+    if (!properties.getPackStore().isEnabled() || !location.isFile()) {
+      return null;
+    }
+    try {
+      ScsPackStore packStore = new ScsPackStore(
+          location.getFile().toPath(), properties.getPackStore());
+      if (pathFilter != null) {
+        packStore.listenTo(pathFilter);
+      }
+      return packStore.start();
+    } catch (IOException e) {
+      log.warn("Pack store of {} is not available.", location, e);
+      return null;
+    }
+  }
+
+  private static ScsClasspathContent createClasspathContent(
+      ScsProperties properties,
+      Resource location) {
+    if (!properties.getClasspathContent().isEnabled() || !(location instanceof ClassPathResource)) {
+      return null;
+    }
+    try {
+      return new ScsClasspathContent((ClassPathResource) location,
+          properties.getClasspathContent());
+    } catch (IOException e) {
+      log.warn("Classpath content of {} is not held in memory.", location, e);
+      return null;
+    }
   }
 
   @SuppressWarnings("BlockingMethodInNonBlockingContext")
   @Override
   public Mono<Resource> apply(ServerRequest request) {
-    PathContainer pathContainer = request.pathContainer();
-    log.debug("Looking for static content of request path {}", pathContainer.value());
-    if (!this.pattern.matches(pathContainer)) {
-      log.debug("Pattern {} does not match request path, return no static content resource.",
-          properties.getPattern());
+    String path = normalizePath(request);
+    if (path == null) {
       return Mono.empty();
     }
-    pathContainer = this.pattern.extractPathWithinPattern(pathContainer);
-    String path = pathContainer.value();
-    log.debug("Extracted path is {}", path);
-    path = processPath(pathContainer.value());
-    log.debug("Processed path is {}", path);
-    if (path.contains("%")) {
-      path = StringUtils.uriDecode(path, StandardCharsets.UTF_8);
-      log.debug("Url decoded path is {}", path);
-    }
     if (!StringUtils.hasLength(path)) {
       log.debug("Path is empty, trying to find an index file.");
       path = findDirectoryIndex(path);
       if (StringUtils.isEmpty(path)) {
         log.debug("No index file was found, return no static content resource.");
+        request.attributes().put(DIRECTORY_PATH_ATTRIBUTE, "");
         return Mono.empty();
       }
       log.debug("An index file was found, path is {}", path);
+      return resolve(request, path, "");
     }
+    return resolve(request, path, null);
+  }
 
+  @SuppressWarnings("BlockingMethodInNonBlockingContext")
+  private Mono<Resource> resolve(ServerRequest request, String path, String directory) {
     try {
+      FileProbeEvent probeEvent = ScsFlightRecorder
+          .begin(FileProbeEvent.class, FileProbeEvent::new);
       Resource resource = this.location.createRelative(path);
       boolean exists = resource.exists();
       boolean isReadable = resource.isReadable();
+      ScsFlightRecorder.commit(probeEvent, path, isReadable ? resource : null);
       log.debug("Resource exists? {}, resource is readable? {}", exists, isReadable);
       if (exists && !isReadable) {
+        directory = path;
         String pathWithIndex = findDirectoryIndex(path);
         if (path.equals(pathWithIndex)) {
           log.debug("No index file was found, return no static content resource.");
+          request.attributes().put(DIRECTORY_PATH_ATTRIBUTE, directory);
           return Mono.empty();
         }
         path = pathWithIndex;
+        probeEvent = ScsFlightRecorder.begin(FileProbeEvent.class, FileProbeEvent::new);
         resource = this.location.createRelative(path);
+        exists = resource.exists();
         isReadable = resource.isReadable();
+        ScsFlightRecorder.commit(probeEvent, path, isReadable ? resource : null);
       }
       if (exists && isReadable) {
         log.debug("Returning static content resource {}", path);
+        request.attributes().put(RESOURCE_PATH_ATTRIBUTE, path);
         return Mono.just(resource);
       } else {
         log.debug("Resource ('{}') does not exists.", path);
+        if (directory != null) {
+          request.attributes().put(DIRECTORY_PATH_ATTRIBUTE, directory);
+        }
         return Mono.empty();
       }
     } catch (IOException ex) {
@@ -132,24 +243,234 @@ public class ScsResourceLookupFunction implements Function<ServerRequest, Mono<R
     }
   }
 
-  private String processPath(String path) {
-    boolean slash = false;
-    for (int i = 0; i < path.length(); i++) {
-      if (path.charAt(i) == '/') {
-        slash = true;
-      } else if (path.charAt(i) > ' ' && path.charAt(i) != 127) {
-        if (i == 0 || (i == 1 && slash)) {
-          return path;
-        }
-        path = slash ? "/" + path.substring(i) : path.substring(i);
-        return path;
+  /**
+   * Checks the path with the path filter (the lookup stage
+   * {@value ScsResourceResolvers#PATH_FILTER}).
+   *
+   * @param path the normalized path
+   * @return {@code false} if the path definitely does not exist, otherwise {@code true}
+   */
+  boolean passesPathFilter(String path) {
+    return pathFilter == null || pathFilter.mightContain(path);
+  }
+
+  /**
+   * Resolves the path with the classpath content in memory (the lookup stage
+   * {@value ScsResourceResolvers#CLASSPATH_CONTENT}).
+   *
+   * @param request the request
+   * @param path the normalized path
+   * @return the resource, empty or {@code null}, if the path must be resolved on the classpath
+   */
+  Mono<Resource> resolveInMemory(ServerRequest request, String path) {
+    if (classpathContent == null) {
+      return null;
+    }
+    String directory = null;
+    Resource resource = classpathContent.find(path);
+    if (resource == null && classpathContent.isDirectory(path)) {
+      directory = path;
+      path = findDirectoryIndex(path);
+      resource = classpathContent.find(path);
+    }
+    if (resource != null) {
+      log.debug("Returning static content resource {} from memory", path);
+      request.attributes().put(RESOURCE_PATH_ATTRIBUTE, path);
+      return Mono.just(resource);
+    }
+    if (!classpathContent.isComplete()) {
+      return null;
+    }
+    log.debug("Resource ('{}') does not exists in memory.", path);
+    if (directory != null) {
+      request.attributes().put(DIRECTORY_PATH_ATTRIBUTE, directory);
+    }
+    return Mono.empty();
+  }
+
+  /**
+   * Finds the packed file of the path (the lookup stage
+   * {@value ScsResourceResolvers#PACK_STORE}). The empty path is resolved to the index file.
+   *
+   * @param request the request
+   * @param path the normalized path
+   * @return the packed resource or {@code null}, if the file is not packed
+   * @throws IOException if the resource can't be created
+   */
+  Resource findPacked(ServerRequest request, String path) throws IOException {
+    if (packStore == null) {
+      return null;
+    }
+    String candidate = path.isEmpty() ? findDirectoryIndex(path) : path;
+    if (candidate.isEmpty()) {
+      return null;
+    }
+    FileProbeEvent probeEvent = ScsFlightRecorder.begin(FileProbeEvent.class, FileProbeEvent::new);
+    Resource packed = packStore.find(candidate, location.createRelative(candidate));
+    ScsFlightRecorder.commit(probeEvent, candidate, packed);
+    if (packed != null) {
+      log.debug("Returning packed static content resource {}", candidate);
+      request.attributes().put(RESOURCE_PATH_ATTRIBUTE, candidate);
+    }
+    return packed;
+  }
+
+  /**
+   * Gets the normalized path of the request. It is normalized only once per request and kept as
+   * request attribute {@link #NORMALIZED_PATH_ATTRIBUTE}.
+   *
+   * @param request the request
+   * @return the normalized path or {@code null}, if the pattern does not match or the path is
+   *     invalid
+   */
+  public String normalizePath(@NotNull ServerRequest request) {
+    Object value = request.attributes().get(NORMALIZED_PATH_ATTRIBUTE);
+    if (value instanceof String) {
+      return (String) value;
+    }
+    String path = normalizePath(request.pathContainer());
+    if (path != null) {
+      request.attributes().put(NORMALIZED_PATH_ATTRIBUTE, path);
+    }
+    return path;
+  }
+
+  /**
+   * Normalizes the request path. The result is the path relative to the content location.
+   *
+   * @param pathContainer the request path
+   * @return the normalized path or {@code null}, if the pattern does not match or the path is
+   *     invalid
+   */
+  public String normalizePath(PathContainer pathContainer) {
+    log.debug("Looking for static content of request path {}", pathContainer.value());
+    String value = pathContainer.value();
+    PatternMatchEvent matchEvent = ScsFlightRecorder
+        .begin(PatternMatchEvent.class, PatternMatchEvent::new);
+    boolean matches = this.pattern.matches(pathContainer);
+    ScsFlightRecorder.commit(matchEvent, value, -1L);
+    if (!matches) {
+      log.debug("Pattern {} does not match request path, return no static content resource.",
+          properties.getPattern());
+      return null;
+    }
+    PathNormalizationEvent normalizationEvent = ScsFlightRecorder
+        .begin(PathNormalizationEvent.class, PathNormalizationEvent::new);
+    String path;
+    if (patternPrefix != null && value.startsWith(patternPrefix)) {
+      path = pathNormalizer.normalize(value, patternPrefix.length());
+    } else {
+      path = pathNormalizer.normalize(
+          this.pattern.extractPathWithinPattern(pathContainer).value(), 0);
+    }
+    ScsFlightRecorder.commit(normalizationEvent, path, -1L);
+    if (path == null) {
+      log.debug("Request path is invalid, return no static content resource.");
+      return null;
+    }
+    log.debug("Normalized path is {}", path);
+    return path;
+  }
+
+  /**
+   * Normalizes a path relative to the content location, for example a path of the heat map.
+   * Percent encoded characters are decoded, {@code ..} segments are rejected.
+   *
+   * @param path the relative path
+   * @return the normalized path or {@code null}, if the path is invalid
+   */
+  public String normalizePath(String path) {
+    return pathNormalizer.normalize(path, 0);
+  }
+
+  /**
+   * Determines whether the path might exist. If the path filter is enabled or all files of a
+   * classpath location are held in memory, a path, that definitely does not exist, is detected
+   * without file system access.
+   *
+   * @param path the normalized path
+   * @return {@code false} if the path definitely does not exist, otherwise {@code true}
+   */
+  public boolean mightExist(@NotNull String path) {
+    if (classpathContent != null && classpathContent.isComplete()) {
+      return classpathContent.find(path) != null || classpathContent.isDirectory(path);
+    }
+    return pathFilter == null || pathFilter.mightContain(path);
+  }
+
+  /**
+   * Gets the content location.
+   *
+   * @return the content location
+   */
+  public Resource getLocation() {
+    return location;
+  }
+
+  /**
+   * Gets the path filter of the content location.
+   *
+   * @return the path filter or {@code null}, if the content location is not on the file system or
+   *     it is disabled
+   */
+  public ScsPathFilter getPathFilter() {
+    return pathFilter;
+  }
+
+  /**
+   * Gets the files of the classpath location, that are held in memory.
+   *
+   * @return the classpath content or {@code null}, if the content location is not on the
+   *     classpath or it is disabled
+   */
+  public ScsClasspathContent getClasspathContent() {
+    return classpathContent;
+  }
+
+  /**
+   * Creates the resource of the given path relative to the content location. A file, that is
+   * held in memory, is preferred.
+   *
+   * @param path the path relative to the content location
+   * @return the resource
+   * @throws IOException if the resource can't be created
+   */
+  public Resource createRelative(@NotNull String path) throws IOException {
+    Resource resource = classpathContent != null ? classpathContent.find(path) : null;
+    return resource != null ? resource : location.createRelative(path);
+  }
+
+  /**
+   * Find the literal prefix of a pattern like {@code /demo/**}. The path within such a pattern
+   * can be extracted without parsing it again.
+   *
+   * @param pattern the pattern
+   * @return the literal prefix or {@code null}, if the pattern is not of this kind
+   */
+  static String findPatternPrefix(String pattern) {
+    if (pattern == null || !pattern.endsWith("/**")) {
+      return null;
+    }
+    String prefix = pattern.substring(0, pattern.length() - 3);
+    for (int i = 0; i < prefix.length(); i++) {
+      char c = prefix.charAt(i);
+      if (c == '*' || c == '?' || c == '{' || c == '%' || c == ';') {
+        return null;
       }
     }
-    return (slash ? "/" : "");
+    return prefix;
   }
 
-  private String findDirectoryIndex(String path) {
-    return properties.findDirectoryIndex(path)
+  /**
+   * Finds the index file of a directory.
+   *
+   * @param path the path of the directory
+   * @return the path of the index file or the given path, if the directory has no index file
+   */
+  String findDirectoryIndex(String path) {
+    IndexResolutionEvent event = ScsFlightRecorder
+        .begin(IndexResolutionEvent.class, IndexResolutionEvent::new);
+    String pathWithIndex = properties.findDirectoryIndex(path)
         .map(index -> {
           if (StringUtils.hasLength(path)) {
             return path + "/" + index;
@@ -157,6 +478,18 @@ public class ScsResourceLookupFunction implements Function<ServerRequest, Mono<R
           return index;
         })
         .orElse(path);
+    ScsFlightRecorder.commit(event, pathWithIndex, -1L);
+    return pathWithIndex;
+  }
+
+  @Override
+  public void close() {
+    if (pathFilter != null) {
+      pathFilter.close();
+    }
+    if (packStore != null) {
+      packStore.close();
+    }
   }
 
 }
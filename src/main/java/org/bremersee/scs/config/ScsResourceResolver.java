@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import javax.validation.constraints.NotNull;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.Resource;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Mono;
+
+/**
+ * A stage of the resolver chain, that resolves the resource of a request. A stage may answer the
+ * request itself (short circuit), or it delegates to the rest of the chain and transforms the
+ * result. The last element of the chain is the lookup function of the content location.
+ *
+ * <p>Stages are sorted by their order; a stage with a lower order runs first and wraps the
+ * stages with a higher order. Beans of this type are added to the chain of every router.
+ *
+ * @author Christian Bremer
+ */
+public interface ScsResourceResolver extends Ordered {
+
+  /**
+   * Gets the name of the stage. It is used to configure the stage and as tag of the metrics.
+   *
+   * @return the name
+   */
+  String getName();
+
+  /**
+   * Resolves the resource of the request.
+   *
+   * @param request the request
+   * @param lookupFunction the lookup function of the content location
+   * @param chain the rest of the chain
+   * @return the resource or empty
+   */
+  Mono<Resource> resolve(
+      @NotNull ServerRequest request,
+      @NotNull ScsResourceLookupFunction lookupFunction,
+      @NotNull ScsResourceResolverChain chain);
+
+  @Override
+  default int getOrder() {
+    return Ordered.LOWEST_PRECEDENCE;
+  }
+
+}
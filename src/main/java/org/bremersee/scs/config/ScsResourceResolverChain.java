@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import javax.validation.constraints.NotNull;
+import org.springframework.core.io.Resource;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Mono;
+
+/**
+ * The rest of a resolver chain, that is passed to a {@link ScsResourceResolver}.
+ *
+ * @author Christian Bremer
+ */
+@FunctionalInterface
+public interface ScsResourceResolverChain {
+
+  /**
+   * Resolves the resource of the request with the remaining stages.
+   *
+   * @param request the request
+   * @param lookupFunction the lookup function of the content location
+   * @return the resource or empty
+   */
+  Mono<Resource> resolve(
+      @NotNull ServerRequest request,
+      @NotNull ScsResourceLookupFunction lookupFunction);
+
+}
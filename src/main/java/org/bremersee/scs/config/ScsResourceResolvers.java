@@ -0,0 +1,416 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Mono;
+
+/**
+ * The ordered chain of resolver stages of a router. The built-in stages are
+ *
+ * <ul>
+ *   <li>{@value #CONTENT_CACHE} (order {@value #CONTENT_CACHE_ORDER}), that serves the resolved
+ *   file from the content cache,</li>
+ *   <li>{@value #IMAGE_VARIANTS} (order {@value #IMAGE_VARIANTS_ORDER}), that replaces an image
+ *   by the requested variant,</li>
+ *   <li>{@value #FINGERPRINTS} (order {@value #FINGERPRINTS_ORDER}), that resolves
+ *   fingerprinted urls and rewrites html documents.</li>
+ * </ul>
+ *
+ * <p>They are followed by the lookup stages, that find the file of the request path; they always
+ * run after all other stages, so that every other stage sees their result:
+ *
+ * <ul>
+ *   <li>{@value #PATH_NORMALIZATION} (order {@value #PATH_NORMALIZATION_ORDER}), that matches
+ *   the pattern and normalizes the request path,</li>
+ *   <li>{@value #PATH_FILTER} (order {@value #PATH_FILTER_ORDER}), that rejects paths, which
+ *   definitely don't exist,</li>
+ *   <li>{@value #CLASSPATH_CONTENT} (order {@value #CLASSPATH_CONTENT_ORDER}), that serves the
+ *   files of a classpath location from memory,</li>
+ *   <li>{@value #PACK_STORE} (order {@value #PACK_STORE_ORDER}), that serves packed small
+ *   files.</li>
+ * </ul>
+ *
+ * <p>A lookup stage passes the request on, if its feature isn't available for the content
+ * location. The last element of the chain is the lookup function, that probes the file system
+ * and resolves the index file of a directory.
+ *
+ * <p>For {@code HEAD} requests no body is sent, so the built-in stages do not load the file into
+ * the content cache, do not rewrite html documents and do not render image variants; the
+ * response headers are taken from the resolved file (or from a variant, that is already cached).
+ *
+ * <p>A built-in stage is only part of the chain, if its feature is enabled. Stages can be
+ * disabled and reordered by name with the properties. The self time of every stage (without the
+ * time of the following stages) is recorded as timer {@code scs.resolver.duration}; a result,
+ * that a stage produced without calling the rest of the chain, is counted as
+ * {@code scs.resolver.short-circuits}. Both are tagged with the name of the stage.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsResourceResolvers implements ScsResourceResolverChain {
+
+  /**
+   * The name of the content cache stage.
+   */
+  public static final String CONTENT_CACHE = "content-cache";
+
+  /**
+   * The order of the content cache stage.
+   */
+  public static final int CONTENT_CACHE_ORDER = 1000;
+
+  /**
+   * The name of the image variants stage.
+   */
+  public static final String IMAGE_VARIANTS = "image-variants";
+
+  /**
+   * The order of the image variants stage.
+   */
+  public static final int IMAGE_VARIANTS_ORDER = 2000;
+
+  /**
+   * The name of the fingerprints stage.
+   */
+  public static final String FINGERPRINTS = "fingerprints";
+
+  /**
+   * The order of the fingerprints stage.
+   */
+  public static final int FINGERPRINTS_ORDER = 3000;
+
+  /**
+   * The name of the path normalization stage.
+   */
+  public static final String PATH_NORMALIZATION = "path-normalization";
+
+  /**
+   * The order of the path normalization stage.
+   */
+  public static final int PATH_NORMALIZATION_ORDER = 1000;
+
+  /**
+   * The name of the path filter stage.
+   */
+  public static final String PATH_FILTER = "path-filter";
+
+  /**
+   * The order of the path filter stage.
+   */
+  public static final int PATH_FILTER_ORDER = 2000;
+
+  /**
+   * The name of the classpath content stage.
+   */
+  public static final String CLASSPATH_CONTENT = "classpath-content";
+
+  /**
+   * The order of the classpath content stage.
+   */
+  public static final int CLASSPATH_CONTENT_ORDER = 3000;
+
+  /**
+   * The name of the pack store stage.
+   */
+  public static final String PACK_STORE = "pack-store";
+
+  /**
+   * The order of the pack store stage.
+   */
+  public static final int PACK_STORE_ORDER = 4000;
+
+  private final List<String> names;
+
+  private final ScsResourceResolverChain chain;
+
+  /**
+   * Instantiates a new resolver chain without metrics.
+   *
+   * @param resolvers the resolvers
+   */
+  public ScsResourceResolvers(@NotNull Collection<? extends ScsResourceResolver> resolvers) {
+    this(resolvers, new ScsProperties.ResolverChain(), null);
+  }
+
+  /**
+   * Instantiates a new resolver chain.
+   *
+   * @param resolvers the resolvers
+   * @param properties the properties
+   * @param meterRegistry the meter registry; if it is {@code null}, nothing is measured
+   */
+  public ScsResourceResolvers(
+      @NotNull Collection<? extends ScsResourceResolver> resolvers,
+      @NotNull ScsProperties.ResolverChain properties,
+      MeterRegistry meterRegistry) {
+    List<ScsResourceResolver> stages = sort(resolvers, properties);
+    stages.addAll(sort(lookupStages(), properties));
+    this.names = Collections.unmodifiableList(stages.stream()
+        .map(ScsResourceResolver::getName)
+        .collect(Collectors.toList()));
+    ScsResourceResolverChain next = (request, lookupFunction) -> lookupFunction.apply(request);
+    for (int i = stages.size() - 1; i >= 0; i--) {
+      next = properties.isMetrics() && meterRegistry != null
+          ? new MeasuredLink(stages.get(i), next, meterRegistry)
+          : new Link(stages.get(i), next);
+    }
+    this.chain = next;
+    log.debug("Resolver chain has stages {}", names);
+  }
+
+  private static List<ScsResourceResolver> sort(
+      Collection<? extends ScsResourceResolver> resolvers,
+      ScsProperties.ResolverChain properties) {
+    return resolvers.stream()
+        .filter(resolver -> !properties.getDisabledStages().contains(resolver.getName()))
+        .sorted(Comparator.comparingInt(resolver -> properties.getStageOrders()
+            .getOrDefault(resolver.getName(), resolver.getOrder())))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Creates the lookup stages. They use the features of the lookup function, that is passed to
+   * the chain, because it changes with the content location (see {@link ScsReleases}).
+   *
+   * @return the lookup stages
+   */
+  static List<ScsResourceResolver> lookupStages() {
+    List<ScsResourceResolver> stages = new ArrayList<>();
+    stages.add(new Stage(PATH_NORMALIZATION, PATH_NORMALIZATION_ORDER,
+        (request, lookupFunction, chain) -> lookupFunction.normalizePath(request) != null
+            ? chain.resolve(request, lookupFunction)
+            : Mono.empty()));
+    stages.add(new Stage(PATH_FILTER, PATH_FILTER_ORDER, (request, lookupFunction, chain) -> {
+      String path = lookupFunction.normalizePath(request);
+      if (path != null && !lookupFunction.passesPathFilter(path)) {
+        log.debug("Path {} does not exist (path filter), return no static content resource.",
+            path);
+        return Mono.empty();
+      }
+      return chain.resolve(request, lookupFunction);
+    }));
+    stages.add(new Stage(CLASSPATH_CONTENT, CLASSPATH_CONTENT_ORDER,
+        (request, lookupFunction, chain) -> {
+          String path = lookupFunction.normalizePath(request);
+          Mono<Resource> resolved = path != null
+              ? lookupFunction.resolveInMemory(request, path)
+              : null;
+          return resolved != null ? resolved : chain.resolve(request, lookupFunction);
+        }));
+    stages.add(new Stage(PACK_STORE, PACK_STORE_ORDER, (request, lookupFunction, chain) -> {
+      String path = lookupFunction.normalizePath(request);
+      Resource packed;
+      try {
+        packed = path != null ? lookupFunction.findPacked(request, path) : null;
+      } catch (IOException e) {
+        return Mono.error(new UncheckedIOException(e));
+      }
+      return packed != null ? Mono.just(packed) : chain.resolve(request, lookupFunction);
+    }));
+    return stages;
+  }
+
+  /**
+   * Creates the built-in stages, whose features are enabled.
+   *
+   * @param contentCache the content cache
+   * @param imageVariants the image variants
+   * @param fingerprints the fingerprints
+   * @return the built-in stages
+   */
+  public static List<ScsResourceResolver> defaults(
+      @NotNull ScsContentCache contentCache,
+      @NotNull ScsImageVariants imageVariants,
+      @NotNull ScsFingerprints fingerprints) {
+    List<ScsResourceResolver> stages = new ArrayList<>();
+    if (contentCache.isEnabled()) {
+      stages.add(new Stage(CONTENT_CACHE, CONTENT_CACHE_ORDER,
+          (request, lookupFunction, chain) -> isHead(request)
+              ? chain.resolve(request, lookupFunction)
+              : chain.resolve(request, lookupFunction).flatMap(contentCache::apply)));
+    }
+    if (imageVariants.isEnabled()) {
+      stages.add(new Stage(IMAGE_VARIANTS, IMAGE_VARIANTS_ORDER,
+          (request, lookupFunction, chain) -> chain.resolve(request, lookupFunction)
+              .flatMap(resource -> imageVariants.apply(request, resource))));
+    }
+    if (fingerprints.isEnabled()) {
+      stages.add(new Stage(FINGERPRINTS, FINGERPRINTS_ORDER,
+          (request, lookupFunction, chain) -> (isHead(request)
+              ? chain.resolve(request, lookupFunction)
+              : chain.resolve(request, lookupFunction)
+                  .flatMap(resource -> fingerprints.rewrite(request, resource, lookupFunction)))
+              .switchIfEmpty(Mono.defer(() -> fingerprints.resolve(request, lookupFunction)))));
+    }
+    return stages;
+  }
+
+  private static boolean isHead(ServerRequest request) {
+    return request.method() == HttpMethod.HEAD;
+  }
+
+  /**
+   * Gets the names of the stages in the order of their execution.
+   *
+   * @return the names of the stages
+   */
+  public List<String> getNames() {
+    return names;
+  }
+
+  @Override
+  public Mono<Resource> resolve(
+      @NotNull ServerRequest request,
+      @NotNull ScsResourceLookupFunction lookupFunction) {
+    return chain.resolve(request, lookupFunction);
+  }
+
+  private interface Resolution {
+
+    Mono<Resource> resolve(
+        ServerRequest request,
+        ScsResourceLookupFunction lookupFunction,
+        ScsResourceResolverChain chain);
+  }
+
+  private static class Stage implements ScsResourceResolver {
+
+    private final String name;
+
+    private final int order;
+
+    private final Resolution resolution;
+
+    private Stage(String name, int order, Resolution resolution) {
+      this.name = name;
+      this.order = order;
+      this.resolution = resolution;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public int getOrder() {
+      return order;
+    }
+
+    @Override
+    public Mono<Resource> resolve(
+        ServerRequest request,
+        ScsResourceLookupFunction lookupFunction,
+        ScsResourceResolverChain chain) {
+      return resolution.resolve(request, lookupFunction, chain);
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  private static class Link implements ScsResourceResolverChain {
+
+    final ScsResourceResolver resolver;
+
+    final ScsResourceResolverChain next;
+
+    private Link(ScsResourceResolver resolver, ScsResourceResolverChain next) {
+      this.resolver = resolver;
+      this.next = next;
+    }
+
+    @Override
+    public Mono<Resource> resolve(
+        ServerRequest request,
+        ScsResourceLookupFunction lookupFunction) {
+      return resolver.resolve(request, lookupFunction, next);
+    }
+  }
+
+  private static class MeasuredLink extends Link {
+
+    private final Timer duration;
+
+    private final Counter shortCircuits;
+
+    private MeasuredLink(
+        ScsResourceResolver resolver,
+        ScsResourceResolverChain next,
+        MeterRegistry meterRegistry) {
+      super(resolver, next);
+      this.duration = Timer.builder("scs.resolver.duration")
+          .description("Time spent in a stage of the resolver chain without the following stages")
+          .tag("stage", resolver.getName())
+          .register(meterRegistry);
+      this.shortCircuits = Counter.builder("scs.resolver.short-circuits")
+          .description("Resolutions, that a stage finished without the following stages")
+          .tag("stage", resolver.getName())
+          .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Resource> resolve(
+        ServerRequest request,
+        ScsResourceLookupFunction lookupFunction) {
+      return Mono.defer(() -> {
+        long start = System.nanoTime();
+        // the time of the following stages ends with their result, before this stage
+        // processes it; -1 means, that they were not called
+        AtomicLong downstream = new AtomicLong(-1L);
+        ScsResourceResolverChain measuredNext = (req, function) -> Mono.defer(() -> {
+          long nextStart = System.nanoTime();
+          downstream.compareAndSet(-1L, 0L);
+          return next.resolve(req, function)
+              .doOnSuccess(resource -> downstream.addAndGet(System.nanoTime() - nextStart))
+              .doOnError(error -> downstream.addAndGet(System.nanoTime() - nextStart));
+        });
+        return resolver.resolve(request, lookupFunction, measuredNext)
+            .doFinally(signal -> {
+              long nanos = downstream.get();
+              if (nanos < 0L) {
+                shortCircuits.increment();
+              }
+              duration.record(
+                  Math.max(0L, System.nanoTime() - start - Math.max(0L, nanos)),
+                  TimeUnit.NANOSECONDS);
+            });
+      });
+    }
+  }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+/**
+ * The precomputed response headers. For every combination of cache control path pattern and file
+ * extension there is exactly one read only header block, that contains the content type (with
+ * charset), the cache control, the vary and the additional headers. The header blocks of the
+ * 4096 recently served paths are remembered in a least recently used cache, so that such a path
+ * needs just one cache lookup; every other path needs a pattern match and an extension lookup.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsResponseHeaders {
+
+  private static final PathPatternParser PATTERN_PARSER = new PathPatternParser();
+
+  private static final int MAX_PATH_ENTRIES = 4096;
+
+  private static final String NO_EXTENSION = "";
+
+  private final Charset defaultCharset;
+
+  private final List<PathPattern> patterns = new ArrayList<>();
+
+  private final List<String> cacheControls = new ArrayList<>();
+
+  private final List<Map<String, HttpHeaders>> extensionTables = new ArrayList<>();
+
+  private final ScsCache<String, HttpHeaders> pathTable = new ScsCache<>(
+      "response-headers",
+      MAX_PATH_ENTRIES);
+
+  private final HttpHeaders commonHeaders = new HttpHeaders();
+
+  /**
+   * Instantiates new response headers.
+   *
+   * @param properties the properties
+   */
+  public ScsResponseHeaders(@NotNull ScsProperties.ResponseHeaders properties) {
+    this.defaultCharset = StringUtils.hasText(properties.getDefaultCharset())
+        ? Charset.forName(properties.getDefaultCharset().trim())
+        : null;
+    properties.getCacheControlPatternMap().forEach((key, value) -> {
+      String pattern = key.startsWith("[") && key.endsWith("]")
+          ? key.substring(1, key.length() - 1)
+          : key;
+      patterns.add(PATTERN_PARSER.parse(pattern));
+      cacheControls.add(value);
+    });
+    for (int i = 0; i <= patterns.size(); i++) {
+      extensionTables.add(new ConcurrentHashMap<>());
+    }
+    if (!properties.getVary().isEmpty()) {
+      commonHeaders.setVary(properties.getVary());
+    }
+    properties.getHeaders().forEach(commonHeaders::set);
+  }
+
+  /**
+   * Gets the cache of the recently served paths.
+   *
+   * @return the cache
+   */
+  public ScsCache<?, ?> getCache() {
+    return pathTable;
+  }
+
+  /**
+   * Gets the read only response headers of the given content path.
+   *
+   * @param path the path of the resource relative to the content location
+   * @return the response headers
+   */
+  public HttpHeaders get(@NotNull String path) {
+    HttpHeaders headers = pathTable.get(path);
+    if (headers == null) {
+      headers = build(path);
+      pathTable.put(path, headers);
+    }
+    return headers;
+  }
+
+  /**
+   * Builds the header blocks of the given paths in advance. The paths are not remembered, so
+   * that the recently served paths aren't evicted.
+   *
+   * @param paths the paths relative to the content location
+   */
+  public void warmUp(@NotNull Collection<String> paths) {
+    paths.forEach(this::build);
+  }
+
+  private HttpHeaders build(String path) {
+    int patternIndex = findPatternIndex(path);
+    return extensionTables.get(patternIndex + 1)
+        .computeIfAbsent(extension(path), ext -> build(patternIndex, ext));
+  }
+
+  private int findPatternIndex(String path) {
+    if (patterns.isEmpty()) {
+      return -1;
+    }
+    PathContainer pathContainer = PathContainer.parsePath("/" + path);
+    for (int i = 0; i < patterns.size(); i++) {
+      if (patterns.get(i).matches(pathContainer)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private HttpHeaders build(int patternIndex, String extension) {
+    HttpHeaders headers = new HttpHeaders();
+    MediaType mediaType = MediaTypeFactory
+        .getMediaType(NO_EXTENSION.equals(extension) ? "file" : "file." + extension)
+        .orElse(MediaType.APPLICATION_OCTET_STREAM);
+    if (defaultCharset != null && mediaType.getCharset() == null && isText(mediaType)) {
+      mediaType = new MediaType(mediaType, defaultCharset);
+    }
+    headers.setContentType(mediaType);
+    if (patternIndex >= 0) {
+      headers.setCacheControl(cacheControls.get(patternIndex));
+    }
+    headers.putAll(commonHeaders);
+    log.debug("Response headers of extension '{}' and pattern index {}: {}",
+        extension, patternIndex, headers);
+    return HttpHeaders.readOnlyHttpHeaders(headers);
+  }
+
+  private static String extension(String path) {
+    int slash = path.lastIndexOf('/');
+    int dot = path.lastIndexOf('.');
+    return dot > slash && dot < path.length() - 1
+        ? path.substring(dot + 1).toLowerCase()
+        : NO_EXTENSION;
+  }
+
+  private static boolean isText(MediaType mediaType) {
+    String subtype = mediaType.getSubtype();
+    return "text".equals(mediaType.getType())
+        || "javascript".equals(subtype)
+        || "json".equals(subtype)
+        || "xml".equals(subtype)
+        || subtype.endsWith("+json")
+        || subtype.endsWith("+xml");
+  }
+
+}
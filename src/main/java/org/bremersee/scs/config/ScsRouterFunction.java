@@ -0,0 +1,280 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.bremersee.scs.config.ScsFingerprints.FINGERPRINT_ATTRIBUTE;
+import static org.bremersee.scs.config.ScsImageVariants.FALLBACK_ATTRIBUTE;
+import static org.bremersee.scs.config.ScsImageVariants.VARIANT_TYPE_ATTRIBUTE;
+import static org.bremersee.scs.config.ScsResourceLookupFunction.RESOURCE_PATH_ATTRIBUTE;
+
+import java.io.IOException;
+import javax.validation.constraints.NotNull;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * The static content router function.
+ *
+ * @author Christian Bremer
+ */
+public class ScsRouterFunction implements RouterFunction<ServerResponse>, AutoCloseable {
+
+  private volatile ScsResourceLookupFunction lookupFunction;
+
+  private final ScsResponseHeaders responseHeaders;
+
+  private final ScsProperties.ReadBuffer readBuffer;
+
+  private final ScsDirectoryListing directoryListing;
+
+  private final ScsZipDownload zipDownload;
+
+  private final ScsFingerprints fingerprints;
+
+  private final ScsContentCache contentCache;
+
+  private final ScsImageVariants imageVariants;
+
+  private final ScsAccessStatistics accessStatistics;
+
+  private final ScsResourceResolvers resolvers;
+
+  private ScsVirtualHosts virtualHosts = new ScsVirtualHosts();
+
+  /**
+   * Instantiates a new static content router function.
+   *
+   * @param lookupFunction the lookup function
+   * @param responseHeaders the response headers
+   * @param readBuffer the read buffer properties
+   * @param directoryListing the directory listing
+   * @param zipDownload the zip download
+   * @param fingerprints the fingerprints
+   * @param contentCache the content cache
+   * @param imageVariants the image variants
+   * @param accessStatistics the access statistics
+   * @param resolvers the resolver chain
+   */
+  public ScsRouterFunction(
+      @NotNull ScsResourceLookupFunction lookupFunction,
+      @NotNull ScsResponseHeaders responseHeaders,
+      @NotNull ScsProperties.ReadBuffer readBuffer,
+      @NotNull ScsDirectoryListing directoryListing,
+      @NotNull ScsZipDownload zipDownload,
+      @NotNull ScsFingerprints fingerprints,
+      @NotNull ScsContentCache contentCache,
+      @NotNull ScsImageVariants imageVariants,
+      @NotNull ScsAccessStatistics accessStatistics,
+      @NotNull ScsResourceResolvers resolvers) {
+    this.lookupFunction = lookupFunction;
+    this.responseHeaders = responseHeaders;
+    this.readBuffer = readBuffer;
+    this.directoryListing = directoryListing;
+    this.zipDownload = zipDownload;
+    this.fingerprints = fingerprints;
+    this.contentCache = contentCache;
+    this.imageVariants = imageVariants;
+    this.accessStatistics = accessStatistics;
+    this.resolvers = resolvers;
+    ScsClasspathContent classpathContent = lookupFunction.getClasspathContent();
+    if (classpathContent != null) {
+      // the response headers of the files in memory are computed once
+      responseHeaders.warmUp(classpathContent.getPaths());
+    }
+  }
+
+  /**
+   * Gets the lookup function.
+   *
+   * @return the lookup function
+   */
+  public ScsResourceLookupFunction getLookupFunction() {
+    return lookupFunction;
+  }
+
+  /**
+   * Sets the lookup function. This switches atomically to another content location; a request,
+   * that is already routed, is served completely from the old location.
+   *
+   * @param lookupFunction the lookup function
+   */
+  public void setLookupFunction(@NotNull ScsResourceLookupFunction lookupFunction) {
+    this.lookupFunction = lookupFunction;
+  }
+
+  /**
+   * Gets the resolver chain.
+   *
+   * @return the resolver chain
+   */
+  public ScsResourceResolvers getResolvers() {
+    return resolvers;
+  }
+
+  /**
+   * Gets the virtual hosts.
+   *
+   * @return the virtual hosts
+   */
+  public ScsVirtualHosts getVirtualHosts() {
+    return virtualHosts;
+  }
+
+  /**
+   * Sets the virtual hosts. Requests of a virtual host are routed by the router of the host.
+   *
+   * @param virtualHosts the virtual hosts
+   */
+  public void setVirtualHosts(@NotNull ScsVirtualHosts virtualHosts) {
+    this.virtualHosts = virtualHosts;
+  }
+
+  /**
+   * Gets the directory listing.
+   *
+   * @return the directory listing
+   */
+  public ScsDirectoryListing getDirectoryListing() {
+    return directoryListing;
+  }
+
+  /**
+   * Gets the fingerprints.
+   *
+   * @return the fingerprints
+   */
+  public ScsFingerprints getFingerprints() {
+    return fingerprints;
+  }
+
+  /**
+   * Gets the content cache.
+   *
+   * @return the content cache
+   */
+  public ScsContentCache getContentCache() {
+    return contentCache;
+  }
+
+  /**
+   * Gets the image variants.
+   *
+   * @return the image variants
+   */
+  public ScsImageVariants getImageVariants() {
+    return imageVariants;
+  }
+
+  /**
+   * Gets the access statistics of the content location.
+   *
+   * @return the access statistics
+   */
+  public ScsAccessStatistics getAccessStatistics() {
+    return accessStatistics;
+  }
+
+  /**
+   * Loads a file into the content cache and the fingerprint index. This is done with blocking
+   * I/O.
+   *
+   * @param path the path relative to the content location
+   * @return {@code true} if the file was loaded, otherwise {@code false}
+   * @throws IOException if reading the file fails
+   */
+  public boolean preload(@NotNull String path) throws IOException {
+    return preload(lookupFunction, path);
+  }
+
+  /**
+   * Loads a file of the content location of the given lookup function into the content cache
+   * and the fingerprint index. This is done with blocking I/O.
+   *
+   * @param lookupFunction the lookup function
+   * @param path the path relative to the content location
+   * @return {@code true} if the file was loaded, otherwise {@code false}
+   * @throws IOException if reading the file fails
+   */
+  public boolean preload(
+      @NotNull ScsResourceLookupFunction lookupFunction,
+      @NotNull String path) throws IOException {
+    if (path.isEmpty()) {
+      return false;
+    }
+    Resource resource = lookupFunction.createRelative(path);
+    if (!resource.exists() || !resource.isReadable()) {
+      return false;
+    }
+    boolean cached = contentCache.load(resource) != resource;
+    boolean fingerprinted = fingerprints.preload(path, resource);
+    return cached || fingerprinted;
+  }
+
+  @Override
+  public Mono<HandlerFunction<ServerResponse>> route(ServerRequest request) {
+    ScsRouterFunction virtualHost = virtualHosts.find(request);
+    if (virtualHost != null) {
+      return virtualHost.route(request);
+    }
+    ScsResourceLookupFunction lookupFunction = this.lookupFunction;
+    return zipDownload.route(request, lookupFunction)
+        .switchIfEmpty(Mono.defer(() -> routeResource(request, lookupFunction)))
+        .switchIfEmpty(Mono.defer(() -> directoryListing
+            .route(request, lookupFunction.getLocation())));
+  }
+
+  private Mono<HandlerFunction<ServerResponse>> routeResource(
+      ServerRequest request,
+      ScsResourceLookupFunction lookupFunction) {
+    return resolvers.resolve(request, lookupFunction)
+        .map(resource -> createHandlerFunction(request, resource));
+  }
+
+  private HandlerFunction<ServerResponse> createHandlerFunction(
+      ServerRequest request,
+      Resource resource) {
+    String path = (String) request.attributes().get(RESOURCE_PATH_ATTRIBUTE);
+    if (path == null) {
+      path = resource.getFilename() != null ? resource.getFilename() : "";
+    }
+    accessStatistics.record(path);
+    HttpHeaders headers = responseHeaders.get(path);
+    if (Boolean.TRUE.equals(request.attributes().get(FINGERPRINT_ATTRIBUTE))) {
+      headers = fingerprints.immutableHeaders(headers);
+    }
+    MediaType variantType = (MediaType) request.attributes().get(VARIANT_TYPE_ATTRIBUTE);
+    if (variantType != null) {
+      headers = imageVariants.variantHeaders(headers, variantType);
+    } else if (Boolean.TRUE.equals(request.attributes().get(FALLBACK_ATTRIBUTE))) {
+      headers = imageVariants.fallbackHeaders(headers);
+    }
+    return new ScsResourceHandlerFunction(resource, headers, readBuffer);
+  }
+
+  @Override
+  public void close() {
+    lookupFunction.close();
+    virtualHosts.getRouters().values().forEach(ScsRouterFunction::close);
+  }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.nio.NioEventLoopGroup;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.bremersee.scs.config.ScsProperties.TransportType;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.util.ClassUtils;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+import reactor.netty.tcp.TcpServer;
+
+/**
+ * The transport of the server. It runs the server on its own event loops with the configured
+ * transport type (native epoll or NIO), number of threads and socket options. If the native
+ * transport is not available, NIO is used.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsTransport implements NettyServerCustomizer, AutoCloseable {
+
+  private static final String EPOLL_CLASS = "io.netty.channel.epoll.Epoll";
+
+  private final ScsProperties.Transport properties;
+
+  private final boolean preferNative;
+
+  private final boolean epoll;
+
+  private final LoopResources loopResources;
+
+  /**
+   * Instantiates a new transport.
+   *
+   * @param properties the properties
+   */
+  public ScsTransport(@NotNull ScsProperties.Transport properties) {
+    this.properties = properties;
+    this.preferNative = preferNative(properties.getType());
+    this.epoll = preferNative && isEpollAvailable();
+    int workerThreads = properties.getWorkerThreads() > 0
+        ? properties.getWorkerThreads()
+        : LoopResources.DEFAULT_IO_WORKER_COUNT;
+    // with -1 the worker threads accept the connections, too
+    int selectThreads = properties.getSelectThreads() > 0 ? properties.getSelectThreads() : -1;
+    this.loopResources = LoopResources.create("scs-http", selectThreads, workerThreads, true);
+    log.info("Server transport is {} (configured {}): select threads = {}, worker threads = {}",
+        getName(), properties.getType(), selectThreads > 0 ? selectThreads : "workers",
+        workerThreads);
+  }
+
+  /**
+   * Determines whether the native epoll transport is available.
+   *
+   * @return {@code true} if the native epoll transport is available, otherwise {@code false}
+   */
+  public static boolean isEpollAvailable() {
+    return ClassUtils.isPresent(EPOLL_CLASS, ScsTransport.class.getClassLoader())
+        && Epoll.isAvailable();
+  }
+
+  private static boolean preferNative(TransportType type) {
+    switch (type) {
+      case NIO:
+        return false;
+      case EPOLL:
+        if (!isEpollAvailable()) {
+          log.warn("Native epoll transport is not available, using NIO.", unavailabilityCause());
+          return false;
+        }
+        return true;
+      default:
+        return LoopResources.DEFAULT_NATIVE;
+    }
+  }
+
+  private static Throwable unavailabilityCause() {
+    return ClassUtils.isPresent(EPOLL_CLASS, ScsTransport.class.getClassLoader())
+        ? Epoll.unavailabilityCause()
+        : new ClassNotFoundException(EPOLL_CLASS);
+  }
+
+  /**
+   * Gets the name of the used transport ({@code epoll}, {@code nio} or {@code native}, if
+   * another native transport like kqueue is used).
+   *
+   * @return the name
+   */
+  public String getName() {
+    if (epoll) {
+      return "epoll";
+    }
+    return preferNative && !(getEventLoops() instanceof NioEventLoopGroup)
+        ? "native"
+        : "nio";
+  }
+
+  /**
+   * Gets the event loops of the server.
+   *
+   * @return the event loops
+   */
+  public EventLoopGroup getEventLoops() {
+    return loopResources.onServer(preferNative);
+  }
+
+  @Override
+  public HttpServer apply(HttpServer httpServer) {
+    return httpServer.tcpConfiguration(this::configure);
+  }
+
+  private TcpServer configure(TcpServer tcpServer) {
+    TcpServer server = tcpServer
+        .runOn(loopResources, preferNative)
+        .option(ChannelOption.TCP_NODELAY, properties.isTcpNoDelay())
+        .option(ChannelOption.SO_KEEPALIVE, properties.isKeepAlive());
+    if (properties.getBacklog() > 0) {
+      server = server.selectorOption(ChannelOption.SO_BACKLOG, properties.getBacklog());
+    }
+    if (properties.isReusePort()) {
+      if (epoll) {
+        server = server.selectorOption(EpollChannelOption.SO_REUSEPORT, true);
+      } else {
+        log.warn("Reuse port is only supported by the native epoll transport.");
+      }
+    }
+    return server;
+  }
+
+  @Override
+  public void close() {
+    loopResources.dispose();
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.validation.constraints.NotNull;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+/**
+ * The virtual hosts. The host names are compiled into hash tables: an exact host name is found
+ * with one lookup, a wildcard host name (e.g. {@code *.example.org}) with one lookup per domain
+ * label of the requested host. The most specific wildcard wins.
+ *
+ * @author Christian Bremer
+ */
+public class ScsVirtualHosts {
+
+  private static final String WILDCARD_PREFIX = "*.";
+
+  private final Map<String, ScsRouterFunction> exactHosts = new HashMap<>();
+
+  private final Map<String, ScsRouterFunction> wildcardHosts = new HashMap<>();
+
+  private final Map<String, ScsRouterFunction> routers = new LinkedHashMap<>();
+
+  /**
+   * Adds a virtual host.
+   *
+   * @param host the host name or a wildcard host name like {@code *.example.org}; a port is
+   *     ignored
+   * @param router the router of the host
+   * @return the virtual hosts
+   */
+  public ScsVirtualHosts add(@NotNull String host, @NotNull ScsRouterFunction router) {
+    String name = normalize(host);
+    if (name.startsWith(WILDCARD_PREFIX)) {
+      wildcardHosts.put(name.substring(WILDCARD_PREFIX.length()), router);
+    } else {
+      exactHosts.put(name, router);
+    }
+    routers.put(name, router);
+    return this;
+  }
+
+  /**
+   * Determines whether there are no virtual hosts.
+   *
+   * @return {@code true} if there are no virtual hosts, otherwise {@code false}
+   */
+  public boolean isEmpty() {
+    return routers.isEmpty();
+  }
+
+  /**
+   * Gets the routers of the virtual hosts.
+   *
+   * @return the routers by host name
+   */
+  public Map<String, ScsRouterFunction> getRouters() {
+    return Collections.unmodifiableMap(routers);
+  }
+
+  /**
+   * Finds the router of the host of the request.
+   *
+   * @param request the request
+   * @return the router or {@code null}, if the host is not a virtual host
+   */
+  public ScsRouterFunction find(@NotNull ServerRequest request) {
+    if (routers.isEmpty()) {
+      return null;
+    }
+    InetSocketAddress host = request.headers().host();
+    return host != null ? find(host.getHostString()) : null;
+  }
+
+  /**
+   * Finds the router of a host.
+   *
+   * @param host the host name
+   * @return the router or {@code null}, if the host is not a virtual host
+   */
+  public ScsRouterFunction find(String host) {
+    if (host == null || host.isEmpty()) {
+      return null;
+    }
+    String name = normalize(host);
+    ScsRouterFunction router = exactHosts.get(name);
+    if (router != null || wildcardHosts.isEmpty()) {
+      return router;
+    }
+    for (int index = name.indexOf('.'); index >= 0; index = name.indexOf('.', index + 1)) {
+      router = wildcardHosts.get(name.substring(index + 1));
+      if (router != null) {
+        return router;
+      }
+    }
+    return null;
+  }
+
+  private static String normalize(String host) {
+    String name = host.trim();
+    if (name.startsWith("[") && name.endsWith("]")) {
+      name = name.substring(1, name.length() - 1);
+    }
+    int colon = name.lastIndexOf(':');
+    if (colon > 0 && name.indexOf(':') == colon) {
+      name = name.substring(0, colon);
+    }
+    if (name.endsWith(".")) {
+      name = name.substring(0, name.length() - 1);
+    }
+    return name.toLowerCase();
+  }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import javax.validation.constraints.NotNull;
+import org.springframework.boot.actuate.availability.ReadinessStateHealthIndicator;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityState;
+import org.springframework.boot.availability.ReadinessState;
+
+/**
+ * The readiness state health indicator, that reports {@code REFUSING_TRAFFIC} until the warm-up
+ * of the heat map is finished. Afterwards the readiness state of the application is reported.
+ *
+ * <p>It replaces the readiness state contributor of spring boot, so the readiness state itself
+ * is never changed and there is no race with the {@code ACCEPTING_TRAFFIC} event, that is
+ * published when the application is ready.
+ *
+ * @author Christian Bremer
+ */
+public class ScsWarmUpReadinessIndicator extends ReadinessStateHealthIndicator {
+
+  private final ScsHeatMap heatMap;
+
+  /**
+   * Instantiates a new warm-up readiness indicator.
+   *
+   * @param availability the application availability
+   * @param heatMap the heat map
+   */
+  public ScsWarmUpReadinessIndicator(
+      @NotNull ApplicationAvailability availability,
+      @NotNull ScsHeatMap heatMap) {
+    super(availability);
+    this.heatMap = heatMap;
+  }
+
+  @Override
+  protected AvailabilityState getState(ApplicationAvailability applicationAvailability) {
+    if (!heatMap.isWarm()) {
+      return ReadinessState.REFUSING_TRAFFIC;
+    }
+    return super.getState(applicationAvailability);
+  }
+
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.validation.constraints.NotNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+/**
+ * The zip download of a directory. The archive is created on the fly chunk by chunk, only when
+ * the client requests the next chunk, so that the memory usage is constant. Every file is read
+ * once: the size and the checksum of an entry are written after its data (data descriptor), and
+ * already compressed files are deflated with level 0 instead of being stored, which would need
+ * the checksum in advance. Symbolic links are not followed. Only {@code GET} requests are
+ * answered.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+public class ScsZipDownload {
+
+  private static final MediaType APPLICATION_ZIP = MediaType.parseMediaType("application/zip");
+
+  private static final int READ_BUFFER_SIZE = 8192;
+
+  private final ScsProperties.ZipDownload properties;
+
+  private final Set<String> storedExtensions;
+
+  /**
+   * Instantiates a new zip download.
+   *
+   * @param properties the properties
+   */
+  public ScsZipDownload(@NotNull ScsProperties.ZipDownload properties) {
+    this.properties = properties;
+    this.storedExtensions = properties.getStoredExtensions().stream()
+        .map(String::toLowerCase)
+        .collect(Collectors.toSet());
+  }
+
+  /**
+   * Routes the request to the zip download, if it is requested and the path points to a
+   * directory of the file system.
+   *
+   * @param request the request
+   * @param lookupFunction the lookup function
+   * @return the handler function or empty
+   */
+  public Mono<HandlerFunction<ServerResponse>> route(
+      @NotNull ServerRequest request,
+      @NotNull ScsResourceLookupFunction lookupFunction) {
+
+    if (!properties.isEnabled() || !HttpMethod.GET.equals(request.method())
+        || !request.queryParams().containsKey(properties.getParameter())) {
+      return Mono.empty();
+    }
+    Resource location = lookupFunction.getLocation();
+    String path = lookupFunction.normalizePath(request.pathContainer());
+    if (path == null || !location.isFile()) {
+      return Mono.empty();
+    }
+    try {
+      Path root = location.getFile().toPath().toAbsolutePath().normalize();
+      Path dir = root.resolve(path).normalize();
+      if (!dir.startsWith(root) || !Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+        return Mono.empty();
+      }
+      return Mono.just(req -> download(root, dir));
+    } catch (IOException e) {
+      log.warn("Content location {} is not a directory of the file system.", location);
+      return Mono.empty();
+    }
+  }
+
+  private Mono<ServerResponse> download(Path root, Path dir) {
+    long maxTotalSize = properties.getMaxTotalSize().toBytes();
+    String name = dir.equals(root) ? "content" : dir.getFileName().toString();
+    return Mono.fromCallable(() -> totalSize(dir))
+        .subscribeOn(ScsBlockingIo.scheduler())
+        .flatMap(totalSize -> {
+          if (totalSize > maxTotalSize) {
+            log.info("Zip download of {} is rejected, total size {} exceeds {}.",
+                dir, totalSize, maxTotalSize);
+            return ServerResponse.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+          }
+          Flux<byte[]> content = Flux.<byte[], ZipState>generate(
+              () -> new ZipState(dir, name),
+              this::next,
+              ZipState::close)
+              .subscribeOn(ScsBlockingIo.scheduler());
+          BodyInserter<Flux<byte[]>, ReactiveHttpOutputMessage> inserter
+              = (message, context) -> message.writeWith(content
+              .map(bytes -> message.bufferFactory().wrap(bytes)));
+          return ServerResponse.ok()
+              .contentType(APPLICATION_ZIP)
+              .headers(headers -> headers.setContentDisposition(ContentDisposition
+                  .builder("attachment")
+                  .filename(name + ".zip")
+                  .build()))
+              .body(inserter);
+        })
+        .onErrorResume(IOException.class, e -> {
+          log.info("Zip download of {} is rejected, a file is not readable.", dir, e);
+          return ServerResponse.status(HttpStatus.FORBIDDEN).build();
+        });
+  }
+
+  private static long totalSize(Path dir) throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files
+          .filter(file -> Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS))
+          .mapToLong(file -> {
+            try {
+              return Files.size(file);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          })
+          .sum();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private ZipState next(ZipState state, SynchronousSink<byte[]> sink) {
+    if (state.finished) {
+      sink.complete();
+      return state;
+    }
+    int chunkSize = (int) properties.getChunkSize().toBytes();
+    try {
+      while (state.out.size() < chunkSize && !state.finished) {
+        if (state.current == null) {
+          if (state.files.hasNext()) {
+            openEntry(state, state.files.next());
+          } else {
+            state.zip.finish();
+            state.finished = true;
+          }
+        } else {
+          int read = state.current.read(state.buffer);
+          if (read < 0) {
+            state.current.close();
+            state.current = null;
+            state.zip.closeEntry();
+          } else {
+            state.zip.write(state.buffer, 0, read);
+          }
+        }
+      }
+      byte[] chunk = state.out.drain();
+      if (chunk.length > 0) {
+        sink.next(chunk);
+      } else {
+        sink.complete();
+      }
+    } catch (IOException e) {
+      // the response is already committed, the download is aborted
+      log.warn("Zip download of {} failed.", state.root, e);
+      sink.error(e);
+    } catch (UncheckedIOException e) {
+      log.warn("Zip download of {} failed.", state.root, e.getCause());
+      sink.error(e.getCause());
+    }
+    return state;
+  }
+
+  private void openEntry(ZipState state, Path file) throws IOException {
+    String entryName = state.root.relativize(file).toString().replace('\\', '/');
+    ZipEntry entry = new ZipEntry(state.name + "/" + entryName);
+    entry.setTime(Files.getLastModifiedTime(file).toMillis());
+    state.zip.setLevel(isStored(file) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+    state.zip.putNextEntry(entry);
+    state.current = Files.newInputStream(file);
+  }
+
+  private boolean isStored(Path file) {
+    String fileName = file.getFileName().toString();
+    int index = fileName.lastIndexOf('.');
+    return index >= 0 && storedExtensions.contains(fileName.substring(index + 1).toLowerCase());
+  }
+
+  /**
+   * The state of a zip download.
+   */
+  private static class ZipState {
+
+    private final Path root;
+
+    private final String name;
+
+    private final Stream<Path> stream;
+
+    private final Iterator<Path> files;
+
+    private final ChunkOutputStream out = new ChunkOutputStream();
+
+    private final ZipOutputStream zip = new ZipOutputStream(out);
+
+    private final byte[] buffer = new byte[READ_BUFFER_SIZE];
+
+    private InputStream current;
+
+    private boolean finished;
+
+    private ZipState(Path root, String name) throws IOException {
+      this.root = root;
+      this.name = name;
+      this.stream = Files.walk(root)
+          .filter(file -> Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS));
+      this.files = stream.iterator();
+    }
+
+    private void close() {
+      try {
+        if (current != null) {
+          current.close();
+        }
+        zip.close();
+      } catch (IOException e) {
+        log.debug("Closing zip download failed.", e);
+      } finally {
+        stream.close();
+      }
+    }
+  }
+
+  /**
+   * The output stream, that collects the bytes of the next chunk.
+   */
+  private static class ChunkOutputStream extends ByteArrayOutputStream {
+
+    private byte[] drain() {
+      byte[] chunk = toByteArray();
+      reset();
+      return chunk;
+    }
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.util.Collections;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.security.web.server.MatcherSecurityWebFilterChain;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+/**
+ * The security configuration of the static content server.
+ *
+ * @author Christian Bremer
+ */
+@Configuration
+@Slf4j
+public class SecurityConfiguration {
+
+  /**
+   * The security filter chain for public paths. It has the highest precedence and contains no
+   * filters at all, so that requests of the public paths skip security and authentication
+   * entirely. All other requests are handled by the following filter chains as before. The
+   * actuator endpoints are never public.
+   *
+   * @param properties the properties
+   * @param managementBasePath the base path of the actuator endpoints
+   * @return the security web filter chain
+   */
+  @Bean
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  @Conditional(PublicPathsCondition.class)
+  public SecurityWebFilterChain publicPathsFilterChain(
+      ScsProperties properties,
+      @Value("${management.endpoints.web.base-path:/actuator}") String managementBasePath) {
+    log.info("Skipping security for public paths {} (except {})", properties.getPublicPaths(),
+        managementBasePath);
+    return new MatcherSecurityWebFilterChain(
+        new ScsPublicPathMatcher(properties.getPublicPaths(), managementBasePath),
+        Collections.emptyList());
+  }
+
+  /**
+   * The condition that matches, if public paths are configured.
+   */
+  static class PublicPathsCondition implements Condition {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+      return Binder.get(context.getEnvironment())
+          .bind("bremersee.scs.public-paths", Bindable.listOf(String.class))
+          .map(paths -> !paths.isEmpty())
+          .orElse(false);
+    }
+  }
+
+}
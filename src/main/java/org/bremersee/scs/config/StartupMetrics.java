@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Startup metrics of the running jvm.
+ *
+ * @author Christian Bremer
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+@Slf4j
+public abstract class StartupMetrics {
+
+  private static final Path PROC_STATUS = Paths.get("/proc/self/status");
+
+  private static final String RSS_KEY = "VmRSS:";
+
+  /**
+   * Gets the uptime of the jvm.
+   *
+   * @return the uptime
+   */
+  public static Duration uptime() {
+    return Duration.ofMillis(ManagementFactory.getRuntimeMXBean().getUptime());
+  }
+
+  /**
+   * Gets the resident set size of this process in bytes. It is only available on linux.
+   *
+   * @return the resident set size
+   */
+  public static OptionalLong residentSetSize() {
+    if (!Files.isReadable(PROC_STATUS)) {
+      return OptionalLong.empty();
+    }
+    try {
+      List<String> lines = Files.readAllLines(PROC_STATUS, StandardCharsets.US_ASCII);
+      for (String line : lines) {
+        if (line.startsWith(RSS_KEY)) {
+          // The value is given in kB, e. g. 'VmRSS:	  123456 kB'
+          String value = line.substring(RSS_KEY.length()).trim();
+          int index = value.indexOf(' ');
+          return OptionalLong.of(Long.parseLong(index > 0 ? value.substring(0, index) : value)
+              * 1024L);
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      log.debug("Reading resident set size failed.", e);
+    }
+    return OptionalLong.empty();
+  }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The transport configuration. The transport of the server is configured with
+ * {@code bremersee.scs.transport.enabled=true}, otherwise the defaults of reactor netty are used.
+ *
+ * @author Christian Bremer
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "bremersee.scs.transport", name = "enabled",
+    havingValue = "true")
+@Slf4j
+public class TransportConfiguration {
+
+  /**
+   * The transport of the server.
+   *
+   * @param properties the properties
+   * @return the transport
+   */
+  @Bean(destroyMethod = "close")
+  public ScsTransport scsTransport(ScsProperties properties) {
+    log.info("Creating server transport with {}", properties.getTransport());
+    return new ScsTransport(properties.getTransport());
+  }
+
+}
@@ -16,15 +16,20 @@
 
 package org.bremersee.scs.config;
 
-import static org.springframework.web.reactive.function.server.RouterFunctions.resources;
-
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.reactive.function.server.RouterFunction;
-import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
 
 /**
  * The web configuration.
@@ -37,16 +42,100 @@ import org.springframework.web.reactive.function.server.ServerResponse;
 public class WebConfiguration {
 
   /**
-   * The static content server router function.
+   * The static content server router function. Requests of virtual hosts are delegated to the
+   * routers of the hosts.
    *
    * @param properties the properties
+   * @param accessStatistics the access statistics
+   * @param resolvers the additional stages of the resolver chain
+   * @param meterRegistry the meter registry (without it the resolver chain is not measured)
    * @return the router function
    */
   @RefreshScope
   @Bean
-  public RouterFunction<ServerResponse> scsRouter(ScsProperties properties) {
+  @Lazy(false)
+  public ScsRouterFunction scsRouter(
+      ScsProperties properties,
+      ScsAccessStatistics accessStatistics,
+      ObjectProvider<ScsResourceResolver> resolvers,
+      ObjectProvider<MeterRegistry> meterRegistry) {
     log.info("Creating static content router with {}", properties);
-    return resources(new ScsResourceLookupFunction(properties));
+    List<ScsResourceResolver> stages = resolvers.orderedStream().collect(Collectors.toList());
+    MeterRegistry registry = meterRegistry.getIfAvailable();
+    ScsFlightRecorder.setEnabled(properties.isFlightRecorderEvents());
+    Map<String, ScsProperties.VirtualHost> hosts = properties.getVirtualHosts();
+    if (hosts.isEmpty()) {
+      return createRouter(properties, ScsReleases.currentLocation(properties), accessStatistics,
+          stages, registry);
+    }
+    // every host and the default content get an equal share of the caches
+    int shares = hosts.size() + 1;
+    ScsRouterFunction router = createRouter(
+        properties.share(shares), ScsReleases.currentLocation(properties), accessStatistics,
+        stages, registry);
+    ScsVirtualHosts virtualHosts = new ScsVirtualHosts();
+    hosts.forEach((host, virtualHost) -> {
+      if (!StringUtils.hasText(virtualHost.getContentLocation())) {
+        log.warn("Virtual host {} has no content location, ignoring it.", host);
+        return;
+      }
+      log.info("Creating router of virtual host {} with {}", host, virtualHost);
+      ScsProperties hostProperties = properties.forVirtualHost(virtualHost, shares);
+      virtualHosts.add(host, createRouter(hostProperties, null,
+          accessStatistics.forHost(host, hostProperties.getAccessStatisticsSize()),
+          stages, registry));
+    });
+    router.setVirtualHosts(virtualHosts);
+    return router;
+  }
+
+  /**
+   * Creates the router of one content location with the built-in stages and the given
+   * resolvers.
+   *
+   * @param properties the properties
+   * @param location the content location (if it is {@code null}, the content location of the
+   *     properties is used)
+   * @param accessStatistics the access statistics
+   * @param resolvers the additional resolvers
+   * @param meterRegistry the meter registry; if it is {@code null}, nothing is measured
+   * @return the router
+   */
+  static ScsRouterFunction createRouter(
+      ScsProperties properties,
+      Resource location,
+      ScsAccessStatistics accessStatistics,
+      List<ScsResourceResolver> resolvers,
+      MeterRegistry meterRegistry) {
+    ScsFingerprints fingerprints = new ScsFingerprints(properties.getFingerprint());
+    ScsContentCache contentCache = new ScsContentCache(properties.getContentCache());
+    ScsImageVariants imageVariants = new ScsImageVariants(
+        properties.getImageVariants(), properties.getContentLocation());
+    List<ScsResourceResolver> stages = new ArrayList<>(ScsResourceResolvers.defaults(
+        contentCache, imageVariants, fingerprints));
+    stages.addAll(resolvers);
+    return new ScsRouterFunction(
+        new ScsResourceLookupFunction(properties, location),
+        new ScsResponseHeaders(properties.getResponseHeaders()),
+        properties.getReadBuffer(),
+        new ScsDirectoryListing(properties.getDirectoryListing()),
+        new ScsZipDownload(properties.getZipDownload()),
+        fingerprints,
+        contentCache,
+        imageVariants,
+        accessStatistics,
+        new ScsResourceResolvers(stages, properties.getResolverChain(), meterRegistry));
+  }
+
+  /**
+   * The access statistics of the static content. They are not refreshed with the router.
+   *
+   * @param properties the properties
+   * @return the access statistics
+   */
+  @Bean
+  public ScsAccessStatistics scsAccessStatistics(ScsProperties properties) {
+    return new ScsAccessStatistics(properties.getAccessStatisticsSize());
   }
 
 }
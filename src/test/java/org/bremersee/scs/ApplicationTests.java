@@ -17,11 +17,16 @@
 package org.bremersee.scs;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.reactive.server.SecurityMockServerConfigurers.csrf;
 
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
@@ -36,7 +41,9 @@ import org.springframework.test.web.reactive.server.WebTestClient;
     "bremersee.scs.pattern=/**",
     "bremersee.scs.content-location=classpath:content/",
     "bremersee.scs.directory-pattern-index-map.[/dir/**]:dir.html",
-    "bremersee.scs.directory-pattern-index-map.[/**]:index.html"
+    "bremersee.scs.directory-pattern-index-map.[/**]:index.html",
+    "bremersee.scs.response-headers.default-charset=UTF-8",
+    "bremersee.scs.response-headers.cache-control-pattern-map.[/dir/**]=max-age=60"
 })
 @ActiveProfiles({"in-memory"})
 class ApplicationTests {
@@ -123,6 +130,57 @@ class ApplicationTests {
         .value(content -> assertTrue(content.contains("Dir content.")));
   }
 
+  /**
+   * Gets dir content and expect precomputed headers.
+   */
+  @Test
+  void getDirContentAndExpectPrecomputedHeaders() {
+    webTestClient
+        .get()
+        .uri("/dir/dir.html")
+        .accept(MediaType.ALL)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType(MediaType.parseMediaType("text/html;charset=UTF-8"))
+        .expectHeader().cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Head example content.
+   */
+  @Test
+  void headExampleContent() {
+    webTestClient
+        .head()
+        .uri("/example.html")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType(MediaType.parseMediaType("text/html;charset=UTF-8"));
+  }
+
+  /**
+   * Gets example content and expect not modified.
+   */
+  @Test
+  void getExampleContentAndExpectNotModified() {
+    String eTag = webTestClient
+        .head()
+        .uri("/example.html")
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(Void.class)
+        .getResponseHeaders()
+        .getETag();
+    assertNotNull(eTag);
+    webTestClient
+        .get()
+        .uri("/example.html")
+        .ifNoneMatch(eTag)
+        .exchange()
+        .expectStatus().isNotModified()
+        .expectHeader().valueEquals(HttpHeaders.ETAG, eTag);
+  }
+
   /**
    * Gets health.
    */
@@ -170,4 +228,51 @@ class ApplicationTests {
         .expectStatus().isUnauthorized();
   }
 
+  /**
+   * Gets the scs endpoint and expect unauthorized.
+   */
+  @Test
+  void getScsEndpointAndExpectUnauthorized() {
+    webTestClient
+        .get()
+        .uri("/actuator/scs")
+        .accept(MediaType.ALL)
+        .exchange()
+        .expectStatus().isUnauthorized();
+  }
+
+  /**
+   * Invalidates the cached content and expect unauthorized.
+   */
+  @Test
+  void invalidateAndExpectUnauthorized() {
+    webTestClient
+        .mutateWith(csrf())
+        .post()
+        .uri("/actuator/scs/invalidate")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue("{\"prefix\": \"/\"}")
+        .exchange()
+        .expectStatus().isUnauthorized();
+  }
+
+  /**
+   * Invalidates the cached content as user and expect forbidden.
+   */
+  @WithMockUser(
+      username = "user",
+      password = "user",
+      authorities = {"ROLE_USER"})
+  @Test
+  void invalidateAndExpectForbidden() {
+    webTestClient
+        .mutateWith(csrf())
+        .post()
+        .uri("/actuator/scs/invalidate")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue("{\"prefix\": \"/\"}")
+        .exchange()
+        .expectStatus().isForbidden();
+  }
+
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * The directory listing application tests.
+ *
+ * @author Christian Bremer
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "bremersee.scs.pattern=/**",
+    "bremersee.scs.content-location=classpath:content/",
+    "bremersee.scs.directory-pattern-index-map.[/dir/**]:dir.html",
+    "bremersee.scs.directory-pattern-index-map.[/**]:not-exists.html",
+    "bremersee.scs.directory-listing.enabled=true",
+    "bremersee.scs.directory-listing.page-size=2"
+})
+@ActiveProfiles({"in-memory"})
+class DirectoryListingApplicationTests {
+
+  /**
+   * The web test client.
+   */
+  @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
+  @Autowired
+  WebTestClient webTestClient;
+
+  /**
+   * Gets root listing as html.
+   */
+  @Test
+  void getRootListingAsHtml() {
+    webTestClient
+        .get()
+        .uri("/")
+        .accept(MediaType.TEXT_HTML)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_HTML)
+        .expectBody(String.class)
+        .value(content -> {
+          assertTrue(content.contains("Index of /"));
+          assertTrue(content.contains("?page=1"));
+        });
+  }
+
+  /**
+   * Gets root listing with an invalid accept header as html.
+   */
+  @Test
+  void getRootListingWithInvalidAcceptHeader() {
+    webTestClient
+        .get()
+        .uri("/")
+        .header(HttpHeaders.ACCEPT, "not a media type")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_HTML);
+  }
+
+  /**
+   * Gets root listing as json.
+   */
+  @Test
+  void getRootListingAsJson() {
+    for (int i = 0; i < 2; i++) { // the second request is served from the cache
+      webTestClient
+          .get()
+          .uri("/?format=json&page=1")
+          .exchange()
+          .expectStatus().isOk()
+          .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+          .expectBody()
+          .jsonPath("$.page").isEqualTo(1)
+          .jsonPath("$.entries").isArray();
+    }
+  }
+
+  /**
+   * Gets dir with index.
+   */
+  @Test
+  void getDirWithIndex() {
+    webTestClient
+        .get()
+        .uri("/dir")
+        .accept(MediaType.ALL)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class)
+        .value(content -> {
+          assertTrue(content.contains("Dir content."));
+          assertFalse(content.contains("Index of"));
+        });
+  }
+
+}
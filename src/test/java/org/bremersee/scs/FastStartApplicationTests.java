@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.OptionalLong;
+import lombok.extern.slf4j.Slf4j;
+import org.bremersee.scs.config.StartupMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * The fast start application tests. They measure the time to the first byte and the resident set
+ * size of the fast start profile. The limits can be set with the system properties
+ * {@code scs.test.max-time-to-first-byte-millis} and {@code scs.test.max-rss-mb}.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+class FastStartApplicationTests {
+
+  private static final long MAX_TIME_TO_FIRST_BYTE_MILLIS = Long
+      .getLong("scs.test.max-time-to-first-byte-millis", 30000L);
+
+  private static final long MAX_RSS_MB = Long.getLong("scs.test.max-rss-mb", 1024L);
+
+  /**
+   * Start and measure time to first byte and resident set size.
+   */
+  @Test
+  void startAndMeasure() {
+    long start = System.nanoTime();
+    try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+        .profiles("in-memory", "fast-start")
+        .properties(
+            "server.port=0",
+            "bremersee.scs.content-location=classpath:content/")
+        .run()) {
+
+      String port = context.getEnvironment().getProperty("local.server.port");
+      WebTestClient.bindToServer()
+          .baseUrl("http://localhost:" + port)
+          .build()
+          .get()
+          .uri("/")
+          .accept(MediaType.ALL)
+          .exchange()
+          .expectStatus().isOk()
+          .expectBody(String.class)
+          .value(content -> assertTrue(content.contains("Static content server is running.")));
+      long timeToFirstByte = (System.nanoTime() - start) / 1000000L;
+      OptionalLong rss = StartupMetrics.residentSetSize();
+      log.info("Fast start: time to first byte = {} ms, rss = {} MB",
+          timeToFirstByte,
+          rss.isPresent() ? DataSize.ofBytes(rss.getAsLong()).toMegabytes() : "unknown");
+
+      assertTrue(timeToFirstByte <= MAX_TIME_TO_FIRST_BYTE_MILLIS,
+          "Time to first byte " + timeToFirstByte + " ms exceeds "
+              + MAX_TIME_TO_FIRST_BYTE_MILLIS + " ms.");
+      rss.ifPresent(value -> assertTrue(DataSize.ofBytes(value).toMegabytes() <= MAX_RSS_MB,
+          "Resident set size " + DataSize.ofBytes(value).toMegabytes() + " MB exceeds "
+              + MAX_RSS_MB + " MB."));
+    }
+  }
+
+}
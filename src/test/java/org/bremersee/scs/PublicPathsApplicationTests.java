@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * The public paths application tests.
+ *
+ * @author Christian Bremer
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "bremersee.scs.content-location=classpath:content/",
+    "bremersee.scs.directory-pattern-index-map.[/dir/**]:dir.html",
+    "bremersee.scs.public-paths[0]=/example.html",
+    "bremersee.scs.public-paths[1]=/dir/**",
+    "bremersee.auth.resource-server:auto"
+})
+@ActiveProfiles({"in-memory"})
+class PublicPathsApplicationTests {
+
+  /**
+   * The web test client.
+   */
+  @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
+  @Autowired
+  WebTestClient webTestClient;
+
+  /**
+   * Gets root.
+   */
+  @WithMockUser(
+      username = "user",
+      password = "user",
+      authorities = {"ROLE_USER"})
+  @Test
+  void getRoot() {
+    webTestClient
+        .get()
+        .uri("/")
+        .accept(MediaType.ALL)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class)
+        .value(content -> assertTrue(content.contains("Static content server is running.")));
+  }
+
+  /**
+   * Gets root and expect unauthorized.
+   */
+  @Test
+  void getRootAndExpectUnauthorized() {
+    webTestClient
+        .get()
+        .uri("/")
+        .accept(MediaType.ALL)
+        .exchange()
+        .expectStatus().isUnauthorized();
+  }
+
+  /**
+   * Gets public example content.
+   */
+  @Test
+  void getPublicExampleContent() {
+    webTestClient
+        .get()
+        .uri("/example.html")
+        .accept(MediaType.ALL)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class)
+        .value(content -> assertTrue(content.contains("Example content.")));
+  }
+
+  /**
+   * Gets public dir content without file.
+   */
+  @Test
+  void getPublicDirContentWithoutFile() {
+    webTestClient
+        .get()
+        .uri("/dir")
+        .accept(MediaType.ALL)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class)
+        .value(content -> assertTrue(content.contains("Dir content.")));
+  }
+
+  /**
+   * Post public example content and expect client error.
+   */
+  @Test
+  void postPublicExampleContentAndExpectClientError() {
+    webTestClient
+        .post()
+        .uri("/example.html")
+        .accept(MediaType.ALL)
+        .exchange()
+        .expectStatus().is4xxClientError();
+  }
+
+  /**
+   * The application tests with all paths public.
+   */
+  @Nested
+  @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+      "bremersee.scs.content-location=classpath:content/",
+      "bremersee.scs.public-paths[0]=/**",
+      "bremersee.auth.resource-server:auto"
+  })
+  @ActiveProfiles({"in-memory"})
+  class AllPathsPublic {
+
+    /**
+     * The web test client.
+     */
+    @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
+    @Autowired
+    WebTestClient webTestClient;
+
+    /**
+     * Gets public example content.
+     */
+    @Test
+    void getPublicExampleContent() {
+      webTestClient
+          .get()
+          .uri("/example.html")
+          .accept(MediaType.ALL)
+          .exchange()
+          .expectStatus().isOk();
+    }
+
+    /**
+     * Gets metrics and expect unauthorized, because the actuator endpoints are never public.
+     */
+    @Test
+    void getMetricsAndExpectUnauthorized() {
+      webTestClient
+          .get()
+          .uri("/actuator/metrics")
+          .accept(MediaType.ALL)
+          .exchange()
+          .expectStatus().isUnauthorized();
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.bremersee.scs.config.HeatMapConfiguration;
+import org.bremersee.scs.config.RateLimitConfiguration;
+import org.bremersee.scs.config.ScsEndpoint;
+import org.bremersee.scs.config.ScsRouterFunction;
+import org.bremersee.scs.config.StartupMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * The static only application tests.
+ *
+ * @author Christian Bremer
+ */
+@SpringBootTest(
+    classes = StaticOnlyApplication.class,
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "spring.cloud.bootstrap.enabled=false",
+        "bremersee.scs.pattern=/**",
+        "bremersee.scs.content-location=classpath:content/",
+        "bremersee.scs.directory-pattern-index-map.[/dir/**]:dir.html",
+        "bremersee.scs.directory-pattern-index-map.[/**]:index.html"
+    })
+@ActiveProfiles({StaticOnlyApplication.PROFILE})
+@Slf4j
+class StaticOnlyApplicationTests {
+
+  /**
+   * The web test client.
+   */
+  @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
+  @Autowired
+  WebTestClient webTestClient;
+
+  /**
+   * The application context.
+   */
+  @Autowired
+  ApplicationContext applicationContext;
+
+  /**
+   * Unused subsystems are not loaded.
+   */
+  @Test
+  void unusedSubsystemsAreNotLoaded() {
+    assertEquals(0, applicationContext.getBeanNamesForType(SecurityWebFilterChain.class).length);
+    assertEquals(0, applicationContext
+        .getBeanNamesForType(ReactiveRedisConnectionFactory.class).length);
+    assertEquals(0, applicationContext.getBeanNamesForType(RateLimitConfiguration.class).length);
+    assertEquals(0, applicationContext.getBeanNamesForType(HeatMapConfiguration.class).length);
+    assertEquals(0, applicationContext.getBeanNamesForType(ScsEndpoint.class).length);
+    assertTrue(applicationContext.getBeanNamesForType(ScsRouterFunction.class).length > 0);
+    assertTrue(applicationContext.getBeanDefinitionCount() > 0);
+    log.info("Static only: beans = {}, heap used = {} MB, threads = {}, uptime = {} ms",
+        applicationContext.getBeanDefinitionCount(),
+        DataSize.ofBytes(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed())
+            .toMegabytes(),
+        ManagementFactory.getThreadMXBean().getThreadCount(),
+        StartupMetrics.uptime().toMillis());
+  }
+
+  /**
+   * Gets root.
+   */
+  @Test
+  void getRoot() {
+    webTestClient
+        .get()
+        .uri("/")
+        .accept(MediaType.ALL)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class)
+        .value(content -> assertTrue(content.contains("Static content server is running.")));
+  }
+
+  /**
+   * Gets dir content without file.
+   */
+  @Test
+  void getDirContentWithoutFile() {
+    webTestClient
+        .get()
+        .uri("/dir")
+        .accept(MediaType.ALL)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class)
+        .value(content -> assertTrue(content.contains("Dir content.")));
+  }
+
+  /**
+   * Gets actuator and expect not found.
+   */
+  @Test
+  void getActuatorAndExpectNotFound() {
+    webTestClient
+        .get()
+        .uri("/actuator/health")
+        .accept(MediaType.ALL)
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import lombok.extern.slf4j.Slf4j;
+import org.bremersee.scs.config.ScsProperties.TransportType;
+import org.bremersee.scs.config.ScsTransport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * The transport benchmark. It serves the same content tree with every available transport and
+ * logs the requests per second of a small file and the throughput of a large file, that is sent
+ * with zero copy (sendfile). It runs only with the system property {@code scs.benchmark=true},
+ * for example {@code mvn test -Dtest=TransportBenchmarkTests -Dscs.benchmark=true}; the number
+ * of requests can be set with {@code scs.benchmark.requests}. There are no recorded reference
+ * results; the numbers are only meaningful on the target system.
+ *
+ * @author Christian Bremer
+ */
+@EnabledIfSystemProperty(named = "scs.benchmark", matches = "true")
+@Slf4j
+class TransportBenchmarkTests {
+
+  private static final int REQUESTS = Integer.getInteger("scs.benchmark.requests", 50_000);
+
+  private static final int CONCURRENCY = Integer.getInteger("scs.benchmark.concurrency", 64);
+
+  private static final int LARGE_FILE_SIZE = 64 * 1024 * 1024;
+
+  private static final int DOWNLOADS = 32;
+
+  @TempDir
+  Path root;
+
+  /**
+   * Run the benchmark with every transport.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void benchmark() throws Exception {
+    byte[] small = new byte[1024];
+    byte[] large = new byte[LARGE_FILE_SIZE];
+    Random random = new Random(42L);
+    random.nextBytes(small);
+    random.nextBytes(large);
+    Files.write(root.resolve("small.bin"), small);
+    Files.write(root.resolve("large.bin"), large);
+
+    StringBuilder results = new StringBuilder();
+    for (TransportType type : Arrays.asList(TransportType.NIO, TransportType.EPOLL)) {
+      if (type == TransportType.EPOLL && !ScsTransport.isEpollAvailable()) {
+        results.append(String.format("%n%-6s not available", type));
+        continue;
+      }
+      results.append(run(type));
+    }
+    log.info("Transport benchmark ({} requests, concurrency {}, {} downloads of {} MB):{}",
+        REQUESTS, CONCURRENCY, DOWNLOADS, LARGE_FILE_SIZE / 1024 / 1024, results);
+  }
+
+  private String run(TransportType type) {
+    try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+        .profiles("in-memory")
+        .properties(
+            "server.port=0",
+            "logging.level.org.bremersee.scs=info",
+            "bremersee.scs.content-location=" + root.toAbsolutePath() + "/",
+            "bremersee.scs.public-paths[0]=/**",
+            "bremersee.scs.transport.enabled=true",
+            "bremersee.scs.transport.type=" + type.name())
+        .run()) {
+
+      String port = context.getEnvironment().getProperty("local.server.port");
+      ConnectionProvider connections = ConnectionProvider.fixed("benchmark", CONCURRENCY);
+      HttpClient client = HttpClient.create(connections).baseUrl("http://localhost:" + port);
+      try {
+        requests(client, "/small.bin", 1_000, CONCURRENCY, 1024L);
+        long start = System.nanoTime();
+        requests(client, "/small.bin", REQUESTS, CONCURRENCY, 1024L);
+        double requestsPerSecond = REQUESTS / seconds(start);
+
+        requests(client, "/large.bin", 2, 2, LARGE_FILE_SIZE);
+        start = System.nanoTime();
+        requests(client, "/large.bin", DOWNLOADS, 4, LARGE_FILE_SIZE);
+        double megabytesPerSecond = (double) DOWNLOADS * LARGE_FILE_SIZE / 1024. / 1024.
+            / seconds(start);
+
+        return String.format("%n%-6s %,12.0f requests/s %,10.0f MB/s (sendfile)",
+            type, requestsPerSecond, megabytesPerSecond);
+      } finally {
+        connections.dispose();
+      }
+    }
+  }
+
+  private static void requests(
+      HttpClient client,
+      String uri,
+      int count,
+      int concurrency,
+      long expectedLength) {
+    Long total = Flux.range(0, count)
+        .flatMap(i -> client.get().uri(uri).responseConnection((response, connection) -> {
+          assertEquals(200, response.status().code());
+          return connection.inbound().receive().map(ByteBuf::readableBytes);
+        }).reduce(0L, Long::sum), concurrency)
+        .reduce(0L, (sum, length) -> {
+          assertEquals(expectedLength, (long) length);
+          return sum + length;
+        })
+        .block();
+    assertEquals(expectedLength * count, (long) total);
+  }
+
+  private static double seconds(long start) {
+    return (System.nanoTime() - start) / 1_000_000_000.;
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * The zip download application tests.
+ *
+ * @author Christian Bremer
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "bremersee.scs.pattern=/**",
+    "bremersee.scs.content-location=classpath:content/",
+    "bremersee.scs.zip-download.enabled=true"
+})
+@ActiveProfiles({"in-memory"})
+class ZipDownloadApplicationTests {
+
+  /**
+   * The web test client.
+   */
+  @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
+  @Autowired
+  WebTestClient webTestClient;
+
+  /**
+   * Download directory as zip.
+   */
+  @Test
+  void downloadDirectoryAsZip() {
+    webTestClient
+        .get()
+        .uri("/dir?zip")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType(MediaType.parseMediaType("application/zip"))
+        .expectHeader().valueMatches("Content-Disposition", ".*dir\\.zip.*")
+        .expectBody(byte[].class)
+        .value(content -> {
+          try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(content))) {
+            ZipEntry entry = zip.getNextEntry();
+            assertNotNull(entry);
+            assertEquals("dir/dir.html", entry.getName());
+            String html = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(html.contains("Dir content."));
+            assertNull(zip.getNextEntry());
+          } catch (IOException e) {
+            throw new AssertionError(e);
+          }
+        });
+  }
+
+  /**
+   * Only get requests are zipped.
+   */
+  @Test
+  void headIsNotZipped() {
+    webTestClient
+        .head()
+        .uri("/dir?zip")
+        .exchange()
+        .expectHeader().doesNotExist("Content-Disposition");
+  }
+
+  /**
+   * Files are not zipped.
+   */
+  @Test
+  void filesAreNotZipped() {
+    webTestClient
+        .get()
+        .uri("/index.html?zip")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_HTML);
+  }
+
+}
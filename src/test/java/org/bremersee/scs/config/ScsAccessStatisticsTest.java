@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The access statistics test.
+ *
+ * @author Christian Bremer
+ */
+class ScsAccessStatisticsTest {
+
+  /**
+   * The less frequently accessed paths are dropped, if the limit is reached.
+   */
+  @Test
+  void shrink() {
+    ScsAccessStatistics accessStatistics = new ScsAccessStatistics(10, Schedulers.immediate());
+    for (int i = 0; i < 5; i++) {
+      accessStatistics.add("hot-" + i, 100L);
+      accessStatistics.record("cold-" + i);
+    }
+    assertEquals(10, accessStatistics.size());
+    accessStatistics.record("new");
+    assertEquals(6, accessStatistics.size());
+    List<String> top = accessStatistics.top(5).stream()
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toList());
+    for (int i = 0; i < 5; i++) {
+      assertTrue(top.contains("hot-" + i));
+    }
+  }
+
+  /**
+   * The paths are dropped by the scheduler and new paths are ignored beyond twice the limit.
+   */
+  @Test
+  void shrinkInBackground() {
+    Scheduler scheduler = mock(Scheduler.class);
+    ScsAccessStatistics accessStatistics = new ScsAccessStatistics(10, scheduler);
+    for (int i = 0; i < 30; i++) {
+      accessStatistics.record("path-" + i);
+    }
+    assertEquals(20, accessStatistics.size());
+    verify(scheduler, times(1)).schedule(any());
+
+    accessStatistics.shrink();
+    assertEquals(5, accessStatistics.size());
+  }
+
+}
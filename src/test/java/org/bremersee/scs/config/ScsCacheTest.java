@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The cache test.
+ *
+ * @author Christian Bremer
+ */
+class ScsCacheTest {
+
+  /**
+   * Evict by entries.
+   */
+  @Test
+  void evictByEntries() {
+    ScsCache<String, String> cache = new ScsCache<>("test", 2);
+    cache.put("a", "1");
+    cache.put("b", "2");
+    assertEquals("1", cache.get("a"));
+    cache.put("c", "3");
+    assertNull(cache.get("b"));
+    assertEquals("1", cache.get("a"));
+    assertEquals("3", cache.get("c"));
+    assertEquals(2, cache.size());
+    assertEquals(1L, cache.evictions());
+    assertEquals(3L, cache.hits());
+    assertEquals(1L, cache.misses());
+    assertEquals("test", cache.getName());
+  }
+
+  /**
+   * Evict by weight.
+   */
+  @Test
+  void evictByWeight() {
+    ScsCache<String, String> cache = new ScsCache<>("test", 10, 5L, String::length);
+    cache.put("a", "123");
+    cache.put("b", "12");
+    assertEquals(5L, cache.weight());
+    cache.put("c", "1");
+    assertNull(cache.get("a"));
+    assertEquals(3L, cache.weight());
+    cache.put("d", "123456");
+    assertNull(cache.get("d"));
+    assertEquals(2, cache.size());
+  }
+
+  /**
+   * A large cache is split into segments; the entries are limited per segment, the weight for
+   * the whole cache.
+   */
+  @Test
+  void segments() {
+    ScsCache<String, String> cache = new ScsCache<>("test", 1024, 100L, String::length);
+    for (int i = 0; i < 2000; i++) {
+      cache.put("key-" + i, "1");
+      assertTrue(cache.weight() <= 100L);
+    }
+    assertEquals(100, cache.size());
+    assertEquals(100L, cache.weight());
+    assertEquals(1900L, cache.evictions());
+    assertEquals("1", cache.get("key-1999"));
+
+    cache = new ScsCache<>("test", 1024);
+    for (int i = 0; i < 2000; i++) {
+      cache.put("key-" + i, "1");
+    }
+    assertTrue(cache.size() <= 1024);
+    assertEquals(2000L - cache.size(), cache.evictions());
+    assertEquals(cache.size(), cache.values().size());
+    assertEquals(cache.size(), cache.removeIf(key -> true));
+    assertEquals(0, cache.size());
+  }
+
+  /**
+   * Remove if.
+   */
+  @Test
+  void removeIf() {
+    ScsCache<String, String> cache = new ScsCache<>("test", 10, 100L, String::length);
+    cache.put("dir/a", "1");
+    cache.put("dir/b", "22");
+    cache.put("other", "333");
+    assertEquals(2, cache.removeIf(key -> key.startsWith("dir/")));
+    assertEquals(3L, cache.weight());
+    cache.remove("other");
+    assertEquals(0, cache.size());
+    cache.put("x", "1");
+    cache.clear();
+    assertEquals(0L, cache.weight());
+  }
+
+  /**
+   * Put if absent, conditional remove and the eviction listener.
+   */
+  @Test
+  void putIfAbsentAndEvictionListener() {
+    List<String> evicted = new ArrayList<>();
+    ScsCache<String, String> cache = new ScsCache<>("test", 2, 100L, String::length,
+        (key, value) -> evicted.add(key + "=" + value));
+    assertNull(cache.putIfAbsent("a", "1"));
+    assertEquals("1", cache.putIfAbsent("a", "2"));
+    assertEquals("1", cache.put("a", "11"));
+    assertNull(cache.put("b", "2"));
+    assertEquals("11", cache.peek("a"));
+    assertEquals(0L, cache.hits() + cache.misses());
+    cache.put("c", "3");
+    assertEquals(1, evicted.size());
+    assertEquals("b=2", evicted.get(0));
+    assertFalse(cache.remove("a", "1"));
+    assertTrue(cache.remove("a", "11"));
+    assertEquals(1L, cache.weight());
+  }
+
+}
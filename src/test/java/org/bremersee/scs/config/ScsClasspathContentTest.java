@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.test.StepVerifier;
+
+/**
+ * The classpath content test.
+ *
+ * @author Christian Bremer
+ */
+class ScsClasspathContentTest {
+
+  /**
+   * All files of the classpath location are read into direct buffers.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void readIntoMemory() throws IOException {
+    ScsClasspathContent content = new ScsClasspathContent(
+        new ClassPathResource("content/"), new ScsProperties.ClasspathContent());
+    assertTrue(content.isComplete());
+    assertTrue(content.isDirectory(""));
+    assertTrue(content.isDirectory("dir"));
+    assertTrue(content.isDirectory("straße"));
+    assertFalse(content.isDirectory("index.html"));
+    assertTrue(content.getPaths().contains("straße/enc.html"));
+
+    ScsPackResource resource = (ScsPackResource) content.find("dir/dir.html");
+    assertNotNull(resource);
+    assertEquals("dir.html", resource.getFilename());
+    ByteBuffer buffer = resource.getByteBuffer();
+    assertTrue(buffer.isDirect());
+    assertTrue(buffer.isReadOnly());
+    byte[] expected = StreamUtils.copyToByteArray(
+        new ClassPathResource("content/dir/dir.html").getInputStream());
+    byte[] actual = new byte[buffer.remaining()];
+    buffer.get(actual);
+    assertArrayEquals(expected, actual);
+    assertEquals(expected.length, resource.getMetadata().getLength());
+    assertNull(content.find("dir"));
+  }
+
+  /**
+   * A max file size, that doesn't fit into a buffer, is rejected.
+   */
+  @Test
+  void maxFileSizeTooLarge() {
+    ScsProperties.ClasspathContent properties = new ScsProperties.ClasspathContent();
+    properties.setMaxFileSize(DataSize.ofGigabytes(4));
+    assertThrows(IllegalArgumentException.class,
+        () -> new ScsClasspathContent(new ClassPathResource("content/"), properties));
+  }
+
+  /**
+   * Files, that are too large, are not held in memory.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void tooLarge() throws IOException {
+    ScsProperties.ClasspathContent properties = new ScsProperties.ClasspathContent();
+    properties.setMaxFileSize(DataSize.ofBytes(1L));
+    ScsClasspathContent content = new ScsClasspathContent(
+        new ClassPathResource("content/"), properties);
+    assertFalse(content.isComplete());
+    assertNull(content.find("index.html"));
+    assertTrue(content.isDirectory("dir"));
+  }
+
+  /**
+   * The lookup stage serves the files from memory and knows missing paths.
+   */
+  @Test
+  void lookup() {
+    ScsProperties properties = new ScsProperties();
+    properties.setContentLocation("classpath:content");
+    ScsResourceLookupFunction lookup = new ScsResourceLookupFunction(properties);
+    assertNotNull(lookup.getClasspathContent());
+    assertFalse(lookup.mightExist("missing.html"));
+    assertTrue(lookup.mightExist("dir"));
+
+    ScsResourceResolvers resolvers = new ScsResourceResolvers(Collections.emptyList());
+    ServerRequest request = mock(ServerRequest.class);
+    when(request.pathContainer()).thenReturn(PathContainer.parsePath("/example.html"));
+    StepVerifier.create(resolvers.resolve(request, lookup))
+        .assertNext(resource -> assertTrue(resource instanceof ScsPackResource))
+        .verifyComplete();
+
+    when(request.pathContainer()).thenReturn(PathContainer.parsePath("/missing.html"));
+    StepVerifier.create(resolvers.resolve(request, lookup))
+        .verifyComplete();
+
+    properties.getClasspathContent().setEnabled(false);
+    assertNull(new ScsResourceLookupFunction(properties).getClasspathContent());
+  }
+
+}
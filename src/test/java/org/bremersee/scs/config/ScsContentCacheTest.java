@@ -0,0 +1,254 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * The content cache test.
+ *
+ * @author Christian Bremer
+ */
+class ScsContentCacheTest {
+
+  @TempDir
+  Path root;
+
+  private ScsContentCache contentCache;
+
+  /**
+   * Sets up the content cache.
+   */
+  @BeforeEach
+  void setUp() {
+    ScsProperties.ContentCache properties = new ScsProperties.ContentCache();
+    properties.setEnabled(true);
+    properties.setMaxFileSize(DataSize.ofBytes(16L));
+    properties.setRevalidateInterval(Duration.ZERO);
+    contentCache = new ScsContentCache(properties);
+  }
+
+  /**
+   * Within the revalidate interval a hit is served without validating the file.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void revalidateInterval() throws IOException {
+    ScsProperties.ContentCache properties = new ScsProperties.ContentCache();
+    properties.setEnabled(true);
+    properties.setRevalidateInterval(Duration.ofHours(1L));
+    ScsContentCache contentCache = new ScsContentCache(properties);
+    Path file = root.resolve("a.txt");
+    Files.write(file, "hello".getBytes(StandardCharsets.UTF_8));
+    Resource resource = new FileSystemResource(file);
+
+    Resource first = contentCache.apply(resource).block();
+    assertTrue(first instanceof ScsMemoryResource);
+    Files.delete(file);
+    assertSame(first, contentCache.apply(resource).block());
+    assertEquals(1L, contentCache.getCache().hits());
+
+    properties.setRevalidateInterval(Duration.ZERO);
+    assertSame(resource, contentCache.apply(resource).block());
+  }
+
+  /**
+   * Small files are cached until they are modified.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void cacheUntilModified() throws IOException {
+    Path file = root.resolve("a.txt");
+    Files.write(file, "hello".getBytes(StandardCharsets.UTF_8));
+    Resource resource = new FileSystemResource(file);
+
+    Resource first = contentCache.apply(resource).block();
+    assertTrue(first instanceof ScsMemoryResource);
+    assertSame(first, contentCache.apply(new FileSystemResource(file)).block());
+    assertEquals("a.txt", first.getFilename());
+
+    Files.write(file, "world".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(first.lastModified() + 2000L));
+    Resource second = contentCache.apply(resource).block();
+    assertNotNull(second);
+    assertTrue(second != first);
+    assertEquals("world", new String(
+        ((ScsMemoryResource) second).getByteArray(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Large files are not cached.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void skipLargeFiles() throws IOException {
+    Path file = root.resolve("large.txt");
+    Files.write(file, "more than sixteen bytes".getBytes(StandardCharsets.UTF_8));
+    Resource resource = new FileSystemResource(file);
+    assertSame(resource, contentCache.apply(resource).block());
+    assertEquals(0, contentCache.getCache().size());
+  }
+
+  /**
+   * Files with the same content share one body.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void shareIdenticalContent() throws IOException {
+    Files.createDirectories(root.resolve("app1"));
+    Files.createDirectories(root.resolve("app2"));
+    Files.write(root.resolve("app1/lib.js"), "lib()".getBytes(StandardCharsets.UTF_8));
+    Files.write(root.resolve("app2/lib.js"), "lib()".getBytes(StandardCharsets.UTF_8));
+    Resource first = contentCache.load(new FileSystemResource(root.resolve("app1/lib.js")));
+    Resource second = contentCache.load(new FileSystemResource(root.resolve("app2/lib.js")));
+    assertSame(((ScsMemoryResource) first).getByteArray(),
+        ((ScsMemoryResource) second).getByteArray());
+    assertEquals("lib.js", second.getFilename());
+    assertEquals(2, contentCache.getCache().size());
+    assertEquals(1, contentCache.getBodies().size());
+    assertEquals(5L, contentCache.getBodies().weight());
+
+    String keyPrefix = ScsCache.key(new FileSystemResource(root.resolve("app1")));
+    assertEquals(1, contentCache.invalidate(keyPrefix));
+    assertEquals(1, contentCache.getBodies().size());
+    assertSame(second, contentCache.apply(
+        new FileSystemResource(root.resolve("app2/lib.js"))).block());
+
+    keyPrefix = ScsCache.key(new FileSystemResource(root.resolve("app2")));
+    assertEquals(1, contentCache.invalidate(keyPrefix));
+    assertEquals(0, contentCache.getBodies().size());
+  }
+
+  /**
+   * A body is released, when the last key of it is evicted or points to new content.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void releaseBodies() throws IOException {
+    ScsProperties.ContentCache properties = new ScsProperties.ContentCache();
+    properties.setEnabled(true);
+    properties.setMaxEntries(2);
+    contentCache = new ScsContentCache(properties);
+    Files.write(root.resolve("a.txt"), "one".getBytes(StandardCharsets.UTF_8));
+    Files.write(root.resolve("b.txt"), "two".getBytes(StandardCharsets.UTF_8));
+    Files.write(root.resolve("c.txt"), "two".getBytes(StandardCharsets.UTF_8));
+    contentCache.load(new FileSystemResource(root.resolve("a.txt")));
+    contentCache.load(new FileSystemResource(root.resolve("b.txt")));
+    assertEquals(2, contentCache.getBodies().size());
+    contentCache.load(new FileSystemResource(root.resolve("c.txt")));
+    assertEquals(2, contentCache.getCache().size());
+    assertEquals(1, contentCache.getBodies().size());
+    assertEquals(3L, contentCache.getBodies().weight());
+
+    Path file = root.resolve("b.txt");
+    Files.write(file, "three".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(
+        Files.getLastModifiedTime(file).toMillis() + 2000L));
+    contentCache.load(new FileSystemResource(file));
+    assertEquals(2, contentCache.getBodies().size());
+    contentCache.invalidate(ScsCache.key(new FileSystemResource(root.resolve("c.txt"))));
+    assertEquals(1, contentCache.getBodies().size());
+    assertEquals(5L, contentCache.getBodies().weight());
+  }
+
+  /**
+   * A hit is only counted, if the cached content is valid.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void countValidHits() throws IOException {
+    Path file = root.resolve("a.txt");
+    Files.write(file, "hello".getBytes(StandardCharsets.UTF_8));
+    Resource first = contentCache.apply(new FileSystemResource(file)).block();
+    assertEquals(0L, contentCache.getCache().hits());
+    assertEquals(1L, contentCache.getCache().misses());
+    assertSame(first, contentCache.apply(new FileSystemResource(file)).block());
+    assertEquals(1L, contentCache.getCache().hits());
+
+    Files.setLastModifiedTime(file, FileTime.fromMillis(first.lastModified() + 2000L));
+    assertTrue(first != contentCache.apply(new FileSystemResource(file)).block());
+    assertEquals(1L, contentCache.getCache().hits());
+    assertEquals(2L, contentCache.getCache().misses());
+    assertEquals(1, contentCache.getBodies().size());
+  }
+
+  /**
+   * Invalidate by key prefix.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void invalidate() throws IOException {
+    Files.createDirectories(root.resolve("css"));
+    Files.write(root.resolve("css/a.css"), "a {}".getBytes(StandardCharsets.UTF_8));
+    Files.write(root.resolve("b.js"), "b()".getBytes(StandardCharsets.UTF_8));
+    contentCache.load(new FileSystemResource(root.resolve("css/a.css")));
+    contentCache.load(new FileSystemResource(root.resolve("b.js")));
+    assertEquals(2, contentCache.getCache().size());
+
+    String keyPrefix = ScsCache.key(new FileSystemResource(root.resolve("css")));
+    assertEquals(1, contentCache.invalidate(keyPrefix));
+    assertEquals(1, contentCache.getCache().size());
+  }
+
+  /**
+   * Invalidate matches on a segment boundary.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void invalidateSegment() throws IOException {
+    Files.createDirectories(root.resolve("docs"));
+    Files.createDirectories(root.resolve("docs-old"));
+    Files.write(root.resolve("docs/a.html"), "new".getBytes(StandardCharsets.UTF_8));
+    Files.write(root.resolve("docs-old/a.html"), "old".getBytes(StandardCharsets.UTF_8));
+    Resource location = new UrlResource(root.toUri());
+    contentCache.load(location.createRelative("docs/a.html"));
+    contentCache.load(location.createRelative("docs-old/a.html"));
+    assertEquals(2, contentCache.getCache().size());
+
+    assertEquals(1, contentCache.invalidate(ScsCache.key(location.createRelative("docs"))));
+    assertEquals(1, contentCache.getCache().size());
+    assertEquals(1, contentCache.getBodies().size());
+    assertEquals(1, contentCache.invalidate(
+        ScsCache.key(location.createRelative("docs-old/a.html"))));
+    assertEquals(0, contentCache.getCache().size());
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+
+/**
+ * The actuator endpoint test.
+ *
+ * @author Christian Bremer
+ */
+class ScsEndpointTest {
+
+  @TempDir
+  Path root;
+
+  private ScsAccessStatistics accessStatistics;
+
+  private ScsRouterFunction router;
+
+  private ScsEndpoint endpoint;
+
+  /**
+   * Sets up the endpoint.
+   *
+   * @throws IOException the io exception
+   */
+  @BeforeEach
+  void setUp() throws IOException {
+    Files.createDirectories(root.resolve("css"));
+    Files.write(root.resolve("css/site.css"), "body {}".getBytes(StandardCharsets.UTF_8));
+    Files.write(root.resolve("index.html"), "<html></html>".getBytes(StandardCharsets.UTF_8));
+    ScsProperties properties = new ScsProperties();
+    properties.setContentLocation(root.toString());
+    properties.getContentCache().setEnabled(true);
+    accessStatistics = new ScsAccessStatistics(100);
+    router = ScsTestRouters.create(properties, accessStatistics);
+    endpoint = new ScsEndpoint(router, accessStatistics);
+  }
+
+  /**
+   * Preload, show statistics and invalidate.
+   */
+  @SuppressWarnings("unchecked")
+  @Test
+  void preloadAndInvalidate() {
+    Map<String, Object> preloaded = endpoint.execute("preload", null,
+        Arrays.asList("/css/site.css", "index.html", "/missing.js"), null);
+    assertEquals(Arrays.asList("/css/site.css", "index.html"), preloaded.get("loaded"));
+    assertEquals(Collections.singletonList("/missing.js"), preloaded.get("skipped"));
+
+    accessStatistics.record("index.html");
+    Map<String, Object> statistics = endpoint.statistics(5);
+    Map<String, Object> content = (Map<String, Object>) ((Map<String, Object>) statistics
+        .get("caches")).get("content");
+    assertEquals(2, content.get("size"));
+    List<Map<String, Object>> hotPaths = (List<Map<String, Object>>) statistics.get("hotPaths");
+    assertEquals("index.html", hotPaths.get(0).get("path"));
+    assertEquals(1L, hotPaths.get(0).get("accesses"));
+
+    Map<String, Object> invalidated = endpoint.execute("invalidate", "/css", null, null);
+    assertEquals(1, invalidated.get("invalidated"));
+    assertEquals(1, router.getContentCache().getCache().size());
+  }
+
+  /**
+   * Unknown operation.
+   */
+  @Test
+  void unknownOperation() {
+    assertThrows(InvalidEndpointRequestException.class,
+        () -> endpoint.execute("clear", null, null, null));
+  }
+
+}
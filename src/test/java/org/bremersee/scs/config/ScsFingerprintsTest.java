@@ -0,0 +1,221 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.bremersee.scs.config.ScsFingerprints.FINGERPRINT_ATTRIBUTE;
+import static org.bremersee.scs.config.ScsResourceLookupFunction.RESOURCE_PATH_ATTRIBUTE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.reactive.function.server.ServerRequest;
+
+/**
+ * The fingerprints test.
+ *
+ * @author Christian Bremer
+ */
+class ScsFingerprintsTest {
+
+  @TempDir
+  Path root;
+
+  private ScsResourceLookupFunction lookupFunction;
+
+  private ScsFingerprints fingerprints;
+
+  /**
+   * Sets up the content.
+   *
+   * @throws IOException the io exception
+   */
+  @BeforeEach
+  void setUp() throws IOException {
+    Files.createDirectories(root.resolve("css"));
+    Files.write(root.resolve("app.js"), "console.log('app');".getBytes(StandardCharsets.UTF_8));
+    Files.write(root.resolve("css/site.css"), "body {}".getBytes(StandardCharsets.UTF_8));
+    Files.write(root.resolve("index.html"), ("<html><head>"
+        + "<script src=\"app.js\"></script>"
+        + "<link rel='stylesheet' href=\"/css/site.css?v=1\">"
+        + "<script src=\"https://cdn.example.org/lib.js\"></script>"
+        + "<script src=\"missing.js\"></script>"
+        + "</head><body>Grüße</body></html>").getBytes(StandardCharsets.UTF_8));
+    ScsProperties properties = new ScsProperties();
+    properties.setContentLocation(root.toString());
+    properties.getFingerprint().setEnabled(true);
+    lookupFunction = new ScsResourceLookupFunction(properties);
+    fingerprints = new ScsFingerprints(properties.getFingerprint());
+  }
+
+  private static ServerRequest request(String path) {
+    ServerRequest request = mock(ServerRequest.class);
+    Map<String, Object> attributes = new HashMap<>();
+    when(request.pathContainer()).thenReturn(PathContainer.parsePath(path));
+    when(request.attributes()).thenReturn(attributes);
+    return request;
+  }
+
+  private String fingerprint(String path) throws IOException {
+    return fingerprints.fingerprint(path, lookupFunction.getLocation().createRelative(path));
+  }
+
+  /**
+   * Fingerprinted path.
+   */
+  @Test
+  void fingerprintedPath() {
+    assertEquals("app.abc.js", ScsFingerprints.fingerprintedPath("app.js", "abc"));
+    assertEquals("/a.b/app.abc.js", ScsFingerprints.fingerprintedPath("/a.b/app.js", "abc"));
+    assertNull(ScsFingerprints.fingerprintedPath("/a.b/app", "abc"));
+    assertNull(ScsFingerprints.fingerprintedPath("/a/.hidden", "abc"));
+  }
+
+  /**
+   * Resolve fingerprinted url.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void resolveFingerprintedUrl() throws IOException {
+    String hash = fingerprint("css/site.css");
+    assertNotNull(hash);
+    assertEquals(8, hash.length());
+
+    ServerRequest request = request("/css/site." + hash + ".css");
+    Resource resource = fingerprints.resolve(request, lookupFunction)
+        .block(Duration.ofSeconds(10));
+    assertNotNull(resource);
+    assertEquals("site.css", resource.getFilename());
+    assertEquals("css/site.css", request.attributes().get(RESOURCE_PATH_ATTRIBUTE));
+    assertEquals(Boolean.TRUE, request.attributes().get(FINGERPRINT_ATTRIBUTE));
+
+    assertNull(fingerprints.resolve(request("/css/site.0000aaaa.css"), lookupFunction)
+        .block(Duration.ofSeconds(10)));
+    assertNull(fingerprints.resolve(request("/index.html"), lookupFunction)
+        .block(Duration.ofSeconds(10)));
+  }
+
+  /**
+   * Rewrite html.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void rewriteHtml() throws IOException {
+    ServerRequest request = request("/index.html");
+    request.attributes().put(RESOURCE_PATH_ATTRIBUTE, "index.html");
+    Resource original = lookupFunction.getLocation().createRelative("index.html");
+    Resource rewritten = fingerprints.rewrite(request, original, lookupFunction)
+        .block(Duration.ofSeconds(10));
+    assertNotNull(rewritten);
+    String html = read(rewritten);
+    assertTrue(html.contains("src=\"app." + fingerprint("app.js") + ".js\""));
+    assertTrue(html.contains("href=\"/css/site." + fingerprint("css/site.css") + ".css?v=1\""));
+    assertTrue(html.contains("src=\"https://cdn.example.org/lib.js\""));
+    assertTrue(html.contains("src=\"missing.js\""));
+    assertTrue(html.contains("Grüße"));
+    assertEquals("index.html", rewritten.getFilename());
+
+    assertSame(rewritten, fingerprints.rewrite(request, original, lookupFunction)
+        .block(Duration.ofSeconds(10)));
+
+    // a changed reference invalidates the rewritten document
+    Files.write(root.resolve("app.js"),
+        "console.log('changed');".getBytes(StandardCharsets.UTF_8));
+    Resource changed = fingerprints.rewrite(request, original, lookupFunction)
+        .block(Duration.ofSeconds(10));
+    assertNotNull(changed);
+    assertTrue(read(changed).contains("src=\"app." + fingerprint("app.js") + ".js\""));
+  }
+
+  /**
+   * A changed reference changes the entity tag of the rewritten document, so that a client gets
+   * the new document instead of {@code 304 Not Modified}.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void rewrittenDocumentValidators() throws IOException {
+    ServerRequest request = request("/index.html");
+    request.attributes().put(RESOURCE_PATH_ATTRIBUTE, "index.html");
+    Resource original = lookupFunction.getLocation().createRelative("index.html");
+    Resource rewritten = fingerprints.rewrite(request, original, lookupFunction)
+        .block(Duration.ofSeconds(10));
+    assertNotNull(rewritten);
+    ScsFileMetadata metadata = ScsFileMetadata.of(rewritten);
+    HttpHeaders requestHeaders = new HttpHeaders();
+    requestHeaders.setIfNoneMatch(metadata.getETag());
+    assertEquals(HttpStatus.NOT_MODIFIED,
+        metadata.evaluatePreconditions(HttpMethod.GET, requestHeaders));
+
+    // same length, same time of the document
+    Files.write(root.resolve("app.js"), "console.log('xyz');".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(root.resolve("app.js"),
+        FileTime.fromMillis(original.lastModified() + 10_000L));
+    Resource changed = fingerprints.rewrite(request, original, lookupFunction)
+        .block(Duration.ofSeconds(10));
+    assertNotNull(changed);
+    assertEquals(rewritten.contentLength(), changed.contentLength());
+    ScsFileMetadata changedMetadata = ScsFileMetadata.of(changed);
+    assertNotEquals(metadata.getETag(), changedMetadata.getETag());
+    assertTrue(changedMetadata.getLastModified() > metadata.getLastModified());
+    assertNull(changedMetadata.evaluatePreconditions(HttpMethod.GET, requestHeaders));
+  }
+
+  /**
+   * Immutable headers.
+   */
+  @Test
+  void immutableHeaders() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setCacheControl("no-cache");
+    HttpHeaders immutable = fingerprints.immutableHeaders(HttpHeaders.readOnlyHttpHeaders(headers));
+    assertEquals("public, max-age=31536000, immutable", immutable.getCacheControl());
+    assertFalse(immutable.getCacheControl().contains("no-cache"));
+  }
+
+  private static String read(Resource resource) throws IOException {
+    try (InputStream in = resource.getInputStream()) {
+      return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+    }
+  }
+
+}
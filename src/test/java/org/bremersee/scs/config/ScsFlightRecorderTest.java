@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.bremersee.scs.config.ScsFlightRecorder.PatternMatchEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.server.PathContainer;
+
+/**
+ * The flight recorder test.
+ *
+ * @author Christian Bremer
+ */
+class ScsFlightRecorderTest {
+
+  @TempDir
+  Path root;
+
+  /**
+   * Disables the events.
+   */
+  @AfterEach
+  void tearDown() {
+    ScsFlightRecorder.setEnabled(false);
+  }
+
+  /**
+   * Path category.
+   */
+  @Test
+  void pathCategory() {
+    assertEquals("js", ScsFlightRecorder.pathCategory("app/main.JS"));
+    assertEquals("directory", ScsFlightRecorder.pathCategory("app/"));
+    assertEquals("directory", ScsFlightRecorder.pathCategory(""));
+    assertEquals("none", ScsFlightRecorder.pathCategory("v1.0/README"));
+    assertEquals("none", ScsFlightRecorder.pathCategory(null));
+  }
+
+  /**
+   * No events are created, if they are disabled or not recorded.
+   */
+  @Test
+  void disabled() {
+    ScsFlightRecorder.setEnabled(false);
+    assertNull(ScsFlightRecorder.begin(PatternMatchEvent.class, PatternMatchEvent::new));
+    ScsFlightRecorder.setEnabled(true);
+    assertNull(ScsFlightRecorder.begin(PatternMatchEvent.class, PatternMatchEvent::new));
+  }
+
+  /**
+   * The stages of a lookup are recorded.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void recordLookup() throws IOException {
+    Files.write(root.resolve("index.html"), "<html></html>".getBytes(StandardCharsets.UTF_8));
+    ScsProperties properties = new ScsProperties();
+    properties.setContentLocation(root.toString());
+    ScsResourceLookupFunction lookupFunction = new ScsResourceLookupFunction(properties);
+    ScsFlightRecorder.setEnabled(true);
+
+    Path dump = root.resolve("recording.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("org.bremersee.scs.PatternMatch");
+      recording.enable("org.bremersee.scs.PathNormalization");
+      recording.start();
+      assertNotNull(ScsFlightRecorder.begin(PatternMatchEvent.class, PatternMatchEvent::new));
+      assertEquals("", lookupFunction.normalizePath(PathContainer.parsePath("/")));
+      recording.stop();
+      recording.dump(dump);
+    }
+    List<String> names = RecordingFile.readAllEvents(dump).stream()
+        .map(event -> event.getEventType().getName())
+        .collect(Collectors.toList());
+    assertTrue(names.contains("org.bremersee.scs.PatternMatch"));
+    assertTrue(names.contains("org.bremersee.scs.PathNormalization"));
+    RecordedEvent event = RecordingFile.readAllEvents(dump).stream()
+        .filter(e -> e.getEventType().getName().equals("org.bremersee.scs.PathNormalization"))
+        .findFirst()
+        .orElseThrow(IllegalStateException::new);
+    assertEquals("directory", event.getString("pathCategory"));
+  }
+
+}
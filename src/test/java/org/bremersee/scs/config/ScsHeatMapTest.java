@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+
+/**
+ * The heat map test.
+ *
+ * @author Christian Bremer
+ */
+class ScsHeatMapTest {
+
+  @TempDir
+  Path root;
+
+  private ScsProperties properties;
+
+  /**
+   * Sets up the content.
+   *
+   * @throws IOException the io exception
+   */
+  @BeforeEach
+  void setUp() throws IOException {
+    Files.createDirectories(root.resolve("content/css"));
+    Files.write(root.resolve("content/index.html"), "<html></html>".getBytes(
+        StandardCharsets.UTF_8));
+    Files.write(root.resolve("content/css/site.css"), "body {}".getBytes(StandardCharsets.UTF_8));
+    properties = new ScsProperties();
+    properties.setContentLocation(root.resolve("content").toString());
+    properties.getContentCache().setEnabled(true);
+    properties.getHeatMap().setEnabled(true);
+    properties.getHeatMap().setFile(root.resolve("data/heat-map.txt").toString());
+  }
+
+  private ScsHeatMap createHeatMap(ScsAccessStatistics accessStatistics) {
+    ScsRouterFunction router = ScsTestRouters.create(properties, accessStatistics);
+    return new ScsHeatMap(properties.getHeatMap(), accessStatistics, router);
+  }
+
+  /**
+   * Persist the heat map and warm up a new instance.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void persistAndWarmUp() throws IOException {
+    ScsAccessStatistics accessStatistics = new ScsAccessStatistics(100);
+    for (int i = 0; i < 10; i++) {
+      accessStatistics.record("index.html");
+    }
+    accessStatistics.record("css/site.css");
+    accessStatistics.record("css/site.css");
+    accessStatistics.record("missing.js");
+    ScsHeatMap heatMap = createHeatMap(accessStatistics);
+    heatMap.persist();
+
+    List<Map.Entry<String, Long>> entries = heatMap.read();
+    assertEquals(3, entries.size());
+    assertEquals("index.html", entries.get(0).getKey());
+    assertEquals(10L, entries.get(0).getValue());
+
+    ScsAccessStatistics restored = new ScsAccessStatistics(100);
+    ScsHeatMap newHeatMap = createHeatMap(restored);
+    assertEquals(2, newHeatMap.warmUp().block());
+    assertEquals("index.html", restored.top(1).get(0).getKey());
+    assertEquals(5L, restored.top(1).get(0).getValue());
+  }
+
+  /**
+   * An empty heat map is not persisted and a missing file is no error.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void emptyHeatMap() throws IOException {
+    ScsHeatMap heatMap = createHeatMap(new ScsAccessStatistics(100));
+    heatMap.persist();
+    assertFalse(Files.exists(root.resolve("data/heat-map.txt")));
+    assertTrue(heatMap.read().isEmpty());
+    assertEquals(0, heatMap.warmUp().block());
+  }
+
+  /**
+   * Paths of the heat map file, that are not normalized, are ignored.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void invalidPaths() throws IOException {
+    Files.createDirectories(root.resolve("data"));
+    Files.write(root.resolve("data/heat-map.txt"), String.join("\n",
+        "8 ../secret.txt",
+        "6 css/../../secret.txt",
+        "4 /index.html",
+        "2 css/site.css").getBytes(StandardCharsets.UTF_8));
+    ScsAccessStatistics accessStatistics = new ScsAccessStatistics(100);
+    ScsHeatMap heatMap = createHeatMap(accessStatistics);
+    assertEquals(4, heatMap.read().size());
+    assertEquals(1, heatMap.warmUp().block());
+    List<Map.Entry<String, Long>> top = accessStatistics.top(10);
+    assertEquals(1, top.size());
+    assertEquals("css/site.css", top.get(0).getKey());
+  }
+
+  /**
+   * The readiness state stays refusing traffic until the warm-up is finished.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void holdReadiness() throws Exception {
+    ScsAccessStatistics accessStatistics = new ScsAccessStatistics(100);
+    accessStatistics.record("index.html");
+    createHeatMap(accessStatistics).persist();
+
+    properties.getHeatMap().setHoldReadiness(true);
+    ApplicationAvailability availability = mock(ApplicationAvailability.class);
+    when(availability.getReadinessState()).thenReturn(ReadinessState.ACCEPTING_TRAFFIC);
+    ScsHeatMap heatMap = createHeatMap(new ScsAccessStatistics(100));
+    ScsWarmUpReadinessIndicator indicator = new ScsWarmUpReadinessIndicator(availability, heatMap);
+    assertEquals(Status.OUT_OF_SERVICE, indicator.health().getStatus());
+
+    heatMap.start();
+    try {
+      for (int i = 0; i < 100; i++) {
+        Status status = indicator.health().getStatus();
+        if (heatMap.isWarm()) {
+          break;
+        }
+        assertEquals(Status.OUT_OF_SERVICE, status);
+        Thread.sleep(50L);
+      }
+      assertTrue(heatMap.isWarm());
+      assertEquals(Status.UP, indicator.health().getStatus());
+    } finally {
+      heatMap.close();
+    }
+  }
+
+}
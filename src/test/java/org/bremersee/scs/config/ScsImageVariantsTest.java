@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+
+/**
+ * The image variants test.
+ *
+ * @author Christian Bremer
+ */
+class ScsImageVariantsTest {
+
+  @TempDir
+  Path root;
+
+  @TempDir
+  Path variants;
+
+  private ScsProperties.ImageVariants properties;
+
+  private Resource image;
+
+  /**
+   * Creates an image of 1000 x 500 pixels.
+   *
+   * @throws IOException the io exception
+   */
+  @BeforeEach
+  void setUp() throws IOException {
+    properties = new ScsProperties.ImageVariants();
+    properties.setEnabled(true);
+    properties.setDirectory(variants.toString());
+    BufferedImage source = new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = source.createGraphics();
+    graphics.setColor(Color.BLUE);
+    graphics.fillRect(0, 0, 1000, 500);
+    graphics.dispose();
+    Path file = root.resolve("photo.png");
+    ImageIO.write(source, "png", file.toFile());
+    image = new FileSystemResource(file);
+  }
+
+  /**
+   * An allowed width is scaled once and then served from memory.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void scale() throws IOException {
+    ScsImageVariants imageVariants = imageVariants();
+    MockServerRequest request = request("w=320");
+    Resource variant = imageVariants.apply(request, image).block();
+    assertTrue(variant instanceof ScsMemoryResource);
+    assertEquals(MediaType.IMAGE_PNG, request.attributes()
+        .get(ScsImageVariants.VARIANT_TYPE_ATTRIBUTE));
+    BufferedImage scaled = read(variant);
+    assertEquals(320, scaled.getWidth());
+    assertEquals(160, scaled.getHeight());
+    assertEquals(image.lastModified(), variant.lastModified());
+    assertSame(variant, imageVariants.apply(request("w=320"), image).block());
+    assertEquals(1, imageVariants.getCache().size());
+  }
+
+  /**
+   * The format is converted.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void convert() throws IOException {
+    MockServerRequest request = request("w=640&format=jpeg");
+    Resource variant = imageVariants().apply(request, image).block();
+    assertEquals(MediaType.IMAGE_JPEG, request.attributes()
+        .get(ScsImageVariants.VARIANT_TYPE_ATTRIBUTE));
+    assertEquals(640, read(variant).getWidth());
+  }
+
+  /**
+   * Widths and formats, that are not allowed, get the original image.
+   */
+  @Test
+  void notAllowed() {
+    ScsImageVariants imageVariants = imageVariants();
+    for (String query : new String[]{"w=333", "w=abc", "format=bmp", "format=png", "x=1"}) {
+      MockServerRequest request = request(query);
+      assertSame(image, imageVariants.apply(request, image).block(), query);
+      assertNull(request.attributes().get(ScsImageVariants.VARIANT_TYPE_ATTRIBUTE), query);
+    }
+    assertEquals(0, imageVariants.getCache().size());
+  }
+
+  /**
+   * Variants are kept on disk, so that they are not created again after a restart.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void disk() throws IOException {
+    Resource first = imageVariants().apply(request("w=320"), image).block();
+    assertNotNull(first);
+    try (Stream<Path> files = Files.walk(variants)) {
+      assertEquals(1L, files.filter(file -> file.toString().endsWith(".png")).count());
+    }
+    ScsImageVariants restarted = imageVariants();
+    Resource second = restarted.apply(request("w=320"), image).block();
+    assertNotNull(second);
+    assertEquals(first.contentLength(), second.contentLength());
+  }
+
+  /**
+   * A head request does not render a variant.
+   */
+  @Test
+  void head() {
+    ScsImageVariants imageVariants = imageVariants();
+    MockServerRequest request = MockServerRequest.builder()
+        .method(HttpMethod.HEAD)
+        .uri(URI.create("http://localhost/photo.png?w=320"))
+        .queryParam("w", "320")
+        .build();
+    assertSame(image, imageVariants.apply(request, image).block());
+    assertEquals(Boolean.TRUE, request.attributes().get(ScsImageVariants.FALLBACK_ATTRIBUTE));
+    assertEquals(0, imageVariants.getCache().size());
+  }
+
+  /**
+   * Above the limit of concurrent renders the original image is served, but it must not be
+   * stored under the URL of the variant.
+   */
+  @Test
+  void tooManyRenders() {
+    properties.setMaxConcurrentRenders(0);
+    ScsImageVariants imageVariants = imageVariants();
+    MockServerRequest request = request("w=320");
+    assertSame(image, imageVariants.apply(request, image).block());
+    assertNull(request.attributes().get(ScsImageVariants.VARIANT_TYPE_ATTRIBUTE));
+    assertEquals(Boolean.TRUE, request.attributes().get(ScsImageVariants.FALLBACK_ATTRIBUTE));
+    assertEquals(0, imageVariants.getCache().size());
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setCacheControl(CacheControl.maxAge(Duration.ofDays(1L)));
+    headers.setContentType(MediaType.IMAGE_PNG);
+    HttpHeaders fallbackHeaders = imageVariants.fallbackHeaders(headers);
+    assertEquals("no-store", fallbackHeaders.getCacheControl());
+    assertEquals(MediaType.IMAGE_PNG, fallbackHeaders.getContentType());
+    assertEquals("max-age=86400", headers.getCacheControl());
+  }
+
+  private ScsImageVariants imageVariants() {
+    return new ScsImageVariants(properties, root.toString());
+  }
+
+  private static MockServerRequest request(String query) {
+    MockServerRequest.Builder builder = MockServerRequest.builder()
+        .uri(URI.create("http://localhost/photo.png?" + query));
+    for (String param : query.split("&")) {
+      String[] pair = param.split("=");
+      builder.queryParam(pair[0], pair[1]);
+    }
+    return builder.build();
+  }
+
+  private static BufferedImage read(Resource resource) throws IOException {
+    assertNotNull(resource);
+    BufferedImage image = ImageIO
+        .read(new ByteArrayInputStream(((ScsMemoryResource) resource).getByteArray()));
+    assertNotNull(image);
+    return image;
+  }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * The load shedder test.
+ *
+ * @author Christian Bremer
+ */
+class ScsLoadShedderTest {
+
+  private final AtomicLong lag = new AtomicLong();
+
+  private final AtomicInteger pendingIo = new AtomicInteger();
+
+  private final ScsLoadShedder loadShedder = new ScsLoadShedder(
+      new ScsProperties.LoadShedding(), lag::get, pendingIo::get, new SimpleMeterRegistry());
+
+  private HttpStatus filter(String uri) {
+    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(uri));
+    loadShedder.filter(exchange, e -> Mono.empty()).block();
+    return exchange.getResponse().getStatusCode();
+  }
+
+  /**
+   * Nothing is rejected without load.
+   */
+  @Test
+  void nothingIsRejectedWithoutLoad() {
+    assertNull(filter("/index.html"));
+    assertNull(filter("/downloads/image.iso"));
+    assertNull(filter("/docs?zip"));
+  }
+
+  /**
+   * Low priority requests are rejected first.
+   */
+  @Test
+  void lowPriorityRequestsAreRejectedFirst() {
+    lag.set(Duration.ofMillis(200).toNanos());
+    assertNull(filter("/index.html"));
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, filter("/downloads/image.iso"));
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, filter("/docs?zip"));
+
+    lag.set(0L);
+    pendingIo.set(100);
+    assertNull(filter("/index.html"));
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, filter("/downloads/video.MP4"));
+  }
+
+  /**
+   * All requests are rejected when critical.
+   */
+  @Test
+  void allRequestsAreRejectedWhenCritical() {
+    lag.set(Duration.ofSeconds(2).toNanos());
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, filter("/index.html"));
+    assertNull(filter("/actuator/health"));
+  }
+
+  /**
+   * Blocking io counts pending tasks.
+   *
+   * @throws InterruptedException the interrupted exception
+   */
+  @Test
+  void blockingIoCountsPendingTasks() throws InterruptedException {
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    int before = ScsBlockingIo.pending();
+    Mono.fromRunnable(() -> {
+      running.countDown();
+      try {
+        release.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    })
+        .subscribeOn(ScsBlockingIo.scheduler())
+        .subscribe();
+    assertTrue(running.await(10, TimeUnit.SECONDS));
+    assertTrue(ScsBlockingIo.pending() > before);
+    release.countDown();
+    long deadline = System.currentTimeMillis() + 5000L;
+    while (ScsBlockingIo.pending() > before && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10L);
+    }
+    assertEquals(before, ScsBlockingIo.pending());
+  }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * The pack store test.
+ *
+ * @author Christian Bremer
+ */
+class ScsPackStoreTest {
+
+  @TempDir
+  Path root;
+
+  @TempDir
+  Path packs;
+
+  /**
+   * Small files are packed, large files are not.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void find() throws Exception {
+    Files.createDirectories(root.resolve("i18n"));
+    write("i18n/en.json", "{\"hello\":\"Hello\"}");
+    write("large.txt", new String(new char[5000]).replace('\0', 'x'));
+    try (ScsPackStore store = new ScsPackStore(root, properties())) {
+      store.update();
+      assertEquals(1, store.size());
+      Resource resource = store.find("i18n/en.json", original("i18n/en.json"));
+      assertTrue(resource instanceof ScsPackResource);
+      assertEquals("{\"hello\":\"Hello\"}", read(resource));
+      assertEquals(17L, resource.contentLength());
+      assertEquals("en.json", resource.getFilename());
+      assertEquals(ScsCache.key(original("i18n/en.json")), ScsCache.key(resource));
+      assertEquals(Files.getLastModifiedTime(root.resolve("i18n/en.json")).toMillis(),
+          resource.lastModified());
+      assertNull(store.find("large.txt", original("large.txt")));
+      assertNull(store.find("missing.txt", original("missing.txt")));
+    }
+  }
+
+  /**
+   * New and changed files are packed, deleted files are removed by the next update.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void update() throws Exception {
+    write("a.txt", "a");
+    write("b.txt", "b");
+    try (ScsPackStore store = new ScsPackStore(root, properties())) {
+      store.update();
+      assertEquals(2, store.size());
+
+      write("a.txt", "changed");
+      Files.setLastModifiedTime(root.resolve("a.txt"), FileTime.fromMillis(1_000_000L));
+      write("c.txt", "c");
+      Files.delete(root.resolve("b.txt"));
+      store.update();
+      assertEquals(2, store.size());
+      assertEquals("changed", read(store.find("a.txt", original("a.txt"))));
+      assertEquals("c", read(store.find("c.txt", original("c.txt"))));
+      assertNull(store.find("b.txt", original("b.txt")));
+
+      for (int i = 0; i < 5; i++) {
+        write("a.txt", "changed " + i);
+        Files.setLastModifiedTime(root.resolve("a.txt"), FileTime.fromMillis(2_000_000L + i));
+        store.update();
+        assertEquals("changed " + i, read(store.find("a.txt", original("a.txt"))));
+      }
+      assertEquals("c", read(store.find("c.txt", original("c.txt"))));
+    }
+  }
+
+  /**
+   * A changed or deleted file is not served from the pack before the next update.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void notStale() throws Exception {
+    write("a.txt", "a");
+    write("b.txt", "b");
+    try (ScsPackStore store = new ScsPackStore(root, properties())) {
+      store.update();
+      assertEquals(2, store.size());
+
+      write("a.txt", "changed");
+      Files.delete(root.resolve("b.txt"));
+      assertNull(store.find("a.txt", original("a.txt")));
+      assertNull(store.find("b.txt", original("b.txt")));
+      assertEquals(2, store.size());
+    }
+
+    Files.createDirectories(root.resolve("css"));
+    write("css/site.css", "body {}");
+    ScsProperties.PathFilter filterProperties = new ScsProperties.PathFilter();
+    filterProperties.setEnabled(true);
+    try (ScsPathFilter filter = new ScsPathFilter(root, filterProperties);
+        ScsPackStore store = new ScsPackStore(root, properties()).listenTo(filter)) {
+      filter.start();
+      await(filter::isReady);
+      store.update();
+      assertNotNull(store.find("css/site.css", original("css/site.css")));
+
+      store.changed("css");
+      assertNull(store.find("css/site.css", original("css/site.css")));
+      assertNotNull(store.find("a.txt", original("a.txt")));
+      store.update();
+      assertNotNull(store.find("css/site.css", original("css/site.css")));
+    }
+  }
+
+  /**
+   * With a path filter, only the paths of the watch events are checked.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void updateChanges() throws Exception {
+    Files.createDirectories(root.resolve("css"));
+    write("css/site.css", "body {}");
+    write("a.txt", "a");
+    ScsProperties.PathFilter filterProperties = new ScsProperties.PathFilter();
+    filterProperties.setEnabled(true);
+    try (ScsPathFilter filter = new ScsPathFilter(root, filterProperties);
+        ScsPackStore store = new ScsPackStore(root, properties()).listenTo(filter)) {
+      filter.start();
+      await(filter::isReady);
+      store.update();
+      assertEquals(2, store.size());
+
+      write("b.txt", "b");
+      await(() -> "b".equals(update(store, "b.txt")));
+
+      Files.delete(root.resolve("css/site.css"));
+      Files.delete(root.resolve("css"));
+      await(() -> update(store, "css/site.css") == null);
+      assertEquals(2, store.size());
+
+      // a change, that was not reported, is found by the next full scan after an invalidation
+      store.changed("c.txt");
+      write("d.txt", "d");
+      store.invalidated();
+      store.update();
+      assertEquals("d", read(store.find("d.txt", original("d.txt"))));
+    }
+  }
+
+  /**
+   * The content and the metadata of a packed file are read from memory.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void metadata() throws Exception {
+    write("icon.svg", "<svg></svg>");
+    try (ScsPackStore store = new ScsPackStore(root, properties())) {
+      store.update();
+      ScsPackResource resource = (ScsPackResource) store.find("icon.svg", original("icon.svg"));
+      assertNotNull(resource);
+      assertEquals(11, resource.getByteBuffer().remaining());
+      assertTrue(resource.getByteBuffer().isReadOnly());
+      assertEquals(new ScsFileMetadata(11L, resource.lastModified()).getETag(),
+          ScsFileMetadata.of(resource).getETag());
+    }
+  }
+
+  private String update(ScsPackStore store, String path) {
+    try {
+      store.update();
+      Resource resource = store.find(path, original(path));
+      return resource != null ? read(resource) : null;
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long end = System.currentTimeMillis() + 30_000L;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < end, "Timeout");
+      Thread.sleep(20L);
+    }
+  }
+
+  private ScsProperties.PackStore properties() {
+    ScsProperties.PackStore properties = new ScsProperties.PackStore();
+    properties.setEnabled(true);
+    properties.setMaxFileSize(DataSize.ofKilobytes(4));
+    properties.setDirectory(packs.toString());
+    return properties;
+  }
+
+  private void write(String path, String content) throws Exception {
+    Files.write(root.resolve(path), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private Resource original(String path) {
+    return new FileSystemResource(root.resolve(path));
+  }
+
+  private static String read(Resource resource) throws Exception {
+    return StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The bloom filter and path filter test.
+ *
+ * @author Christian Bremer
+ */
+class ScsPathFilterTest {
+
+  @TempDir
+  Path root;
+
+  /**
+   * The bloom filter has no false negatives and about the configured false positive rate.
+   */
+  @Test
+  void bloomFilter() {
+    ScsBloomFilter filter = new ScsBloomFilter(100_000L, 0.01);
+    for (int i = 0; i < 100_000; i++) {
+      filter.put("assets/file-" + i + ".js");
+    }
+    for (int i = 0; i < 100_000; i++) {
+      assertTrue(filter.mightContain("assets/file-" + i + ".js"));
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 100_000; i++) {
+      if (filter.mightContain("wp-admin/probe-" + i + ".php")) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+    assertTrue(filter.sizeInBytes() < 130_000L, "Size: " + filter.sizeInBytes());
+  }
+
+  /**
+   * The path filter contains existing paths and new files.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void pathFilter() throws Exception {
+    Files.createDirectories(root.resolve("css"));
+    Files.write(root.resolve("index.html"), "<html></html>".getBytes(StandardCharsets.UTF_8));
+    Files.write(root.resolve("css/site.css"), "body {}".getBytes(StandardCharsets.UTF_8));
+    ScsProperties.PathFilter properties = new ScsProperties.PathFilter();
+    properties.setEnabled(true);
+    properties.setExpectedPaths(10L);
+    try (ScsPathFilter filter = new ScsPathFilter(root, properties)) {
+      assertTrue(filter.mightContain(".env"));
+      filter.start();
+      await(filter::isReady);
+      assertTrue(filter.mightContain("index.html"));
+      assertTrue(filter.mightContain("css"));
+      assertTrue(filter.mightContain("css/site.css"));
+      assertTrue(filter.mightContain(""));
+      assertFalse(filter.mightContain(".env") && filter.mightContain("wp-admin/index.php"));
+
+      Files.createDirectories(root.resolve("js"));
+      Files.write(root.resolve("js/app.js"), "app()".getBytes(StandardCharsets.UTF_8));
+      await(() -> filter.mightContain("js/app.js"));
+    }
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long end = System.currentTimeMillis() + 30_000L;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < end, "Timeout");
+      Thread.sleep(20L);
+    }
+  }
+
+  /**
+   * A failure degrades the filter, so that all paths pass.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void degraded() throws Exception {
+    Files.write(root.resolve("index.html"), "<html></html>".getBytes(StandardCharsets.UTF_8));
+    ScsProperties.PathFilter properties = new ScsProperties.PathFilter();
+    properties.setEnabled(true);
+    AtomicBoolean failed = new AtomicBoolean();
+    try (ScsPathFilter filter = new ScsPathFilter(root, properties)) {
+      filter.addListener(new ScsPathFilter.Listener() {
+        @Override
+        public void changed(String path) {
+        }
+
+        @Override
+        public void invalidated() {
+          if (failed.compareAndSet(false, true)) {
+            throw new IllegalStateException("User limit of inotify watches reached");
+          }
+        }
+      });
+      assertFalse(filter.isDegraded());
+      assertNull(filter.getFailure());
+      filter.start();
+      await(filter::isDegraded);
+      assertEquals("User limit of inotify watches reached", filter.getFailure());
+      assertFalse(filter.isReady());
+      assertTrue(filter.mightContain(".env"));
+    }
+  }
+
+  /**
+   * The lookup function rejects missing paths.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void lookupFunction() throws Exception {
+    Files.write(root.resolve("index.html"), "<html></html>".getBytes(StandardCharsets.UTF_8));
+    ScsProperties properties = new ScsProperties();
+    properties.setContentLocation(root.toString());
+    properties.getPathFilter().setEnabled(true);
+    try (ScsResourceLookupFunction lookupFunction = new ScsResourceLookupFunction(properties)) {
+      assertTrue(lookupFunction.mightExist("index.html"));
+      await(() -> !lookupFunction.mightExist(".env") || !lookupFunction.mightExist(".git"));
+      assertTrue(lookupFunction.mightExist("index.html"));
+    }
+    properties.getPathFilter().setEnabled(false);
+    try (ScsResourceLookupFunction lookupFunction = new ScsResourceLookupFunction(properties)) {
+      assertTrue(lookupFunction.mightExist(".env"));
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The path normalizer test.
+ *
+ * @author Christian Bremer
+ */
+@Slf4j
+class ScsPathNormalizerTest {
+
+  private static final int ITERATIONS = 100000;
+
+  /**
+   * Normalize.
+   */
+  @Test
+  void normalize() {
+    ScsPathNormalizer normalizer = new ScsPathNormalizer(16);
+    assertEquals("", normalizer.normalize(null, 0));
+    assertEquals("", normalizer.normalize("/", 1));
+    assertEquals("", normalizer.normalize("/ \t/", 0));
+    assertEquals("index.html", normalizer.normalize("index.html", 0));
+    assertEquals("dir/dir.html", normalizer.normalize("/dir/dir.html", 1));
+    assertEquals("dir", normalizer.normalize("/dir/", 1));
+    assertEquals("a/b", normalizer.normalize("//a//b/", 0));
+    assertEquals("a/b", normalizer.normalize("/a/./b/.", 0));
+    assertEquals("x/y", normalizer.normalize("/demo/x/y", 5));
+    assertEquals("", normalizer.normalize("/demo", 5));
+  }
+
+  /**
+   * Normalize encoded.
+   */
+  @Test
+  void normalizeEncoded() {
+    ScsPathNormalizer normalizer = new ScsPathNormalizer(16);
+    assertEquals("straße/enc.html", normalizer.normalize("/stra%C3%9Fe/enc.html", 1));
+    assertEquals("straße/enc.html", normalizer.normalize("/straße/enc.html", 1));
+    assertEquals("a b/c", normalizer.normalize("a%20b%2Fc", 0));
+  }
+
+  /**
+   * Normalize invalid.
+   */
+  @Test
+  void normalizeInvalid() {
+    ScsPathNormalizer normalizer = new ScsPathNormalizer(0);
+    assertNull(normalizer.normalize("/a/../b", 0));
+    assertNull(normalizer.normalize("/..", 0));
+    assertNull(normalizer.normalize("/..%2Fetc/passwd", 0));
+    assertNull(normalizer.normalize("/%2e%2e/etc/passwd", 0));
+    assertNull(normalizer.normalize("/a%00b", 0));
+    assertNull(normalizer.normalize("/a%5C..%5Cb", 0));
+    assertNull(normalizer.normalize("/a%zz", 0));
+    assertNull(normalizer.normalize("/a%2", 0));
+  }
+
+  /**
+   * Clean paths and cache hits do not allocate.
+   */
+  @Test
+  void cleanPathsAndCacheHitsDoNotAllocate() {
+    ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+    assumeTrue(threadMxBean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadMxBean;
+    assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+
+    ScsPathNormalizer normalizer = new ScsPathNormalizer(16);
+    String encoded = "/stra%C3%9Fe/enc.html";
+    String clean = "dir/dir.html";
+    assertSame(normalizer.normalize(encoded, 1), normalizer.normalize(encoded, 1));
+    assertSame(clean, normalizer.normalize(clean, 0));
+
+    for (int i = 0; i < ITERATIONS; i++) {
+      normalizer.normalize(encoded, 1);
+      normalizer.normalize(clean, 0);
+    }
+    long threadId = Thread.currentThread().getId();
+    long before = bean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < ITERATIONS; i++) {
+      normalizer.normalize(encoded, 1);
+      normalizer.normalize(clean, 0);
+    }
+    long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+    double bytesPerOperation = (double) allocated / (2 * ITERATIONS);
+    log.info("Path normalizer allocates {} bytes per operation.", bytesPerOperation);
+    assertTrue(bytesPerOperation < 1.0);
+  }
+
+}
@@ -138,6 +138,33 @@ class ScsPropertiesTest {
     assertTrue(actual.toString().contains(value.toString()));
   }
 
+  /**
+   * Gets startup.
+   */
+  @Test
+  void getStartup() {
+    ScsProperties.Startup value = new ScsProperties.Startup();
+    value.setExitOnReady(true);
+    value.setLogMetrics(false);
+    ScsProperties actual = new ScsProperties();
+    actual.setStartup(value);
+    assertEquals(value, actual.getStartup());
+    assertTrue(actual.getStartup().isExitOnReady());
+
+    ScsProperties expected = new ScsProperties();
+    ScsProperties.Startup expectedValue = new ScsProperties.Startup();
+    expectedValue.setExitOnReady(true);
+    expectedValue.setLogMetrics(false);
+    expected.setStartup(expectedValue);
+
+    assertEquals(actual, actual);
+    assertEquals(expected, actual);
+    assertEquals(expected.hashCode(), actual.hashCode());
+    assertNotEquals(new ScsProperties(), actual);
+
+    assertTrue(actual.toString().contains(value.toString()));
+  }
+
   /**
    * Create content resource.
    */
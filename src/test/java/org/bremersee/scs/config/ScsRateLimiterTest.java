@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * The rate limiter test.
+ *
+ * @author Christian Bremer
+ */
+class ScsRateLimiterTest {
+
+  private static final WebFilterChain CHAIN = exchange -> Mono.empty();
+
+  private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private ScsRateLimiter createRateLimiter(double rate, int burst, int maxConcurrent) {
+    ScsProperties.Limit limit = new ScsProperties.Limit();
+    limit.setRequestsPerSecond(rate);
+    limit.setBurst(burst);
+    limit.setMaxConcurrent(maxConcurrent);
+    ScsProperties.RateLimit properties = new ScsProperties.RateLimit();
+    properties.setIdleTimeout(Duration.ofMinutes(1));
+    properties.getPatternLimitMap().put("[/downloads/**]", limit);
+    return new ScsRateLimiter(properties, meterRegistry, clock::get);
+  }
+
+  private static MockServerWebExchange exchange(String path, String client) {
+    return MockServerWebExchange.from(MockServerHttpRequest.get(path)
+        .remoteAddress(new InetSocketAddress(client, 12345)));
+  }
+
+  private static HttpStatus filter(ScsRateLimiter rateLimiter, MockServerWebExchange exchange) {
+    rateLimiter.filter(exchange, CHAIN).block();
+    return exchange.getResponse().getStatusCode();
+  }
+
+  /**
+   * Burst is accepted and then the rate is limited.
+   */
+  @Test
+  void burstIsAcceptedAndThenRateIsLimited() {
+    ScsRateLimiter rateLimiter = createRateLimiter(1., 3, 0);
+    for (int i = 0; i < 3; i++) {
+      assertNull(filter(rateLimiter, exchange("/downloads/a.zip", "10.0.0.1")));
+    }
+    MockServerWebExchange exchange = exchange("/downloads/a.zip", "10.0.0.1");
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS, filter(rateLimiter, exchange));
+    assertEquals("1", exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+    // other clients and other paths are not affected
+    assertNull(filter(rateLimiter, exchange("/downloads/a.zip", "10.0.0.2")));
+    assertNull(filter(rateLimiter, exchange("/index.html", "10.0.0.1")));
+
+    clock.addAndGet(Duration.ofSeconds(1).toNanos());
+    assertNull(filter(rateLimiter, exchange("/downloads/a.zip", "10.0.0.1")));
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS,
+        filter(rateLimiter, exchange("/downloads/a.zip", "10.0.0.1")));
+
+    assertEquals(2.0, meterRegistry.get("scs.rate-limit.rejected")
+        .tag("reason", "rate").counter().count());
+  }
+
+  /**
+   * Concurrent requests are limited.
+   */
+  @Test
+  void concurrentRequestsAreLimited() {
+    ScsRateLimiter rateLimiter = createRateLimiter(1000., 1000, 1);
+    MockServerWebExchange first = exchange("/downloads/a.zip", "10.0.0.1");
+    Disposable inFlight = rateLimiter.filter(first, exchange -> Mono.never()).subscribe();
+
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS,
+        filter(rateLimiter, exchange("/downloads/b.zip", "10.0.0.1")));
+    assertNull(filter(rateLimiter, exchange("/downloads/b.zip", "10.0.0.2")));
+
+    inFlight.dispose();
+    assertNull(filter(rateLimiter, exchange("/downloads/b.zip", "10.0.0.1")));
+  }
+
+  /**
+   * Idle clients are removed.
+   */
+  @Test
+  void idleClientsAreRemoved() {
+    ScsRateLimiter rateLimiter = createRateLimiter(10., 10, 0);
+    filter(rateLimiter, exchange("/downloads/a.zip", "10.0.0.1"));
+    filter(rateLimiter, exchange("/downloads/a.zip", "10.0.0.2"));
+    assertEquals(2, rateLimiter.clients());
+
+    clock.addAndGet(Duration.ofMinutes(2).toNanos());
+    filter(rateLimiter, exchange("/downloads/a.zip", "10.0.0.3"));
+    assertEquals(1, rateLimiter.clients());
+  }
+
+  /**
+   * New clients share the overflow bucket, if the max number of clients is reached.
+   */
+  @Test
+  void maxClientsIsHardCap() {
+    ScsProperties.Limit limit = new ScsProperties.Limit();
+    limit.setRequestsPerSecond(1.);
+    limit.setBurst(2);
+    ScsProperties.RateLimit properties = new ScsProperties.RateLimit();
+    properties.setMaxClients(2);
+    properties.getPatternLimitMap().put("[/downloads/**]", limit);
+    ScsRateLimiter rateLimiter = new ScsRateLimiter(properties, meterRegistry, clock::get);
+
+    assertNull(filter(rateLimiter, exchange("/downloads/a.zip", "10.0.0.1")));
+    assertNull(filter(rateLimiter, exchange("/downloads/a.zip", "10.0.0.2")));
+    for (int i = 3; i < 100; i++) {
+      filter(rateLimiter, exchange("/downloads/a.zip", "10.0.0." + i));
+    }
+    assertEquals(2, rateLimiter.clients());
+    assertEquals(97.0, meterRegistry.get("scs.rate-limit.overflow").counter().count());
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS,
+        filter(rateLimiter, exchange("/downloads/a.zip", "10.0.0.200")));
+    // known clients keep their own buckets
+    assertNull(filter(rateLimiter, exchange("/downloads/a.zip", "10.0.0.1")));
+  }
+
+  /**
+   * Find client address of forwarded headers.
+   */
+  @Test
+  void findClientAddress() {
+    assertEquals("192.0.2.60", ScsForwardedHeaderTransformer.findClientAddress(
+        MockServerHttpRequest.get("/")
+            .header("Forwarded", "for=192.0.2.60;proto=http;by=203.0.113.43, for=10.0.0.1")
+            .build(), 2).getHostString());
+    assertEquals("2001:db8:cafe::17", ScsForwardedHeaderTransformer.findClientAddress(
+        MockServerHttpRequest.get("/")
+            .header("Forwarded", "For=\"[2001:db8:cafe::17]:4711\"")
+            .build(), 1).getHostString());
+    assertEquals("70.41.3.18", ScsForwardedHeaderTransformer.findClientAddress(
+        MockServerHttpRequest.get("/")
+            .header("X-Forwarded-For", "203.0.113.195, 70.41.3.18")
+            .build(), 1).getHostString());
+    assertEquals("203.0.113.195", ScsForwardedHeaderTransformer.findClientAddress(
+        MockServerHttpRequest.get("/")
+            .header("X-Forwarded-For", "203.0.113.195")
+            .header("X-Forwarded-For", "70.41.3.18")
+            .build(), 2).getHostString());
+    assertNull(ScsForwardedHeaderTransformer.findClientAddress(
+        MockServerHttpRequest.get("/").build(), 1));
+    assertNull(ScsForwardedHeaderTransformer.findClientAddress(
+        MockServerHttpRequest.get("/")
+            .header("X-Forwarded-For", "203.0.113.195")
+            .build(), 0));
+  }
+
+  /**
+   * A spoofed forwarded header does not change the bucket of the client.
+   */
+  @Test
+  void spoofedForwardedHeaderDoesNotChangeBucket() {
+    ScsRateLimiter rateLimiter = createRateLimiter(1., 1, 0);
+    ScsForwardedHeaderTransformer transformer = new ScsForwardedHeaderTransformer(1);
+
+    ServerWebExchange first = forwarded(transformer, "1.1.1.1, 198.51.100.7");
+    assertEquals("198.51.100.7", first.getRequest().getRemoteAddress().getHostString());
+    rateLimiter.filter(first, CHAIN).block();
+    assertNull(first.getResponse().getStatusCode());
+
+    ServerWebExchange spoofed = forwarded(transformer, "2.2.2.2, 198.51.100.7");
+    assertEquals("198.51.100.7", spoofed.getRequest().getRemoteAddress().getHostString());
+    rateLimiter.filter(spoofed, CHAIN).block();
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS, spoofed.getResponse().getStatusCode());
+    assertEquals(1, rateLimiter.clients());
+  }
+
+  private static ServerWebExchange forwarded(
+      ScsForwardedHeaderTransformer transformer,
+      String forwardedFor) {
+    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+        .get("/downloads/a.zip")
+        .remoteAddress(new InetSocketAddress("10.0.0.254", 12345))
+        .header("X-Forwarded-For", forwardedFor));
+    return exchange.mutate().request(transformer.apply(exchange.getRequest())).build();
+  }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.test.StepVerifier;
+
+/**
+ * The releases test.
+ *
+ * @author Christian Bremer
+ */
+class ScsReleasesTest {
+
+  @TempDir
+  Path root;
+
+  private ScsProperties properties;
+
+  private ScsAccessStatistics accessStatistics;
+
+  private ScsRouterFunction router;
+
+  /**
+   * Sets up two releases.
+   *
+   * @throws IOException the io exception
+   */
+  @BeforeEach
+  void setUp() throws IOException {
+    for (String id : new String[]{"v1", "v2"}) {
+      Files.createDirectories(root.resolve("releases/" + id));
+      Files.write(root.resolve("releases/" + id + "/index.html"),
+          id.getBytes(StandardCharsets.UTF_8));
+    }
+    pointTo("v1");
+    properties = new ScsProperties();
+    properties.setContentLocation(root.toString());
+    properties.getReleases().setEnabled(true);
+    properties.getContentCache().setEnabled(true);
+    accessStatistics = new ScsAccessStatistics(100);
+    router = ScsTestRouters.create(
+        properties, ScsReleases.currentLocation(properties), accessStatistics);
+  }
+
+  private void pointTo(String id) throws IOException {
+    Files.write(root.resolve("current"), (id + "\n").getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Switch to a new release and roll back.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void switchAndRollback() throws IOException {
+    ScsReleases releases = new ScsReleases(properties, router, accessStatistics);
+    assertEquals("v1", releases.getCurrent());
+    assertTrue(router.getLookupFunction().getLocation().getFile().toPath()
+        .endsWith("releases/v1"));
+
+    accessStatistics.record("index.html");
+    pointTo("v2");
+    releases.check();
+    assertEquals("v2", releases.getCurrent());
+    assertTrue(router.getLookupFunction().getLocation().getFile().toPath()
+        .endsWith("releases/v2"));
+    String key = ScsCache.key(router.getLookupFunction().getLocation()
+        .createRelative("index.html"));
+    assertEquals(1, router.getContentCache().invalidate(key));
+
+    pointTo("v1");
+    releases.check();
+    assertEquals("v1", releases.getCurrent());
+  }
+
+  /**
+   * Invalid pointers are ignored.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void invalidPointer() throws IOException {
+    ScsReleases releases = new ScsReleases(properties, router, accessStatistics);
+    pointTo("../releases/v2");
+    releases.check();
+    assertEquals("v1", releases.getCurrent());
+    pointTo("v3");
+    releases.check();
+    assertEquals("v1", releases.getCurrent());
+    properties.getReleases().setEnabled(false);
+    assertNull(ScsReleases.currentLocation(properties));
+  }
+
+  /**
+   * Without a valid pointer nothing is served, neither the pointer file nor the releases.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void missingAndCorruptPointer() throws IOException {
+    Files.delete(root.resolve("current"));
+    assertNothingIsServed();
+    pointTo("../../etc");
+    assertNothingIsServed();
+    pointTo("v3");
+    assertNothingIsServed();
+
+    pointTo("v2");
+    Resource location = ScsReleases.currentLocation(properties);
+    assertNotNull(location);
+    assertTrue(location.getFile().toPath().endsWith("releases/v2"));
+  }
+
+  private void assertNothingIsServed() {
+    Resource location = ScsReleases.currentLocation(properties);
+    assertNotNull(location);
+    ScsResourceLookupFunction lookupFunction = new ScsResourceLookupFunction(
+        properties, location);
+    for (String path : new String[]{"/", "/current", "/index.html",
+        "/releases/v1/index.html", "/v1/index.html"}) {
+      ServerRequest request = mock(ServerRequest.class);
+      when(request.pathContainer()).thenReturn(PathContainer.parsePath(path));
+      StepVerifier.create(lookupFunction.apply(request))
+          .verifyComplete();
+    }
+    ScsReleases releases = new ScsReleases(properties, router, accessStatistics);
+    assertNull(releases.getCurrent());
+  }
+
+}
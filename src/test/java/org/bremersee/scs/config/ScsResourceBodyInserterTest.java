@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Flux;
+
+/**
+ * The resource body inserter test.
+ *
+ * @author Christian Bremer
+ */
+class ScsResourceBodyInserterTest {
+
+  private static final BodyInserter.Context CONTEXT = new BodyInserter.Context() {
+    @Override
+    public List<HttpMessageWriter<?>> messageWriters() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public Optional<ServerHttpRequest> serverRequest() {
+      return Optional.empty();
+    }
+
+    @Override
+    public Map<String, Object> hints() {
+      return Collections.emptyMap();
+    }
+  };
+
+  /**
+   * Chunk size.
+   */
+  @Test
+  void chunkSize() {
+    ScsProperties.ReadBuffer properties = new ScsProperties.ReadBuffer();
+    assertEquals(4096, properties.chunkSize(-1L));
+    assertEquals(4096, properties.chunkSize(10L));
+    assertEquals(8192, properties.chunkSize(5000L));
+    assertEquals(8192, properties.chunkSize(8192L));
+    assertEquals(16384, properties.chunkSize(8193L));
+    assertEquals(262144, properties.chunkSize(100_000_000L));
+  }
+
+  /**
+   * Insert reads whole file.
+   *
+   * @param dir the temporary directory
+   * @throws IOException the io exception
+   */
+  @Test
+  void insertReadsWholeFile(@TempDir Path dir) throws IOException {
+    byte[] content = createContent(100_000);
+    Path file = Files.write(dir.resolve("file.bin"), content);
+    TrackingBufferFactory bufferFactory = new TrackingBufferFactory();
+    MockServerHttpResponse response = new MockServerHttpResponse(bufferFactory);
+
+    new ScsResourceBodyInserter(new FileSystemResource(file), new ScsProperties.ReadBuffer())
+        .insert(response, CONTEXT)
+        .block(Duration.ofSeconds(10));
+
+    assertEquals(content.length, response.getHeaders().getContentLength());
+    byte[] actual = DataBufferUtils.join(response.getBody())
+        .map(buffer -> {
+          byte[] bytes = new byte[buffer.readableByteCount()];
+          buffer.read(bytes);
+          DataBufferUtils.release(buffer);
+          return bytes;
+        })
+        .block(Duration.ofSeconds(10));
+    assertArrayEquals(content, actual);
+    assertTrue(bufferFactory.allocated.stream()
+        .allMatch(buffer -> buffer.capacity() >= 131072));
+  }
+
+  /**
+   * Cancelled download does not leak buffers.
+   *
+   * @param dir the temporary directory
+   * @throws Exception the exception
+   */
+  @Test
+  void cancelledDownloadDoesNotLeakBuffers(@TempDir Path dir) throws Exception {
+    Path file = Files.write(dir.resolve("file.bin"), createContent(1_000_000));
+    TrackingBufferFactory bufferFactory = new TrackingBufferFactory();
+    MockServerHttpResponse response = new MockServerHttpResponse(bufferFactory);
+    response.setWriteHandler(body -> Flux.from(body)
+        .take(2)
+        .doOnNext(DataBufferUtils::release)
+        .then());
+    ScsProperties.ReadBuffer properties = new ScsProperties.ReadBuffer();
+    properties.setMaxChunkSize(DataSize.ofKilobytes(8));
+
+    new ScsResourceBodyInserter(new FileSystemResource(file), properties)
+        .insert(response, CONTEXT)
+        .block(Duration.ofSeconds(10));
+
+    // the read of the file channel may complete asynchronously after the cancellation
+    long deadline = System.currentTimeMillis() + 5000L;
+    while (bufferFactory.unreleased() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10L);
+    }
+    assertTrue(bufferFactory.allocated.size() >= 2);
+    assertEquals(0, bufferFactory.unreleased());
+  }
+
+  private static byte[] createContent(int length) {
+    byte[] content = new byte[length];
+    for (int i = 0; i < length; i++) {
+      content[i] = (byte) i;
+    }
+    return content;
+  }
+
+  /**
+   * A pooled netty buffer factory, that records the allocated buffers.
+   */
+  private static class TrackingBufferFactory extends NettyDataBufferFactory {
+
+    private final List<NettyDataBuffer> allocated = new CopyOnWriteArrayList<>();
+
+    private TrackingBufferFactory() {
+      super(PooledByteBufAllocator.DEFAULT);
+    }
+
+    @Override
+    public NettyDataBuffer allocateBuffer(int initialCapacity) {
+      NettyDataBuffer buffer = super.allocateBuffer(initialCapacity);
+      allocated.add(buffer);
+      return buffer;
+    }
+
+    private long unreleased() {
+      return allocated.stream()
+          .filter(buffer -> buffer.getNativeBuffer().refCnt() > 0)
+          .count();
+    }
+  }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * The resource handler function test. It verifies, that head requests and requests with failing
+ * preconditions never open the file.
+ *
+ * @author Christian Bremer
+ */
+class ScsResourceHandlerFunctionTest {
+
+  @TempDir
+  Path root;
+
+  private Resource resource;
+
+  private ScsFileMetadata metadata;
+
+  private ScsResourceHandlerFunction handlerFunction;
+
+  /**
+   * Sets up the resource.
+   *
+   * @throws IOException the io exception
+   */
+  @BeforeEach
+  void setUp() throws IOException {
+    Path file = root.resolve("index.html");
+    Files.write(file, "<html></html>".getBytes(StandardCharsets.UTF_8));
+    resource = spy(new FileSystemResource(file));
+    metadata = ScsFileMetadata.of(resource);
+    handlerFunction = new ScsResourceHandlerFunction(
+        resource,
+        new ScsResponseHeaders(new ScsProperties.ResponseHeaders()).get("index.html"),
+        new ScsProperties.ReadBuffer());
+  }
+
+  private ServerResponse handle(MockServerRequest request) {
+    ServerResponse response = handlerFunction.handle(request).block();
+    assertNotNull(response);
+    return response;
+  }
+
+  private void verifyNotOpened() throws IOException {
+    verify(resource, never()).getInputStream();
+    verify(resource, never()).readableChannel();
+  }
+
+  /**
+   * Head.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void head() throws IOException {
+    ServerResponse response = handle(MockServerRequest.builder()
+        .uri(URI.create("http://localhost/index.html"))
+        .method(HttpMethod.HEAD)
+        .build());
+    assertEquals(HttpStatus.OK, response.statusCode());
+    assertEquals(13L, response.headers().getContentLength());
+    assertEquals(metadata.getETag(), response.headers().getETag());
+    assertEquals("text/html", response.headers().getContentType().toString());
+    verifyNotOpened();
+  }
+
+  /**
+   * Not modified.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void notModified() throws IOException {
+    ServerResponse response = handle(MockServerRequest.builder()
+        .uri(URI.create("http://localhost/index.html"))
+        .method(HttpMethod.GET)
+        .header(HttpHeaders.IF_NONE_MATCH, "W/" + metadata.getETag())
+        .build());
+    assertEquals(HttpStatus.NOT_MODIFIED, response.statusCode());
+    assertEquals(metadata.getETag(), response.headers().getETag());
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setIfModifiedSince(ZonedDateTime.now().plusDays(1L));
+    response = handle(MockServerRequest.builder()
+        .uri(URI.create("http://localhost/index.html"))
+        .method(HttpMethod.GET)
+        .headers(headers)
+        .build());
+    assertEquals(HttpStatus.NOT_MODIFIED, response.statusCode());
+    verifyNotOpened();
+  }
+
+  /**
+   * Precondition failed.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void preconditionFailed() throws IOException {
+    ServerResponse response = handle(MockServerRequest.builder()
+        .uri(URI.create("http://localhost/index.html"))
+        .method(HttpMethod.GET)
+        .header(HttpHeaders.IF_MATCH, "\"other\"")
+        .build());
+    assertEquals(HttpStatus.PRECONDITION_FAILED, response.statusCode());
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setIfUnmodifiedSince(ZonedDateTime.now().minusDays(1L));
+    response = handle(MockServerRequest.builder()
+        .uri(URI.create("http://localhost/index.html"))
+        .method(HttpMethod.HEAD)
+        .headers(headers)
+        .build());
+    assertEquals(HttpStatus.PRECONDITION_FAILED, response.statusCode());
+    verifyNotOpened();
+  }
+
+  /**
+   * Modified content is served.
+   */
+  @Test
+  void modified() {
+    ServerResponse response = handle(MockServerRequest.builder()
+        .uri(URI.create("http://localhost/index.html"))
+        .method(HttpMethod.GET)
+        .header(HttpHeaders.IF_NONE_MATCH, "\"other\"")
+        .build());
+    assertEquals(HttpStatus.OK, response.statusCode());
+    assertEquals(metadata.getETag(), response.headers().getETag());
+  }
+
+}
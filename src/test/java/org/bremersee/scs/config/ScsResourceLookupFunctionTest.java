@@ -18,6 +18,7 @@ package org.bremersee.scs.config;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -119,4 +120,54 @@ class ScsResourceLookupFunctionTest {
         .verifyComplete();
   }
 
-}
\ No newline at end of file
+  /**
+   * With path traversal.
+   */
+  @Test
+  void withPathTraversal() {
+    ScsProperties properties = new ScsProperties();
+    properties.setContentLocation("classpath:content");
+    ScsResourceLookupFunction lookup = new ScsResourceLookupFunction(properties);
+
+    PathContainer pathContainer = PathContainer.parsePath("/dir/../../application.yml");
+    ServerRequest request = mock(ServerRequest.class);
+    when(request.pathContainer()).thenReturn(pathContainer);
+
+    StepVerifier.create(lookup.apply(request))
+        .verifyComplete();
+  }
+
+  /**
+   * With pattern prefix.
+   */
+  @Test
+  void withPatternPrefix() {
+    ScsProperties properties = new ScsProperties();
+    properties.setPattern("/demo/**");
+    properties.setContentLocation("classpath:content");
+    ScsResourceLookupFunction lookup = new ScsResourceLookupFunction(properties);
+
+    PathContainer pathContainer = PathContainer.parsePath("/demo/dir/dir.html");
+    ServerRequest request = mock(ServerRequest.class);
+    when(request.pathContainer()).thenReturn(pathContainer);
+
+    StepVerifier.create(lookup.apply(request))
+        .assertNext(resource -> {
+          assertNotNull(resource);
+          assertEquals("dir.html", resource.getFilename());
+        })
+        .verifyComplete();
+  }
+
+  /**
+   * Find pattern prefix.
+   */
+  @Test
+  void findPatternPrefix() {
+    assertEquals("", ScsResourceLookupFunction.findPatternPrefix("/**"));
+    assertEquals("/demo", ScsResourceLookupFunction.findPatternPrefix("/demo/**"));
+    assertNull(ScsResourceLookupFunction.findPatternPrefix("/demo/*.html"));
+    assertNull(ScsResourceLookupFunction.findPatternPrefix("/{app}/**"));
+  }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * The resource resolvers test.
+ *
+ * @author Christian Bremer
+ */
+class ScsResourceResolversTest {
+
+  private static final List<String> LOOKUP_STAGES = Arrays.asList(
+      ScsResourceResolvers.PATH_NORMALIZATION,
+      ScsResourceResolvers.PATH_FILTER,
+      ScsResourceResolvers.CLASSPATH_CONTENT,
+      ScsResourceResolvers.PACK_STORE);
+
+  private static List<String> withLookupStages(String... names) {
+    List<String> list = new ArrayList<>(Arrays.asList(names));
+    list.addAll(LOOKUP_STAGES);
+    return list;
+  }
+
+  /**
+   * The stages are sorted by their order, which can be overridden by the properties.
+   */
+  @Test
+  void orderAndDisable() {
+    List<String> calls = new ArrayList<>();
+    List<ScsResourceResolver> stages = Arrays.asList(
+        new TestResolver("b", 20, calls, null),
+        new TestResolver("a", 10, calls, null),
+        new TestResolver("c", 30, calls, null));
+    ScsResourceLookupFunction lookupFunction = mock(ScsResourceLookupFunction.class);
+    ServerRequest request = mock(ServerRequest.class);
+    when(lookupFunction.apply(request)).thenReturn(Mono.empty());
+
+    ScsResourceResolvers resolvers = new ScsResourceResolvers(stages);
+    assertEquals(withLookupStages("a", "b", "c"), resolvers.getNames());
+    StepVerifier.create(resolvers.resolve(request, lookupFunction))
+        .verifyComplete();
+    assertEquals(Arrays.asList("a", "b", "c"), calls);
+
+    ScsProperties.ResolverChain properties = new ScsProperties.ResolverChain();
+    properties.getStageOrders().put("c", 1);
+    properties.getDisabledStages().add("b");
+    resolvers = new ScsResourceResolvers(stages, properties, null);
+    assertEquals(withLookupStages("c", "a"), resolvers.getNames());
+  }
+
+  /**
+   * A stage, that answers the request itself, does not call the lookup function and is counted
+   * as short circuit.
+   */
+  @Test
+  void shortCircuit() {
+    List<String> calls = new ArrayList<>();
+    Resource resource = new ByteArrayResource(new byte[]{1, 2, 3});
+    List<ScsResourceResolver> stages = Arrays.asList(
+        new TestResolver("outer", 10, calls, null),
+        new TestResolver("answer", 20, calls, resource),
+        new TestResolver("inner", 30, calls, null));
+    ScsResourceLookupFunction lookupFunction = mock(ScsResourceLookupFunction.class);
+    ServerRequest request = mock(ServerRequest.class);
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    ScsResourceResolvers resolvers = new ScsResourceResolvers(
+        stages, new ScsProperties.ResolverChain(), meterRegistry);
+    StepVerifier.create(resolvers.resolve(request, lookupFunction))
+        .expectNext(resource)
+        .verifyComplete();
+    assertEquals(Arrays.asList("outer", "answer"), calls);
+    verify(lookupFunction, never()).apply(request);
+
+    assertEquals(0., meterRegistry.get("scs.resolver.short-circuits")
+        .tag("stage", "outer").counter().count());
+    assertEquals(1., meterRegistry.get("scs.resolver.short-circuits")
+        .tag("stage", "answer").counter().count());
+    assertEquals(1L, meterRegistry.get("scs.resolver.duration")
+        .tag("stage", "outer").timer().count());
+    assertEquals(1L, meterRegistry.get("scs.resolver.duration")
+        .tag("stage", "answer").timer().count());
+    assertEquals(0L, meterRegistry.get("scs.resolver.duration")
+        .tag("stage", "inner").timer().count());
+  }
+
+  /**
+   * Only the built-in stages of enabled features are part of the chain.
+   */
+  @Test
+  void defaults() {
+    ScsProperties properties = new ScsProperties();
+    properties.getContentCache().setEnabled(true);
+    properties.getImageVariants().setEnabled(false);
+    properties.getFingerprint().setEnabled(true);
+    List<ScsResourceResolver> stages = ScsResourceResolvers.defaults(
+        new ScsContentCache(properties.getContentCache()),
+        new ScsImageVariants(properties.getImageVariants(), properties.getContentLocation()),
+        new ScsFingerprints(properties.getFingerprint()));
+    assertEquals(
+        withLookupStages(ScsResourceResolvers.CONTENT_CACHE, ScsResourceResolvers.FINGERPRINTS),
+        new ScsResourceResolvers(stages).getNames());
+
+    properties.getContentCache().setEnabled(false);
+    properties.getFingerprint().setEnabled(false);
+    stages = ScsResourceResolvers.defaults(
+        new ScsContentCache(properties.getContentCache()),
+        new ScsImageVariants(properties.getImageVariants(), properties.getContentLocation()),
+        new ScsFingerprints(properties.getFingerprint()));
+    assertEquals(LOOKUP_STAGES, new ScsResourceResolvers(stages).getNames());
+  }
+
+  /**
+   * The lookup stages run after all other stages; they can be disabled and are measured like
+   * the other stages.
+   */
+  @Test
+  void lookupStages() {
+    ScsProperties properties = new ScsProperties();
+    properties.setContentLocation("classpath:content/");
+    List<String> calls = new ArrayList<>();
+    List<ScsResourceResolver> stages = Collections.singletonList(
+        new TestResolver("last", Integer.MAX_VALUE, calls, null));
+    try (ScsResourceLookupFunction lookupFunction = new ScsResourceLookupFunction(properties)) {
+      MeterRegistry meterRegistry = new SimpleMeterRegistry();
+      ScsResourceResolvers resolvers = new ScsResourceResolvers(
+          stages, new ScsProperties.ResolverChain(), meterRegistry);
+      assertEquals(withLookupStages("last"), resolvers.getNames());
+      StepVerifier.create(resolvers.resolve(request("/index.html"), lookupFunction))
+          .assertNext(resource -> assertTrue(resource instanceof ScsPackResource))
+          .verifyComplete();
+      StepVerifier.create(resolvers.resolve(request("/missing.html"), lookupFunction))
+          .verifyComplete();
+      assertEquals(Arrays.asList("last", "last"), calls);
+      assertEquals(2., meterRegistry.get("scs.resolver.short-circuits")
+          .tag("stage", ScsResourceResolvers.CLASSPATH_CONTENT).counter().count());
+      assertEquals(0L, meterRegistry.get("scs.resolver.duration")
+          .tag("stage", ScsResourceResolvers.PACK_STORE).timer().count());
+
+      ScsProperties.ResolverChain chainProperties = new ScsProperties.ResolverChain();
+      chainProperties.getDisabledStages().add(ScsResourceResolvers.CLASSPATH_CONTENT);
+      resolvers = new ScsResourceResolvers(stages, chainProperties, null);
+      StepVerifier.create(resolvers.resolve(request("/index.html"), lookupFunction))
+          .assertNext(resource -> assertFalse(resource instanceof ScsPackResource))
+          .verifyComplete();
+    }
+  }
+
+  private static ServerRequest request(String path) {
+    return MockServerRequest.builder()
+        .uri(URI.create("http://localhost" + path))
+        .method(HttpMethod.GET)
+        .build();
+  }
+
+  private static class TestResolver implements ScsResourceResolver {
+
+    private final String name;
+
+    private final int order;
+
+    private final List<String> calls;
+
+    private final Resource answer;
+
+    TestResolver(String name, int order, List<String> calls, Resource answer) {
+      this.name = name;
+      this.order = order;
+      this.calls = calls;
+      this.answer = answer;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public int getOrder() {
+      return order;
+    }
+
+    @Override
+    public Mono<Resource> resolve(
+        ServerRequest request,
+        ScsResourceLookupFunction lookupFunction,
+        ScsResourceResolverChain chain) {
+      calls.add(name);
+      return answer != null ? Mono.just(answer) : chain.resolve(request, lookupFunction);
+    }
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+/**
+ * The response headers test.
+ *
+ * @author Christian Bremer
+ */
+class ScsResponseHeadersTest {
+
+  /**
+   * Get with defaults.
+   */
+  @Test
+  void getWithDefaults() {
+    ScsResponseHeaders responseHeaders = new ScsResponseHeaders(
+        new ScsProperties.ResponseHeaders());
+    HttpHeaders headers = responseHeaders.get("dir/dir.html");
+    assertEquals(MediaType.TEXT_HTML, headers.getContentType());
+    assertNull(headers.getCacheControl());
+    assertEquals(MediaType.APPLICATION_OCTET_STREAM, responseHeaders.get("dir/noext")
+        .getContentType());
+  }
+
+  /**
+   * Get with properties.
+   */
+  @Test
+  void getWithProperties() {
+    ScsProperties.ResponseHeaders properties = new ScsProperties.ResponseHeaders();
+    properties.setDefaultCharset("UTF-8");
+    properties.setVary(Collections.singletonList(HttpHeaders.ACCEPT_ENCODING));
+    properties.getHeaders().put("X-Content-Type-Options", "nosniff");
+    properties.getCacheControlPatternMap().put("[/assets/**]", "max-age=31536000, immutable");
+    properties.getCacheControlPatternMap().put("/**", "no-cache");
+    ScsResponseHeaders responseHeaders = new ScsResponseHeaders(properties);
+
+    HttpHeaders headers = responseHeaders.get("assets/app.js");
+    assertEquals("max-age=31536000, immutable", headers.getCacheControl());
+    assertEquals("UTF-8", headers.getContentType().getCharset().name());
+    assertEquals(Collections.singletonList(HttpHeaders.ACCEPT_ENCODING), headers.getVary());
+    assertEquals("nosniff", headers.getFirst("X-Content-Type-Options"));
+
+    headers = responseHeaders.get("index.html");
+    assertEquals("no-cache", headers.getCacheControl());
+    assertEquals(MediaType.parseMediaType("text/html;charset=UTF-8"), headers.getContentType());
+
+    headers = responseHeaders.get("images/logo.png");
+    assertEquals(MediaType.IMAGE_PNG, headers.getContentType());
+
+    assertSame(responseHeaders.get("index.html"), responseHeaders.get("index.html"));
+    assertSame(responseHeaders.get("a/index.html"), responseHeaders.get("b/index.html"));
+  }
+
+  /**
+   * Headers are read only.
+   */
+  @Test
+  void headersAreReadOnly() {
+    HttpHeaders headers = new ScsResponseHeaders(new ScsProperties.ResponseHeaders())
+        .get("index.html");
+    assertThrows(UnsupportedOperationException.class, () -> headers.set("foo", "bar"));
+  }
+
+  /**
+   * The recently served paths are remembered, the least recently served ones are evicted.
+   */
+  @Test
+  void recentlyServedPaths() {
+    ScsResponseHeaders responseHeaders = new ScsResponseHeaders(
+        new ScsProperties.ResponseHeaders());
+    HttpHeaders headers = responseHeaders.get("index.html");
+    for (int i = 0; i < 5000; i++) {
+      responseHeaders.get("page-" + i + ".html");
+      responseHeaders.get("index.html");
+    }
+    assertEquals(4096, responseHeaders.getCache().size());
+    assertEquals(5001 - 4096, responseHeaders.getCache().evictions());
+    assertSame(headers, responseHeaders.get("index.html"));
+    assertSame(headers, responseHeaders.get("page-0.html"));
+  }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * The router function test.
+ *
+ * @author Christian Bremer
+ */
+class ScsRouterFunctionTest {
+
+  @TempDir
+  Path root;
+
+  @TempDir
+  Path variants;
+
+  private ScsRouterFunction router;
+
+  /**
+   * Sets up the content and a router with content cache, fingerprints and image variants.
+   *
+   * @throws IOException the io exception
+   */
+  @BeforeEach
+  void setUp() throws IOException {
+    Files.write(root.resolve("app.js"), "console.log('app');".getBytes(StandardCharsets.UTF_8));
+    Files.write(root.resolve("index.html"), "<html><script src=\"app.js\"></script></html>"
+        .getBytes(StandardCharsets.UTF_8));
+    ImageIO.write(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB), "png",
+        root.resolve("photo.png").toFile());
+    ScsProperties properties = new ScsProperties();
+    properties.setContentLocation(root.toString());
+    properties.getContentCache().setEnabled(true);
+    properties.getFingerprint().setEnabled(true);
+    properties.getImageVariants().setEnabled(true);
+    properties.getImageVariants().setDirectory(variants.toString());
+    router = ScsTestRouters.create(properties, new ScsAccessStatistics(100));
+  }
+
+  private ServerResponse handle(HttpMethod method, String path, String width) {
+    MockServerRequest.Builder builder = MockServerRequest.builder()
+        .uri(URI.create("http://localhost" + path + (width != null ? "?w=" + width : "")))
+        .method(method);
+    if (width != null) {
+      builder.queryParam("w", width);
+    }
+    MockServerRequest request = builder.build();
+    HandlerFunction<ServerResponse> handlerFunction = router.route(request).block();
+    assertNotNull(handlerFunction);
+    ServerResponse response = handlerFunction.handle(request).block();
+    assertNotNull(response);
+    return response;
+  }
+
+  /**
+   * Head requests do not load the content cache, rewrite documents or render variants.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void head() throws IOException {
+    ServerResponse response = handle(HttpMethod.HEAD, "/index.html", null);
+    assertEquals(HttpStatus.OK, response.statusCode());
+    assertEquals(Files.size(root.resolve("index.html")), response.headers().getContentLength());
+    assertEquals(0, router.getContentCache().getCache().size());
+    assertEquals(0, router.getFingerprints().getDocuments().size());
+
+    response = handle(HttpMethod.HEAD, "/photo.png", "320");
+    assertEquals(HttpStatus.OK, response.statusCode());
+    assertEquals(MediaType.IMAGE_PNG, response.headers().getContentType());
+    assertEquals(Files.size(root.resolve("photo.png")), response.headers().getContentLength());
+    assertEquals(0, router.getImageVariants().getCache().size());
+
+    String hash = router.getFingerprints().fingerprint(
+        "app.js", router.getLookupFunction().createRelative("app.js"));
+    response = handle(HttpMethod.HEAD, "/app." + hash + ".js", null);
+    assertEquals(HttpStatus.OK, response.statusCode());
+    assertEquals(0, router.getContentCache().getCache().size());
+
+    assertEquals(HttpStatus.OK, handle(HttpMethod.GET, "/index.html", null).statusCode());
+    assertEquals(1, router.getFingerprints().getDocuments().size());
+    assertEquals(HttpStatus.OK, handle(HttpMethod.GET, "/app.js", null).statusCode());
+    assertEquals(1, router.getContentCache().getCache().size());
+  }
+
+}
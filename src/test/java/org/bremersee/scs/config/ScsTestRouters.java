@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import java.util.Collections;
+import org.springframework.core.io.Resource;
+
+/**
+ * Creates static content routers for tests like the web configuration does.
+ *
+ * @author Christian Bremer
+ */
+final class ScsTestRouters {
+
+  private ScsTestRouters() {
+  }
+
+  /**
+   * Creates a router of the content location of the given properties.
+   *
+   * @param properties the properties
+   * @param accessStatistics the access statistics
+   * @return the router
+   */
+  static ScsRouterFunction create(
+      ScsProperties properties,
+      ScsAccessStatistics accessStatistics) {
+    return create(properties, null, accessStatistics);
+  }
+
+  /**
+   * Creates a router of the given content location.
+   *
+   * @param properties the properties
+   * @param location the content location (if it is {@code null}, the content location of the
+   *     properties is used)
+   * @param accessStatistics the access statistics
+   * @return the router
+   */
+  static ScsRouterFunction create(
+      ScsProperties properties,
+      Resource location,
+      ScsAccessStatistics accessStatistics) {
+    return WebConfiguration.createRouter(properties, location, accessStatistics,
+        Collections.emptyList(), null);
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.channel.nio.NioEventLoopGroup;
+import java.time.Duration;
+import org.bremersee.scs.config.ScsProperties.TransportType;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * The transport test.
+ *
+ * @author Christian Bremer
+ */
+class ScsTransportTest {
+
+  /**
+   * The NIO transport serves requests on its own event loops.
+   */
+  @Test
+  void nio() {
+    ScsProperties.Transport properties = new ScsProperties.Transport();
+    properties.setType(TransportType.NIO);
+    properties.setWorkerThreads(2);
+    properties.setBacklog(128);
+    try (ScsTransport transport = new ScsTransport(properties)) {
+      assertEquals("nio", transport.getName());
+      assertTrue(transport.getEventLoops() instanceof NioEventLoopGroup);
+      assertEquals("ok", serve(transport));
+    }
+  }
+
+  /**
+   * The epoll transport is used, if it is available, otherwise NIO.
+   */
+  @Test
+  void epoll() {
+    ScsProperties.Transport properties = new ScsProperties.Transport();
+    properties.setType(TransportType.EPOLL);
+    properties.setReusePort(true);
+    try (ScsTransport transport = new ScsTransport(properties)) {
+      assertEquals(ScsTransport.isEpollAvailable() ? "epoll" : "nio", transport.getName());
+      assertEquals("ok", serve(transport));
+    }
+  }
+
+  private static String serve(ScsTransport transport) {
+    DisposableServer server = transport.apply(HttpServer.create().port(0))
+        .handle((request, response) -> response.sendString(Mono.just("ok")))
+        .bindNow();
+    try {
+      return HttpClient.create()
+          .port(server.port())
+          .get()
+          .uri("/")
+          .responseContent()
+          .aggregate()
+          .asString()
+          .block(Duration.ofSeconds(10));
+    } finally {
+      server.disposeNow();
+    }
+  }
+
+}
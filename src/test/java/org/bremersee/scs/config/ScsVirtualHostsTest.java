@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.bremersee.scs.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * The virtual hosts test.
+ *
+ * @author Christian Bremer
+ */
+class ScsVirtualHostsTest {
+
+  @TempDir
+  Path root;
+
+  private ScsProperties properties;
+
+  /**
+   * Sets up the content locations.
+   *
+   * @throws IOException the io exception
+   */
+  @BeforeEach
+  void setUp() throws IOException {
+    properties = new ScsProperties();
+    properties.setContentLocation(Files.createDirectories(root.resolve("default")).toString());
+    properties.getContentCache().setMaxEntries(1024);
+    properties.getContentCache().setMaxSize(DataSize.ofMegabytes(3));
+    for (String host : new String[]{"www.example.org", "*.example.org", "*.docs.example.org"}) {
+      ScsProperties.VirtualHost virtualHost = new ScsProperties.VirtualHost();
+      virtualHost.setContentLocation(Files.createDirectories(root
+          .resolve(host.replace('*', '_'))).toString());
+      virtualHost.setDefaultIndex("start.html");
+      properties.getVirtualHosts().put(host, virtualHost);
+    }
+  }
+
+  /**
+   * Find the router of a host.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void find() throws IOException {
+    StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+    ScsRouterFunction router = new WebConfiguration().scsRouter(
+        properties,
+        new ScsAccessStatistics(100),
+        beanFactory.getBeanProvider(ScsResourceResolver.class),
+        beanFactory.getBeanProvider(MeterRegistry.class));
+    ScsVirtualHosts virtualHosts = router.getVirtualHosts();
+    assertEquals(3, virtualHosts.getRouters().size());
+
+    assertSame(virtualHosts.getRouters().get("www.example.org"),
+        virtualHosts.find("WWW.Example.org:8080"));
+    assertSame(virtualHosts.getRouters().get("*.example.org"),
+        virtualHosts.find("shop.example.org"));
+    assertSame(virtualHosts.getRouters().get("*.docs.example.org"),
+        virtualHosts.find("v1.docs.example.org"));
+    assertSame(virtualHosts.getRouters().get("*.example.org"),
+        virtualHosts.find("docs.example.org"));
+    assertNull(virtualHosts.find("example.org"));
+    assertNull(virtualHosts.find("www.example.com"));
+    assertNull(virtualHosts.find((String) null));
+
+    ScsRouterFunction shop = virtualHosts.find("shop.example.org");
+    assertNotNull(shop);
+    assertTrue(shop.getLookupFunction().getLocation().getFile().toPath()
+        .endsWith("_.example.org"));
+  }
+
+  /**
+   * Every host gets a share of the caches.
+   */
+  @Test
+  void share() {
+    ScsProperties.VirtualHost virtualHost = properties.getVirtualHosts().get("www.example.org");
+    ScsProperties hostProperties = properties.forVirtualHost(virtualHost, 4);
+    assertEquals(256, hostProperties.getContentCache().getMaxEntries());
+    assertEquals(DataSize.ofBytes(DataSize.ofMegabytes(3).toBytes() / 4),
+        hostProperties.getContentCache().getMaxSize());
+    assertEquals("start.html", hostProperties.getDefaultIndex());
+    assertEquals(properties.getPattern(), hostProperties.getPattern());
+    assertEquals(1024, properties.getContentCache().getMaxEntries());
+    assertEquals(DataSize.ofMegabytes(64), hostProperties.getPackStore().getMaxSize());
+    assertEquals(DataSize.ofMegabytes(16), hostProperties.getClasspathContent().getMaxSize());
+    assertEquals(25_000L, hostProperties.getPathFilter().getExpectedPaths());
+    assertEquals(2_500, hostProperties.getAccessStatisticsSize());
+    assertEquals(properties.getPackStore().getCheckInterval(),
+        hostProperties.getPackStore().getCheckInterval());
+    assertEquals(properties.getRateLimit(), hostProperties.getRateLimit());
+    assertEquals(properties.getTransport(), hostProperties.getTransport());
+    assertEquals(properties.isFlightRecorderEvents(), hostProperties.isFlightRecorderEvents());
+  }
+
+  /**
+   * Every host has its own access statistics.
+   */
+  @Test
+  void accessStatisticsByHost() {
+    ScsAccessStatistics accessStatistics = new ScsAccessStatistics(100);
+    ScsAccessStatistics www = accessStatistics.forHost("www.example.org", 10);
+    assertSame(www, accessStatistics.forHost("www.example.org", 10));
+    www.record("index.html");
+    accessStatistics.forHost("shop.example.org", 10).record("index.html");
+    accessStatistics.forHost("shop.example.org", 10).record("index.html");
+    assertEquals(0, accessStatistics.size());
+    assertEquals(1L, www.top(1).get(0).getValue());
+    assertEquals(2L, accessStatistics.forHost("shop.example.org", 10).top(1).get(0).getValue());
+    accessStatistics.clear();
+    assertEquals(0, www.size());
+  }
+
+}